@@ -0,0 +1,7 @@
+# Discord
+platform=DISCORD
+name=Discord
+emoji=🎮
+# Channels are conversations, keyed by the channel name
+conversation=true
+title_ids=title,channel_name,toolbar
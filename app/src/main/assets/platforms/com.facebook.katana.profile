@@ -0,0 +1,4 @@
+# Facebook
+platform=FACEBOOK
+name=Facebook
+emoji=📘
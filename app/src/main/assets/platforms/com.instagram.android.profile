@@ -0,0 +1,4 @@
+# Instagram
+platform=INSTAGRAM
+name=Instagram
+emoji=📸
@@ -0,0 +1,7 @@
+# Reddit
+platform=REDDIT
+name=Reddit
+emoji=👽
+# Comment threads are conversations, keyed by the thread title
+conversation=true
+title_ids=title,channel_name,toolbar
@@ -0,0 +1,6 @@
+# Twitter/X
+platform=TWITTER
+name=Twitter
+emoji=🐦
+# Per-post overlays: view IDs of tweet containers
+post_ids=tweet,status,timeline
@@ -0,0 +1,291 @@
+package com.socialmediasafety.rating;
+
+import android.content.ComponentName;
+import android.content.Context;
+import android.content.Intent;
+import android.content.ServiceConnection;
+import android.os.Bundle;
+import android.os.Handler;
+import android.os.IBinder;
+import android.os.Looper;
+import android.os.Message;
+import android.os.Messenger;
+import android.os.RemoteException;
+import android.util.Log;
+import com.socialmediasafety.rating.analysis.AnalysisBudget;
+import com.socialmediasafety.rating.analysis.RiskAnalysis;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Service-side end of {@link AnalysisEngineService}: sends snapshots to the
+ * engine process and attaches the verdicts it sends back.
+ *
+ * One snapshot is in flight at a time. A snapshot submitted meanwhile waits,
+ * and a newer one replaces it, since only the latest screen is worth scoring.
+ * Snapshots the engine cannot take, and those in flight when its process
+ * dies, are handed back through {@link Listener#onFailed} to be analyzed
+ * locally; the binding brings the engine back on its own. Call only from the
+ * main thread.
+ */
+public class AnalysisEngineClient implements ServiceConnection {
+
+    private static final String TAG = "AnalysisEngineClient";
+
+    // Batches above this are analyzed locally; well below the 1 MB Binder transaction buffer
+    private static final int MAX_BATCH_CHARS = 64 * 1024;
+
+    /** Hears about submitted snapshots, on the main thread. */
+    public interface Listener {
+        /**
+         * The engine scored the snapshot and its verdicts are attached.
+         * rescoreReason is the one passed to submit.
+         */
+        void onAnalyzed(ScreenSnapshot snapshot, String rescoreReason, long roundTripNanos);
+
+        /** The engine could not score the snapshot; analyze it locally. */
+        void onFailed(ScreenSnapshot snapshot, String rescoreReason);
+
+        /** A link got a background verdict in the engine process. */
+        void onVerdictChanged(String link, String reason);
+    }
+
+    private static final class Request {
+        final ScreenSnapshot snapshot;
+        final String rescoreReason;
+        int id;
+        long sentAt;
+
+        Request(ScreenSnapshot snapshot, String rescoreReason) {
+            this.snapshot = snapshot;
+            this.rescoreReason = rescoreReason;
+        }
+    }
+
+    private final Context context;
+    private final Listener listener;
+    private final Messenger replies = new Messenger(new Handler(Looper.getMainLooper(), this::handleMessage));
+    // Screen verdicts are decoded into the same result; consumers only read it during dispatch.
+    // Rescores get their own, since the snapshot they attach to is kept
+    private final RiskAnalysis screenAnalysis = new RiskAnalysis();
+    private Messenger engine;
+    private boolean bound;
+    private Request inFlight;
+    private Request waiting;
+    private int nextRequestId;
+    private int sensitivity = 50;
+    private boolean expandShortLinks;
+
+    // Read by the metrics server thread
+    private volatile long sentCount;
+    private volatile long supersededCount;
+    private volatile long failedCount;
+
+    public AnalysisEngineClient(Context context, Listener listener) {
+        this.context = context;
+        this.listener = listener;
+    }
+
+    /** Starts the engine process if needed and connects to it. */
+    public void bind() {
+        if (bound) return;
+        bound = context.bindService(new Intent(context, AnalysisEngineService.class), this, Context.BIND_AUTO_CREATE);
+        if (!bound) {
+            Log.e(TAG, "Cannot bind to the analysis engine");
+        }
+    }
+
+    /** Disconnects, dropping the snapshots not answered yet. */
+    public void unbind() {
+        if (!bound) return;
+        context.unbindService(this);
+        bound = false;
+        engine = null;
+        inFlight = null;
+        waiting = null;
+    }
+
+    /** Settings the engine needs; kept and sent again whenever it reconnects. */
+    public void configure(int sensitivity, boolean expandShortLinks) {
+        this.sensitivity = sensitivity;
+        this.expandShortLinks = expandShortLinks;
+        sendConfiguration();
+    }
+
+    public boolean isConnected() { return engine != null; }
+
+    /**
+     * Queues the snapshot for the engine and returns true, or returns false
+     * if the caller has to analyze it locally: the engine is not connected or
+     * the snapshot is too large for one message. Pass a rescoreReason to score
+     * only the screen text again after a link got a background verdict.
+     */
+    public boolean submit(ScreenSnapshot snapshot, String rescoreReason) {
+        if (engine == null || batchChars(snapshot, rescoreReason != null) > MAX_BATCH_CHARS) return false;
+
+        Request request = new Request(snapshot, rescoreReason);
+        if (inFlight == null) {
+            send(request);
+        } else if (waiting == null || rescoreReason == null) {
+            // A rescore of an older screen never replaces a new one
+            if (waiting != null) {
+                supersededCount++;
+            }
+            waiting = request;
+        } else {
+            supersededCount++;
+        }
+        return true;
+    }
+
+    public long getSentCount() { return sentCount; }
+    public long getSupersededCount() { return supersededCount; }
+    public long getFailedCount() { return failedCount; }
+
+    @Override
+    public void onServiceConnected(ComponentName name, IBinder service) {
+        engine = new Messenger(service);
+        sendConfiguration();
+        Log.d(TAG, "Connected to the analysis engine");
+    }
+
+    @Override
+    public void onServiceDisconnected(ComponentName name) {
+        // The engine process died; whatever it had not answered is analyzed here
+        Log.w(TAG, "Analysis engine disconnected");
+        engine = null;
+        Request lost = inFlight;
+        Request next = waiting;
+        inFlight = null;
+        waiting = null;
+        fail(lost);
+        fail(next);
+    }
+
+    private void sendConfiguration() {
+        if (engine == null) return;
+        Message msg = Message.obtain(null, AnalysisEngineService.MSG_CONFIGURE,
+                sensitivity, expandShortLinks ? 1 : 0);
+        msg.replyTo = replies;
+        try {
+            engine.send(msg);
+        } catch (RemoteException e) {
+            Log.w(TAG, "Analysis engine gone while configuring it");
+        }
+    }
+
+    private void send(Request request) {
+        ScreenSnapshot snapshot = request.snapshot;
+        boolean screenOnly = request.rescoreReason != null;
+        // The engine would only look at these windows anyway
+        String text = AnalysisBudget.sample(snapshot.getText());
+        int flags = (screenOnly ? AnalysisEngineService.FLAG_SCREEN_ONLY : 0)
+                | (text != snapshot.getText() ? AnalysisEngineService.FLAG_TEXT_SAMPLED : 0);
+
+        request.id = nextRequestId++;
+        Message msg = Message.obtain(null, AnalysisEngineService.MSG_ANALYZE, request.id, flags);
+        msg.replyTo = replies;
+        Bundle batch = msg.getData();
+        batch.putString(AnalysisEngineService.KEY_PACKAGE, snapshot.getPackageName());
+        batch.putString(AnalysisEngineService.KEY_TEXT, text);
+        if (!screenOnly) {
+            List<ScreenSnapshot.Post> posts = snapshot.getPosts();
+            String[] texts = new String[posts.size()];
+            String[] authors = new String[posts.size()];
+            for (int i = 0; i < texts.length; i++) {
+                texts[i] = posts.get(i).getText();
+                authors[i] = posts.get(i).getAuthor();
+            }
+            batch.putStringArray(AnalysisEngineService.KEY_POST_TEXTS, texts);
+            batch.putStringArray(AnalysisEngineService.KEY_POST_AUTHORS, authors);
+        }
+
+        inFlight = request;
+        request.sentAt = System.nanoTime();
+        try {
+            engine.send(msg);
+            sentCount++;
+        } catch (RemoteException e) {
+            // onServiceDisconnected follows and hands back anything waiting
+            inFlight = null;
+            fail(request);
+        }
+    }
+
+    private boolean handleMessage(Message msg) {
+        switch (msg.what) {
+            case AnalysisEngineService.MSG_RESULT:
+                onResult(msg.arg1, msg.getData().getByteArray(AnalysisEngineService.KEY_RESULTS));
+                return true;
+            case AnalysisEngineService.MSG_VERDICT_CHANGED:
+                Bundle data = msg.getData();
+                listener.onVerdictChanged(data.getString(AnalysisEngineService.KEY_LINK),
+                        data.getString(AnalysisEngineService.KEY_REASON));
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    private void onResult(int requestId, byte[] results) {
+        Request request = inFlight;
+        // Answers for requests dropped by unbind or a reconnect
+        if (request == null || request.id != requestId) return;
+        inFlight = null;
+
+        if (results != null && attachResults(request, results)) {
+            listener.onAnalyzed(request.snapshot, request.rescoreReason, System.nanoTime() - request.sentAt);
+        } else {
+            fail(request);
+        }
+
+        Request next = waiting;
+        waiting = null;
+        if (next != null && engine != null) {
+            send(next);
+        } else {
+            fail(next);
+        }
+    }
+
+    private boolean attachResults(Request request, byte[] results) {
+        ScreenSnapshot snapshot = request.snapshot;
+        try {
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(results));
+            RiskAnalysis analysis = request.rescoreReason == null ? screenAnalysis : new RiskAnalysis();
+            analysis.readFrom(in);
+            snapshot.setScreenAnalysis(analysis);
+            if (request.rescoreReason == null) {
+                for (ScreenSnapshot.Post post : snapshot.getPosts()) {
+                    boolean scam = in.readBoolean();
+                    RiskAnalysis postAnalysis = new RiskAnalysis();
+                    postAnalysis.readFrom(in);
+                    post.setVerdict(postAnalysis, scam);
+                }
+            }
+            return true;
+        } catch (IOException | RuntimeException e) {
+            Log.e(TAG, "Malformed results for request " + request.id, e);
+            return false;
+        }
+    }
+
+    private void fail(Request request) {
+        if (request == null) return;
+        failedCount++;
+        listener.onFailed(request.snapshot, request.rescoreReason);
+    }
+
+    private static int batchChars(ScreenSnapshot snapshot, boolean screenOnly) {
+        // The screen text is sent sampled, which never takes more than two windows
+        int chars = Math.min(snapshot.getText().length(), AnalysisBudget.MAX_CHARS * 2);
+        if (!screenOnly) {
+            for (ScreenSnapshot.Post post : snapshot.getPosts()) {
+                chars += post.getText().length();
+            }
+        }
+        return chars;
+    }
+}
@@ -0,0 +1,221 @@
+package com.socialmediasafety.rating;
+
+import android.app.Service;
+import android.content.Intent;
+import android.os.Bundle;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.IBinder;
+import android.os.Message;
+import android.os.Messenger;
+import android.os.RemoteException;
+import android.os.SystemClock;
+import android.util.Log;
+import com.socialmediasafety.rating.analysis.DomainReputationClient;
+import com.socialmediasafety.rating.analysis.HashedNgramClassifier;
+import com.socialmediasafety.rating.analysis.RiskAnalysis;
+import com.socialmediasafety.rating.analysis.ShortLinkExpander;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+/**
+ * Runs the analysis engine in its own process (":engine" in the manifest),
+ * so its allocations and GC pauses never hold up accessibility events or
+ * overlay updates in the service process.
+ *
+ * {@link AnalysisEngineClient} sends one message per screen with the screen
+ * text and the text and author of every post on it; the reply carries all the
+ * verdicts, written with {@link RiskAnalysis#writeTo}, in a single byte array.
+ * Messages are handled one at a time on the engine thread. Links that get a
+ * background verdict later are reported back so the client can have the
+ * screen scored again.
+ *
+ * While the engine is enabled it is the only process making network lookups,
+ * and the author reputation and near-duplicate history behind post verdicts
+ * live here. Screens the service process scores itself meanwhile use its own
+ * history, which starts empty and does not see posts scored here.
+ */
+public class AnalysisEngineService extends Service {
+
+    private static final String TAG = "AnalysisEngineService";
+    private static final int TIER_REPORT_INTERVAL = 100;
+
+    // Client to engine: arg1 is the sensitivity, arg2 is 1 to expand short links
+    static final int MSG_CONFIGURE = 1;
+    // Client to engine: arg1 is the request ID, arg2 the FLAG_ bits, data the batch
+    static final int MSG_ANALYZE = 2;
+    // Engine to client: arg1 is the request ID, data the results; none if the batch failed
+    static final int MSG_RESULT = 3;
+    // Engine to client: data is the link and the reason
+    static final int MSG_VERDICT_CHANGED = 4;
+
+    // Score only the screen text; the posts were scored before
+    static final int FLAG_SCREEN_ONLY = 1;
+    // The client cut the screen text down to its analysis windows
+    static final int FLAG_TEXT_SAMPLED = 2;
+
+    static final String KEY_PACKAGE = "package";
+    static final String KEY_TEXT = "text";
+    static final String KEY_POST_TEXTS = "post_texts";
+    static final String KEY_POST_AUTHORS = "post_authors";
+    static final String KEY_RESULTS = "results";
+    static final String KEY_LINK = "link";
+    static final String KEY_REASON = "reason";
+
+    private HandlerThread thread;
+    private Messenger messenger;
+    private PlatformRegistry platforms;
+    private ContentAnalyzer contentAnalyzer;
+    private PostAnalyzer postAnalyzer;
+    private ShortLinkExpander linkExpander;
+    private DomainReputationClient domainReputation;
+    // Hears about background verdicts; written on the engine thread, read by lookup threads
+    private volatile Messenger client;
+    // Reused from batch to batch; only touched on the engine thread
+    private final RiskAnalysis screenAnalysis = new RiskAnalysis();
+    private final ByteArrayOutputStream results = new ByteArrayOutputStream();
+
+    private final ShortLinkExpander.Listener linkListener =
+            (shortUrl, destination) -> notifyVerdictChanged(shortUrl, shortUrl + " leads to " + destination);
+
+    @Override
+    public void onCreate() {
+        super.onCreate();
+        long start = SystemClock.elapsedRealtime();
+
+        platforms = MonitoringService.loadPlatformRegistry(this);
+        contentAnalyzer = new ContentAnalyzer();
+        contentAnalyzer.setRulePacks(MonitoringService.createRulePackCache(this));
+        domainReputation = MonitoringService.createDomainReputation(
+                domain -> notifyVerdictChanged(domain, domain + " is listed"));
+        contentAnalyzer.setDomainReputation(domainReputation);
+        postAnalyzer = new PostAnalyzer(contentAnalyzer);
+
+        thread = new HandlerThread("analysis-engine");
+        thread.start();
+        messenger = new Messenger(new Handler(thread.getLooper(), this::handleMessage));
+
+        // Batches are scored without the classifier until it is loaded
+        new Thread(() -> {
+            HashedNgramClassifier classifier = MonitoringService.loadClassifierModel(this);
+            if (classifier != null) {
+                contentAnalyzer.setClassifier(classifier);
+            }
+            int samples = AnalysisWarmup.run(classifier);
+            Log.d(TAG, "Engine ready in " + (SystemClock.elapsedRealtime() - start)
+                    + " ms (" + samples + " warm-up samples)");
+        }, "engine-warmup").start();
+    }
+
+    @Override
+    public IBinder onBind(Intent intent) {
+        return messenger.getBinder();
+    }
+
+    @Override
+    public void onDestroy() {
+        super.onDestroy();
+        thread.quitSafely();
+        if (linkExpander != null) {
+            linkExpander.shutdown();
+        }
+        if (domainReputation != null) {
+            domainReputation.shutdown();
+        }
+        Log.d(TAG, "Analysis engine destroyed");
+    }
+
+    private boolean handleMessage(Message msg) {
+        switch (msg.what) {
+            case MSG_CONFIGURE:
+                client = msg.replyTo;
+                contentAnalyzer.setSensitivity(msg.arg1);
+                setLinkExpansion(msg.arg2 != 0);
+                return true;
+            case MSG_ANALYZE:
+                reply(msg.replyTo, msg.arg1, analyze(msg.getData(), msg.arg2));
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    // Scores the batch and returns the encoded results, or null if it cannot be scored
+    private byte[] analyze(Bundle batch, int flags) {
+        PlatformProfile profile = platforms.get(batch.getString(KEY_PACKAGE));
+        if (profile == null) {
+            Log.w(TAG, "No profile for " + batch.getString(KEY_PACKAGE));
+            return null;
+        }
+
+        results.reset();
+        try {
+            DataOutputStream out = new DataOutputStream(results);
+            contentAnalyzer.analyzeContent(batch.getString(KEY_TEXT), profile, screenAnalysis);
+            if ((flags & FLAG_TEXT_SAMPLED) != 0) {
+                screenAnalysis.setTruncated(true);
+            }
+            screenAnalysis.writeTo(out);
+
+            if ((flags & FLAG_SCREEN_ONLY) == 0) {
+                String[] texts = batch.getStringArray(KEY_POST_TEXTS);
+                String[] authors = batch.getStringArray(KEY_POST_AUTHORS);
+                for (int i = 0; i < texts.length; i++) {
+                    // Bounds stay with the client, which draws the overlays
+                    ScreenSnapshot.Post post = new ScreenSnapshot.Post(texts[i], null, authors[i]);
+                    postAnalyzer.analyze(post, profile.getPlatform());
+                    out.writeBoolean(post.isScam());
+                    post.getAnalysis().writeTo(out);
+                }
+            }
+            out.flush();
+            if (contentAnalyzer.getTierStats().getPostCount() % TIER_REPORT_INTERVAL == 0) {
+                Log.d(TAG, "Analysis tiers: " + contentAnalyzer.getTierStats().report());
+            }
+        } catch (IOException | RuntimeException e) {
+            Log.e(TAG, "Error analyzing batch for " + profile.getPackageName(), e);
+            return null;
+        }
+        return results.toByteArray();
+    }
+
+    private void reply(Messenger replyTo, int requestId, byte[] encoded) {
+        if (replyTo == null) return;
+        Message reply = Message.obtain(null, MSG_RESULT, requestId, 0);
+        if (encoded != null) {
+            reply.getData().putByteArray(KEY_RESULTS, encoded);
+        }
+        try {
+            replyTo.send(reply);
+        } catch (RemoteException e) {
+            // The service process is gone; it rebinds when it comes back
+            Log.w(TAG, "Client gone before request " + requestId + " was answered");
+        }
+    }
+
+    private void notifyVerdictChanged(String link, String reason) {
+        Messenger target = client;
+        if (target == null) return;
+        Message msg = Message.obtain(null, MSG_VERDICT_CHANGED);
+        msg.getData().putString(KEY_LINK, link);
+        msg.getData().putString(KEY_REASON, reason);
+        try {
+            target.send(msg);
+        } catch (RemoteException e) {
+            Log.w(TAG, "Client gone before " + link + " was reported");
+        }
+    }
+
+    private void setLinkExpansion(boolean enabled) {
+        if (enabled == (linkExpander != null)) return;
+        if (enabled) {
+            linkExpander = MonitoringService.createLinkExpander();
+            contentAnalyzer.setLinkExpander(linkExpander, linkListener);
+        } else {
+            contentAnalyzer.setLinkExpander(null, null);
+            linkExpander.shutdown();
+            linkExpander = null;
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package com.socialmediasafety.rating;
+
+import android.graphics.Rect;
+import com.socialmediasafety.rating.analysis.HashedNgramClassifier;
+import com.socialmediasafety.rating.analysis.RiskAnalysis;
+import com.socialmediasafety.rating.analysis.RulePackCache;
+import java.io.FileNotFoundException;
+
+/**
+ * Runs the analyzers over a built-in sample corpus right after the service
+ * connects, so the first real screen does not pay for class loading, pattern
+ * compilation and interpreted code.
+ *
+ * The warm-up scores with its own analyzer instances, which leaves the tier
+ * stats, duplicate index and rule pack cache of the live analyzers untouched;
+ * loaded classes, compiled patterns and JIT profiles are shared by the whole
+ * process anyway.
+ */
+public class AnalysisWarmup {
+
+    // Rounds over the corpus; enough for the hot loops to get JIT-compiled
+    private static final int ROUNDS = 40;
+
+    // One sample per tier and platform rule, plus plain and non-English text
+    private static final String[] SAMPLES = {
+            "Just had a great coffee this morning. Hope everyone has a wonderful day!",
+            "GUARANTEED PROFITS! Make $5000 a day with Bitcoin! NO RISK! Click here now!",
+            "URGENT: Your account has been suspended! Click here to verify your password immediately!",
+            "Free nitro giveaway at https://dlscord-gift.com/claim and https://bit.ly/x and https://t.co/y",
+            "Follow for follow, retweet to win a free gift, dm me for details. f4f",
+            "Fr33 b i t c o i n airdrop, NFT drop tonight, dm to earn with the sugar daddy program",
+            "Elon giveaway: send 0.1 BTC and get 0.2 back, limited spots, act fast, expires today",
+            "Check out modmail scam warning on r/android, account suspended notices are fake",
+            "Su cuenta ha sido suspendida, verifique sus datos de pago en el siguiente enlace urgente",
+            "Vielen Dank fur eure Unterstutzung, das bedeutet uns allen sehr viel"
+    };
+
+    private AnalysisWarmup() {}
+
+    /**
+     * Scores the corpus on every platform and returns the number of samples
+     * analyzed. Blocks, so call it off the main thread.
+     */
+    public static int run(HashedNgramClassifier classifier) {
+        ContentAnalyzer contentAnalyzer = new ContentAnalyzer();
+        contentAnalyzer.setClassifier(classifier);
+        // Thorough depth so every tier runs at least once
+        contentAnalyzer.setSensitivity(100);
+        // Exercises language identification without loading any rule pack
+        contentAnalyzer.setRulePacks(new RulePackCache(language -> {
+            throw new FileNotFoundException(language);
+        }, 1));
+        PostAnalyzer postAnalyzer = new PostAnalyzer(contentAnalyzer);
+        RiskAnalysis analysis = new RiskAnalysis();
+        Rect bounds = new Rect();
+
+        Platform[] platforms = Platform.values();
+        int samples = 0;
+        for (int round = 0; round < ROUNDS; round++) {
+            for (int i = 0; i < SAMPLES.length; i++) {
+                Platform platform = platforms[(round + i) % platforms.length];
+                contentAnalyzer.analyzeContent(SAMPLES[i], platform, analysis);
+                postAnalyzer.analyze(new ScreenSnapshot.Post(SAMPLES[i], bounds, null), platform);
+                samples++;
+            }
+        }
+        return samples;
+    }
+}
@@ -4,10 +4,30 @@ import com.socialmediasafety.rating.Platform;
 import com.socialmediasafety.rating.analysis.RiskLevel;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.regex.Matcher;
 import java.util.regex.Pattern;
+import com.socialmediasafety.rating.analysis.AnalysisBudget;
+import com.socialmediasafety.rating.analysis.DomainReputationClient;
+import com.socialmediasafety.rating.analysis.DomainSpoofDetector;
+import com.socialmediasafety.rating.analysis.HashedNgramClassifier;
+import com.socialmediasafety.rating.analysis.KeywordPrefilter;
+import com.socialmediasafety.rating.analysis.LanguageIdentifier;
 import com.socialmediasafety.rating.analysis.RiskAnalysis;
+import com.socialmediasafety.rating.analysis.RiskFactor;
 import com.socialmediasafety.rating.analysis.RiskLevel;
-
+import com.socialmediasafety.rating.analysis.RulePack;
+import com.socialmediasafety.rating.analysis.RulePackCache;
+import com.socialmediasafety.rating.analysis.ShortLinkExpander;
+import com.socialmediasafety.rating.analysis.TextCanonicalizer;
+import com.socialmediasafety.rating.analysis.TierStats;
+
+/**
+ * Scores screen text through the tiered rule pipeline.
+ *
+ * Safe to call from several threads at once: patterns are compiled once,
+ * and the matchers, canonicalizer and domain spoof detector that carry state
+ * between calls are kept per thread and reset for each post.
+ */
 public class ContentAnalyzer {
     private static final String TAG = "ContentAnalyzer";
 
@@ -45,112 +65,505 @@ public class ContentAnalyzer {
             Pattern.compile("(?i)\\b\\w+\\d+\\.(com|net|org)\\b")
     };
 
+    private static final Pattern LINK_PATTERN = Pattern.compile("https?://\\S+");
+
+    // Anchor words for each pattern above, in the same order: a pattern can only
+    // match when at least one of its anchors appears as a word in the text
+    private static final String[][] FINANCIAL_ANCHORS = {
+            {"bitcoin", "btc", "ethereum", "eth", "crypto", "cryptocurrency"},
+            {"money"},
+            {"forex", "trading", "trader", "trade"},
+            {"pyramid", "ponzi", "mlm", "multi", "multilevel", "level"},
+            {"rich", "freedom"}
+    };
+
+    private static final String[][] PHISHING_ANCHORS = {
+            {"click", "act", "limited"},
+            {"verify", "confirm", "update"},
+            {"suspended", "expired", "locked"},
+            {"winner", "won", "congratulations"},
+            {"urgent", "immediate", "asap"}
+    };
+
+    private static final String[][] SPAM_ANCHORS = {
+            {"dm", "message", "contact"},
+            {"follow", "like", "share", "retweet"},
+            {"free"},
+            {"work", "money"},
+            {"amazing", "incredible", "unbelievable"}
+    };
+
+    // Anchors for the keyword checks and platform-specific rules
+    private static final String[] FINANCIAL_KEYWORD_ANCHORS = {"guaranteed", "risk", "returns"};
+    private static final String[] URGENCY_KEYWORD_ANCHORS = {"expires", "act", "limited"};
+    private static final String[] PLATFORM_ANCHORS = {
+            "giveaway", "giveaways", "elon", "modmail", "suspended", "nft", "airdrop", "sugar", "earn"
+    };
+    private static final String[] URL_KEYWORD_ANCHORS = {"tinyurl"};
+
+    // Rule bits in the prefilter result
+    private static final int FINANCIAL_RULE_OFFSET = 0;
+    private static final int PHISHING_RULE_OFFSET = FINANCIAL_RULE_OFFSET + FINANCIAL_PATTERNS.length;
+    private static final int SPAM_RULE_OFFSET = PHISHING_RULE_OFFSET + PHISHING_PATTERNS.length;
+    private static final int FINANCIAL_KEYWORD_RULE = SPAM_RULE_OFFSET + SPAM_PATTERNS.length;
+    private static final int URGENCY_KEYWORD_RULE = FINANCIAL_KEYWORD_RULE + 1;
+    private static final int PLATFORM_RULE = URGENCY_KEYWORD_RULE + 1;
+    private static final int URL_KEYWORD_RULE = PLATFORM_RULE + 1;
+
+    private static final KeywordPrefilter PREFILTER = new KeywordPrefilter(buildAnchors());
+    private static final LanguageIdentifier LANGUAGE_IDENTIFIER = new LanguageIdentifier();
+
+    private static final ThreadLocal<Scratch> SCRATCH = new ThreadLocal<Scratch>() {
+        @Override
+        protected Scratch initialValue() {
+            return new Scratch();
+        }
+    };
+
+    /** Per-thread state reused from one post to the next. */
+    private static final class Scratch {
+        // Undoes leetspeak, spacing and look-alike tricks before phrase matching
+        final TextCanonicalizer canonicalizer = new TextCanonicalizer();
+        final DomainSpoofDetector domainSpoofDetector = new DomainSpoofDetector();
+        final Matcher[] financialMatchers = matchers(FINANCIAL_PATTERNS);
+        final Matcher[] phishingMatchers = matchers(PHISHING_PATTERNS);
+        final Matcher[] spamMatchers = matchers(SPAM_PATTERNS);
+        final Matcher[] urlMatchers = matchers(URL_PATTERNS);
+        final Matcher linkMatcher = LINK_PATTERN.matcher("");
+        // Known destinations of the shortened links in the current post
+        final StringBuilder destinations = new StringBuilder();
+
+        private static Matcher[] matchers(Pattern[] patterns) {
+            Matcher[] matchers = new Matcher[patterns.length];
+            for (int i = 0; i < patterns.length; i++) {
+                matchers[i] = patterns[i].matcher("");
+            }
+            return matchers;
+        }
+    }
+
+    // How deep analysis goes, chosen from the sensitivity preference
+    public static final int DEPTH_BASIC = 0;      // prefilter, rules and URL checks
+    public static final int DEPTH_STANDARD = 1;   // adds the classifier for flagged posts
+    public static final int DEPTH_THOROUGH = 2;   // every tier runs, nothing is cleared early
+
+    // Minimum classifier probability before it contributes to the risk score
+    private static final float CLASSIFIER_THRESHOLD = 0.5f;
+
+    private final TierStats tierStats = new TierStats();
+    private volatile HashedNgramClassifier classifier;
+    private volatile RulePackCache rulePacks;
+    private volatile ShortLinkExpander linkExpander;
+    private volatile ShortLinkExpander.Listener linkListener;
+    private volatile DomainReputationClient domainReputation;
+    private volatile int analysisDepth = DEPTH_STANDARD;
+
+    /**
+     * Enables the n-gram classifier stage; pass null to disable it.
+     */
+    public void setClassifier(HashedNgramClassifier classifier) {
+        this.classifier = classifier;
+    }
+
+    /**
+     * Enables rule packs for posts in languages other than English; pass null
+     * to match English rules only.
+     */
+    public void setRulePacks(RulePackCache rulePacks) {
+        this.rulePacks = rulePacks;
+    }
+
+    /**
+     * Enables scoring the destinations of shortened links; pass null to only
+     * note that such links exist. Links not expanded yet are handed to the
+     * expander, and the listener hears when they resolve so the caller can
+     * score the text again.
+     */
+    public void setLinkExpander(ShortLinkExpander expander, ShortLinkExpander.Listener listener) {
+        this.linkListener = listener;
+        this.linkExpander = expander;
+    }
+
+    /**
+     * Enables checking link domains against the reputation service; pass null
+     * to score links with the local rules only. Lookups never wait for the
+     * service, so a domain counts once its verdict is cached.
+     */
+    public void setDomainReputation(DomainReputationClient domainReputation) {
+        this.domainReputation = domainReputation;
+    }
+
+    /**
+     * Maps the 0-100 sensitivity preference to an analysis depth, using the same
+     * bands as the settings screen.
+     */
+    public void setSensitivity(int sensitivity) {
+        if (sensitivity < 25) {
+            analysisDepth = DEPTH_BASIC;
+        } else if (sensitivity < 75) {
+            analysisDepth = DEPTH_STANDARD;
+        } else {
+            analysisDepth = DEPTH_THOROUGH;
+        }
+    }
+
+    public TierStats getTierStats() {
+        return tierStats;
+    }
+
     public RiskAnalysis analyzeContent(String text, Platform platform) {
-        RiskAnalysis analysis = new RiskAnalysis();
+        return analyzeContent(text, platform, new RiskAnalysis());
+    }
+
+    /**
+     * Analyzes the text into the given result, which is reset first, so a
+     * caller scoring post after post can reuse one instance.
+     */
+    public RiskAnalysis analyzeContent(String text, Platform platform, RiskAnalysis analysis) {
+        return analyzeContent(text, platform, analysis, analysisDepth);
+    }
+
+    /**
+     * Same as {@link #analyzeContent(String, Platform, RiskAnalysis)} for a
+     * monitored app, adding the rules of its profile to the built-in ones.
+     */
+    public RiskAnalysis analyzeContent(String text, PlatformProfile profile, RiskAnalysis analysis) {
+        return analyzeContent(text, profile.getPlatform(), profile.getRules(), analysis, analysisDepth);
+    }
+
+    /**
+     * Same as {@link #analyzeContent(String, Platform, RiskAnalysis)} at the
+     * given depth instead of the one chosen by the sensitivity preference.
+     */
+    public RiskAnalysis analyzeContent(String text, Platform platform, RiskAnalysis analysis, int depth) {
+        return analyzeContent(text, platform, null, analysis, depth);
+    }
+
+    private RiskAnalysis analyzeContent(String text, Platform platform, RulePack appRules,
+                                        RiskAnalysis analysis, int depth) {
+        analysis.reset();
 
         if (text == null || text.trim().isEmpty()) {
             return analysis;
         }
 
-        // Analyze different risk categories
-        analysis.setFinancialRisk(analyzeFinancialRisk(text));
-        analysis.setPhishingRisk(analyzePhishingRisk(text));
-        analysis.setSpamRisk(analyzeSpamRisk(text));
-        analysis.setUrlRisk(analyzeUrlRisk(text));
-
-        // Platform-specific analysis
-        switch (platform) {
-            case TWITTER:
-                analysis.addTwitterSpecificRisks(text);
-                break;
-            case REDDIT:
-                analysis.addRedditSpecificRisks(text);
-                break;
-            case FACEBOOK:
-                analysis.addFacebookSpecificRisks(text);
-                break;
-            case DISCORD:
-                analysis.addDiscordSpecificRisks(text);
-                break;
-            case INSTAGRAM:
-                analysis.addInstagramSpecificRisks(text);
-                break;
+        long startTime = System.nanoTime();
+        long deadline = AnalysisBudget.deadline(startTime);
+        Scratch scratch = SCRATCH.get();
+
+        // Huge screen dumps are only analyzed in their head and tail windows
+        String sampled = AnalysisBudget.sample(text);
+        if (sampled != text) {
+            text = sampled;
+            analysis.setTruncated(true);
+            tierStats.recordSampled();
+        }
+
+        // Tier 0: prefilter clears posts without any rule anchor or suspicious signal
+        tierStats.recordTier(TierStats.TIER_PREFILTER);
+        TextCanonicalizer canonical = scratch.canonicalizer.canonicalize(text);
+        long candidates = PREFILTER.scan(canonical);
+        if (canonical.isChanged()) {
+            // Platform rules such as "f4f" are written against the original spelling
+            candidates |= PREFILTER.scan(text);
+        }
+        // Posts in other languages also get the rule pack for their language
+        RulePack pack = findRulePack(canonical);
+        long packCandidates = pack != null ? pack.scan(canonical) : 0;
+        // And the app's own rules, whatever the language
+        long appCandidates = appRules != null ? appRules.scan(canonical) : 0;
+        if (depth == DEPTH_THOROUGH) {
+            candidates |= (1L << KeywordPrefilter.MAX_RULES) - 1;
+            packCandidates = pack != null ? -1L : 0;
+            appCandidates = appRules != null ? -1L : 0;
+        }
+        if (candidates == 0 && packCandidates == 0 && appCandidates == 0) {
+            analysis.calculateOverallRisk();
+            tierStats.recordCleared(System.nanoTime() - startTime);
+            return analysis;
+        }
+
+        // Tier 1: only the rule patterns whose anchors were found, matched against
+        // the canonical text; URL checks and the classifier keep the original
+        tierStats.recordTier(TierStats.TIER_RULES);
+        String ruleText = canonical.isChanged() ? canonical.toString() : text;
+        analysis.setFinancialRisk(analyzeFinancialRisk(ruleText, candidates, pack, packCandidates, scratch));
+        analysis.setPhishingRisk(analyzePhishingRisk(ruleText, candidates, pack, packCandidates, scratch));
+        analysis.setSpamRisk(analyzeSpamRisk(ruleText, candidates, pack, packCandidates, scratch));
+        if (appCandidates != 0) {
+            addAppRuleRisks(ruleText, appRules, appCandidates, analysis);
+        }
+
+        // Platform-specific analysis; substring checks, cheap enough to run before the costly tiers
+        if ((candidates & (1L << PLATFORM_RULE)) != 0) {
+            switch (platform) {
+                case TWITTER:
+                    analysis.addTwitterSpecificRisks(text);
+                    break;
+                case REDDIT:
+                    analysis.addRedditSpecificRisks(text);
+                    break;
+                case FACEBOOK:
+                    analysis.addFacebookSpecificRisks(text);
+                    break;
+                case DISCORD:
+                    analysis.addDiscordSpecificRisks(text);
+                    break;
+                case INSTAGRAM:
+                    analysis.addInstagramSpecificRisks(text);
+                    break;
+            }
+        }
+
+        // Tier 2: URL checks, only when the text looks like it contains links
+        boolean stopped = shouldStop(analysis, depth, deadline);
+        if (!stopped && (candidates & (KeywordPrefilter.FLAG_URL_HINT | (1L << URL_KEYWORD_RULE))) != 0) {
+            tierStats.recordTier(TierStats.TIER_URLS);
+            analysis.setUrlRisk(Math.min(analyzeUrlRisk(text, scratch)
+                    + scratch.domainSpoofDetector.score(text, analysis)
+                    + analyzeShortLinks(text, analysis, scratch)
+                    + analyzeListedDomains(text, analysis, scratch), 100));
+            stopped = shouldStop(analysis, depth, deadline);
+        }
+
+        // Tier 3: classifier for paraphrased scams the rules miss
+        if (!stopped && depth >= DEPTH_STANDARD && classifier != null) {
+            tierStats.recordTier(TierStats.TIER_CLASSIFIER);
+            analysis.setClassifierRisk(analyzeClassifierRisk(text, analysis));
         }
 
         // Calculate overall risk level
         analysis.calculateOverallRisk();
+        tierStats.recordFlagged(System.nanoTime() - startTime);
 
         return analysis;
     }
 
-    private int analyzeFinancialRisk(String text) {
-        int riskScore = 0;
-
-        for (Pattern pattern : FINANCIAL_PATTERNS) {
-            if (pattern.matcher(text).find()) {
-                riskScore += 25;
-            }
+    /**
+     * True when the tiers still to run can be skipped: the level is already
+     * HIGH, which they cannot lower, or the post has used up its time budget,
+     * in which case the result is marked truncated. A thorough analysis
+     * collects every factor, so it only stops for the budget.
+     */
+    private boolean shouldStop(RiskAnalysis analysis, int depth, long deadline) {
+        if (depth != DEPTH_THOROUGH && analysis.isDecided()) {
+            tierStats.recordDecided();
+            return true;
         }
+        if (AnalysisBudget.isOver(deadline)) {
+            analysis.setTruncated(true);
+            tierStats.recordOverBudget();
+            return true;
+        }
+        return false;
+    }
+
+    private int analyzeFinancialRisk(String text, long candidates, RulePack pack, long packCandidates,
+                                     Scratch scratch) {
+        int riskScore = (countCandidateMatches(text, scratch.financialMatchers, FINANCIAL_RULE_OFFSET, candidates)
+                + countPackMatches(text, pack, packCandidates, RulePack.FINANCIAL)) * 25;
 
         // Additional financial keywords
-        if (text.toLowerCase().contains("guaranteed profit")) riskScore += 30;
-        if (text.toLowerCase().contains("risk free")) riskScore += 25;
-        if (text.toLowerCase().contains("100% returns")) riskScore += 35;
+        if ((candidates & (1L << FINANCIAL_KEYWORD_RULE)) != 0) {
+            String lowercaseText = text.toLowerCase();
+            if (lowercaseText.contains("guaranteed profit")) riskScore += 30;
+            if (lowercaseText.contains("risk free")) riskScore += 25;
+            if (lowercaseText.contains("100% returns")) riskScore += 35;
+        }
 
         return Math.min(riskScore, 100);
     }
 
-    private int analyzePhishingRisk(String text) {
-        int riskScore = 0;
+    private int analyzePhishingRisk(String text, long candidates, RulePack pack, long packCandidates,
+                                    Scratch scratch) {
+        int riskScore = (countCandidateMatches(text, scratch.phishingMatchers, PHISHING_RULE_OFFSET, candidates)
+                + countPackMatches(text, pack, packCandidates, RulePack.PHISHING)) * 20;
 
-        for (Pattern pattern : PHISHING_PATTERNS) {
-            if (pattern.matcher(text).find()) {
-                riskScore += 20;
-            }
+        // Check for urgency indicators
+        if ((candidates & (1L << URGENCY_KEYWORD_RULE)) != 0) {
+            String lowercaseText = text.toLowerCase();
+            if (lowercaseText.contains("expires today")) riskScore += 25;
+            if (lowercaseText.contains("act fast")) riskScore += 20;
+            if (lowercaseText.contains("limited spots")) riskScore += 15;
         }
 
-        // Check for urgency indicators
-        if (text.toLowerCase().contains("expires today")) riskScore += 25;
-        if (text.toLowerCase().contains("act fast")) riskScore += 20;
-        if (text.toLowerCase().contains("limited spots")) riskScore += 15;
+        return Math.min(riskScore, 100);
+    }
+
+    private int analyzeSpamRisk(String text, long candidates, RulePack pack, long packCandidates,
+                                Scratch scratch) {
+        int riskScore = (countCandidateMatches(text, scratch.spamMatchers, SPAM_RULE_OFFSET, candidates)
+                + countPackMatches(text, pack, packCandidates, RulePack.SPAM)) * 15;
+
+        // Excessive punctuation/caps were already counted by the prefilter
+        if ((candidates & KeywordPrefilter.FLAG_EXCLAMATIONS) != 0) riskScore += 10;
+        if ((candidates & KeywordPrefilter.FLAG_SHOUTING) != 0) riskScore += 15;
 
         return Math.min(riskScore, 100);
     }
 
-    private int analyzeSpamRisk(String text) {
-        int riskScore = 0;
+    // App rules weigh the same as built-in rules of their category
+    private void addAppRuleRisks(String text, RulePack appRules, long appCandidates, RiskAnalysis analysis) {
+        analysis.setFinancialRisk(Math.min(analysis.getCategoryScore(RiskAnalysis.CATEGORY_FINANCIAL)
+                + appRules.countMatches(text, appCandidates, RulePack.FINANCIAL) * 25, 100));
+        analysis.setPhishingRisk(Math.min(analysis.getCategoryScore(RiskAnalysis.CATEGORY_PHISHING)
+                + appRules.countMatches(text, appCandidates, RulePack.PHISHING) * 20, 100));
+        analysis.setSpamRisk(Math.min(analysis.getCategoryScore(RiskAnalysis.CATEGORY_SPAM)
+                + appRules.countMatches(text, appCandidates, RulePack.SPAM) * 15, 100));
+    }
 
-        for (Pattern pattern : SPAM_PATTERNS) {
-            if (pattern.matcher(text).find()) {
-                riskScore += 15;
+    private int countCandidateMatches(String text, Matcher[] matchers, int ruleOffset, long candidates) {
+        int matches = 0;
+        for (int i = 0; i < matchers.length; i++) {
+            if ((candidates & (1L << (ruleOffset + i))) != 0 && matchers[i].reset(text).find()) {
+                matches++;
             }
         }
+        return matches;
+    }
 
-        // Check for excessive punctuation/caps
-        long exclamationCount = text.chars().filter(ch -> ch == '!').count();
-        if (exclamationCount > 3) riskScore += 10;
-
-        long capsCount = text.chars().filter(Character::isUpperCase).count();
-        if (capsCount > text.length() * 0.3) riskScore += 15;
+    private int countPackMatches(String text, RulePack pack, long packCandidates, int category) {
+        if (pack == null || packCandidates == 0) {
+            return 0;
+        }
+        return pack.countMatches(text, packCandidates, category);
+    }
 
-        return Math.min(riskScore, 100);
+    private RulePack findRulePack(CharSequence text) {
+        RulePackCache packs = rulePacks;
+        if (packs == null) {
+            return null;
+        }
+        // English is built in; unknown means too short or too mixed to tell
+        String language = LANGUAGE_IDENTIFIER.identify(text);
+        if (language == null || LanguageIdentifier.ENGLISH.equals(language)) {
+            return null;
+        }
+        return packs.get(language);
     }
 
-    private int analyzeUrlRisk(String text) {
+    private int analyzeUrlRisk(String text, Scratch scratch) {
         int riskScore = 0;
 
-        for (Pattern pattern : URL_PATTERNS) {
-            if (pattern.matcher(text).find()) {
+        for (Matcher matcher : scratch.urlMatchers) {
+            if (matcher.reset(text).find()) {
                 riskScore += 20;
             }
         }
 
         // Count total URLs
-        long urlCount = Pattern.compile("https?://\\S+").matcher(text).results().count();
+        Matcher links = scratch.linkMatcher.reset(text);
+        int urlCount = 0;
+        while (urlCount <= 2 && links.find()) {
+            urlCount++;
+        }
         if (urlCount > 2) riskScore += 15;
 
         return Math.min(riskScore, 100);
     }
+
+    private int analyzeShortLinks(String text, RiskAnalysis analysis, Scratch scratch) {
+        StringBuilder destinations = scratch.destinations;
+        destinations.setLength(0);
+        ShortLinkExpander expander = linkExpander;
+        if (expander == null) {
+            return 0;
+        }
+
+        // Score the destinations already known; the rest are expanded for next time
+        Matcher links = scratch.linkMatcher.reset(text);
+        while (links.find()) {
+            String url = trimLink(links.group());
+            if (!ShortLinkExpander.isShortLink(url)) continue;
+            String destination = expander.getCached(url);
+            if (destination != null) {
+                destinations.append(destination).append(' ');
+            } else {
+                expander.expand(url, linkListener);
+            }
+        }
+        if (destinations.length() == 0) {
+            return 0;
+        }
+
+        int riskScore = 0;
+        for (Matcher matcher : scratch.urlMatchers) {
+            if (matcher.reset(destinations).find()) {
+                riskScore += 20;
+            }
+        }
+        riskScore += scratch.domainSpoofDetector.score(destinations, analysis);
+        if (riskScore > 0) {
+            analysis.addFactor(RiskFactor.SHORT_LINK_DESTINATION, 0);
+        }
+        return riskScore;
+    }
+
+    // Expects analyzeShortLinks to have collected the known destinations first
+    private int analyzeListedDomains(String text, RiskAnalysis analysis, Scratch scratch) {
+        DomainReputationClient reputation = domainReputation;
+        if (reputation == null) {
+            return 0;
+        }
+
+        int listed = countListedDomains(text, reputation, scratch.linkMatcher);
+        if (scratch.destinations.length() > 0) {
+            listed += countListedDomains(scratch.destinations, reputation, scratch.linkMatcher);
+        }
+        if (listed == 0) {
+            return 0;
+        }
+        analysis.addFactor(RiskFactor.LISTED_DOMAIN, listed);
+        return 50 * listed;
+    }
+
+    private static int countListedDomains(CharSequence text, DomainReputationClient reputation, Matcher linkMatcher) {
+        int listed = 0;
+        Matcher links = linkMatcher.reset(text);
+        while (links.find()) {
+            if (reputation.lookup(links.group()) == DomainReputationClient.VERDICT_LISTED) {
+                listed++;
+            }
+        }
+        return listed;
+    }
+
+    // Drops punctuation that ends the sentence rather than the link
+    private static String trimLink(String link) {
+        int end = link.length();
+        while (end > 0 && ".,;:!?)\"'".indexOf(link.charAt(end - 1)) >= 0) {
+            end--;
+        }
+        return link.substring(0, end);
+    }
+
+    private int analyzeClassifierRisk(String text, RiskAnalysis analysis) {
+        HashedNgramClassifier model = classifier;
+        if (model == null) {
+            return 0;
+        }
+
+        // Catches paraphrased scams that none of the fixed patterns match
+        float probability = model.score(text);
+        if (probability < CLASSIFIER_THRESHOLD) {
+            return 0;
+        }
+        int riskScore = Math.round(probability * 100);
+        analysis.addFactor(RiskFactor.CLASSIFIER_MATCH, riskScore);
+        return riskScore;
+    }
+
+    private static String[][] buildAnchors() {
+        String[][] anchors = new String[URL_KEYWORD_RULE + 1][];
+        System.arraycopy(FINANCIAL_ANCHORS, 0, anchors, FINANCIAL_RULE_OFFSET, FINANCIAL_ANCHORS.length);
+        System.arraycopy(PHISHING_ANCHORS, 0, anchors, PHISHING_RULE_OFFSET, PHISHING_ANCHORS.length);
+        System.arraycopy(SPAM_ANCHORS, 0, anchors, SPAM_RULE_OFFSET, SPAM_ANCHORS.length);
+        anchors[FINANCIAL_KEYWORD_RULE] = FINANCIAL_KEYWORD_ANCHORS;
+        anchors[URGENCY_KEYWORD_RULE] = URGENCY_KEYWORD_ANCHORS;
+        anchors[PLATFORM_RULE] = PLATFORM_ANCHORS;
+        anchors[URL_KEYWORD_RULE] = URL_KEYWORD_ANCHORS;
+        return anchors;
+    }
 }
 
 class LocalRiskAnalysis {
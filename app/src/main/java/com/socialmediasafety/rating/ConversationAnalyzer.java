@@ -0,0 +1,96 @@
+package com.socialmediasafety.rating;
+
+import com.socialmediasafety.rating.analysis.ConversationTracker;
+import com.socialmediasafety.rating.analysis.RiskAnalysis;
+import com.socialmediasafety.rating.analysis.RiskFactor;
+import com.socialmediasafety.rating.analysis.RiskLevel;
+
+/**
+ * Flags chat threads that escalate over several messages, on apps whose
+ * profile marks a screen as a conversation (Discord channels, Reddit comment
+ * threads).
+ *
+ * A conversation is keyed by package plus the channel or thread title found
+ * on screen. Every text node long enough to be a message is fingerprinted,
+ * and only messages the conversation has not seen yet are scored and added to
+ * its {@link ConversationTracker} slot, so each message is analyzed once no
+ * matter how often it is re-rendered.
+ */
+public class ConversationAnalyzer {
+
+    private static final int CONVERSATIONS = 16;
+    private static final int FINGERPRINTS_PER_CONVERSATION = 64;
+    private static final long HALF_LIFE_MS = 5 * 60 * 1000;
+
+    // Shorter text nodes are buttons, timestamps and user names
+    private static final int MIN_MESSAGE_LENGTH = 12;
+    private static final double ESCALATION_WEIGHT = 0.5;
+
+    private final ContentAnalyzer contentAnalyzer;
+    private final ConversationTracker tracker =
+            new ConversationTracker(CONVERSATIONS, FINGERPRINTS_PER_CONVERSATION, HALF_LIFE_MS);
+    private final RiskAnalysis messageAnalysis = new RiskAnalysis();
+    private final StringBuilder text = new StringBuilder();
+
+    public ConversationAnalyzer(ContentAnalyzer contentAnalyzer) {
+        this.contentAnalyzer = contentAnalyzer;
+    }
+
+    /**
+     * Adds the screen's new messages to its conversation and, if the
+     * conversation is escalating, raises the screen analysis accordingly.
+     */
+    public void analyze(ScreenSnapshot snapshot, RiskAnalysis screenAnalysis) {
+        PlatformProfile profile = snapshot.getProfile();
+        if (!profile.isConversation()) return;
+
+        FlatTree tree = snapshot.getTree();
+        long now = snapshot.getTimestamp();
+        int conversation = tracker.open(conversationKey(snapshot), now);
+
+        for (int i = 0; i < tree.size(); i++) {
+            if (tree.getTextLength(i) < MIN_MESSAGE_LENGTH) continue;
+            text.setLength(0);
+            tree.appendText(i, text);
+            if (!tracker.recordMessage(conversation, text)) continue;
+
+            contentAnalyzer.analyzeContent(text.toString(), profile, messageAnalysis);
+            tracker.addMessage(conversation, messageAnalysis, now);
+        }
+
+        if (tracker.isEscalating(conversation, now)) {
+            int riskyMessages = (int) Math.round(tracker.getRiskyMessages(conversation, now));
+            screenAnalysis.addRisk(RiskFactor.ESCALATING_CONVERSATION, riskyMessages, ESCALATION_WEIGHT);
+            if (screenAnalysis.getRiskLevel() == RiskLevel.SAFE) {
+                screenAnalysis.setRiskLevel(RiskLevel.MEDIUM);
+            }
+        }
+    }
+
+    /** Number of conversations currently tracked. */
+    public int getConversationCount() { return tracker.size(); }
+
+    // Built in the shared buffer; only valid until the next message is read
+    private CharSequence conversationKey(ScreenSnapshot snapshot) {
+        FlatTree tree = snapshot.getTree();
+        text.setLength(0);
+        text.append(snapshot.getPackageName()).append('/');
+        int title = findTitle(tree, snapshot.getProfile());
+        if (title >= 0) {
+            tree.appendText(title, text);
+        }
+        return text;
+    }
+
+    // Toolbar title if the app labels one, else the first text on screen
+    private static int findTitle(FlatTree tree, PlatformProfile profile) {
+        int firstText = -1;
+        for (int i = 0; i < tree.size(); i++) {
+            if (tree.getTextLength(i) == 0) continue;
+            int id = tree.getViewId(i);
+            if (id >= 0 && profile.isTitle(tree.getViewIdName(id))) return i;
+            if (firstText < 0) firstText = i;
+        }
+        return firstText;
+    }
+}
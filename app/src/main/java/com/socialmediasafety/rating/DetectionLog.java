@@ -0,0 +1,459 @@
+package com.socialmediasafety.rating;
+
+import android.content.Context;
+import android.util.Log;
+import com.socialmediasafety.rating.analysis.RiskLevel;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.CRC32;
+
+/**
+ * Persistent, append-only log of detections.
+ *
+ * Callers only enqueue records; a background writer drains the queue in
+ * batches and commits each batch with a single write and fsync. Records are
+ * length-prefixed and CRC-checked, so a torn write after a crash is detected
+ * on the next open and truncated away. The active file is rotated into one
+ * backup file once it grows past {@link #MAX_FILE_BYTES}, bounding disk use.
+ * {@link #compact} drops old records during idle maintenance.
+ */
+public class DetectionLog {
+
+    private static final String TAG = "DetectionLog";
+
+    static final String ACTIVE_FILE = "detections.log";
+    static final String ROTATED_FILE = "detections.1.log";
+
+    private static final int MAGIC = 0x4D444C47; // "MDLG"
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 8;
+    private static final int RECORD_HEADER_BYTES = 8;
+    private static final int MAX_RECORD_BYTES = 64 * 1024;
+
+    static final long MAX_FILE_BYTES = 256 * 1024;
+    private static final int QUEUE_CAPACITY = 256;
+    private static final int MAX_BATCH = 64;
+    private static final long GROUP_COMMIT_DELAY_MS = 500;
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private static DetectionLog instance;
+
+    private final File directory;
+    private final BlockingQueue<DetectionRecord> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+    private final AtomicLong recordCount = new AtomicLong();
+    private final AtomicLong droppedCount = new AtomicLong();
+    private final CountDownLatch opened = new CountDownLatch(1);
+    private final Thread writerThread;
+    private volatile boolean running = true;
+
+    private RandomAccessFile file;
+    private FileChannel channel;
+
+    /** Process-wide log shared by every service that reports detections. */
+    public static synchronized DetectionLog getInstance(Context context) {
+        if (instance == null) {
+            instance = new DetectionLog(new File(context.getApplicationContext().getFilesDir(), "detections"));
+        }
+        return instance;
+    }
+
+    DetectionLog(File directory) {
+        this.directory = directory;
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            Log.e(TAG, "Cannot create log directory " + directory);
+        }
+        writerThread = new Thread(this::writeLoop, "detection-log");
+        writerThread.setDaemon(true);
+        writerThread.start();
+    }
+
+    /**
+     * Queues a record for writing without blocking. Records are dropped (and
+     * counted) if the writer falls too far behind.
+     */
+    public void append(DetectionRecord record) {
+        if (!running || !queue.offer(record)) {
+            droppedCount.incrementAndGet();
+        }
+    }
+
+    /** Records persisted across both log files, including previous sessions. */
+    public long getRecordCount() {
+        return recordCount.get();
+    }
+
+    public long getDroppedCount() {
+        return droppedCount.get();
+    }
+
+    public int getQueueDepth() {
+        return queue.size();
+    }
+
+    /** Reads every valid record, oldest first. Intended for history views and maintenance. */
+    public List<DetectionRecord> readAll() {
+        List<DetectionRecord> records = new ArrayList<>();
+        synchronized (this) {
+            readFile(new File(directory, ROTATED_FILE), records);
+            readFile(new File(directory, ACTIVE_FILE), records);
+        }
+        return records;
+    }
+
+    /**
+     * Rewrites both log files without the records older than the cutoff and
+     * returns how many were dropped. Holds up the writer while it runs, so it
+     * is meant for idle maintenance off the main thread.
+     */
+    public int compact(long cutoffMillis) {
+        try {
+            opened.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return 0;
+        }
+
+        synchronized (this) {
+            if (channel == null) return 0;
+            int dropped = 0;
+            try {
+                int rotatedDropped = dropOlderThan(new File(directory, ROTATED_FILE), cutoffMillis);
+                recordCount.addAndGet(-rotatedDropped);
+                dropped += rotatedDropped;
+
+                // Reopening the active file counts its records again
+                recordCount.addAndGet(-countValid(channel));
+                closeActiveFile();
+                try {
+                    dropped += dropOlderThan(new File(directory, ACTIVE_FILE), cutoffMillis);
+                } finally {
+                    openActiveFile();
+                }
+            } catch (IOException e) {
+                Log.e(TAG, "Error compacting detection log", e);
+            }
+            return dropped;
+        }
+    }
+
+    /** Stops the writer after flushing queued records. */
+    public void close() {
+        running = false;
+        writerThread.interrupt();
+        try {
+            writerThread.join(2000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void writeLoop() {
+        synchronized (this) {
+            try {
+                recordCount.set(countRecords(new File(directory, ROTATED_FILE)));
+                openActiveFile();
+            } catch (IOException e) {
+                Log.e(TAG, "Error opening detection log", e);
+                running = false;
+                return;
+            } finally {
+                opened.countDown();
+            }
+        }
+
+        List<DetectionRecord> batch = new ArrayList<>(MAX_BATCH);
+        while (running || !queue.isEmpty()) {
+            try {
+                DetectionRecord first = running ? queue.take() : queue.poll();
+                if (first == null) break;
+                batch.add(first);
+
+                // Give other detections a moment to join the same commit
+                DetectionRecord next;
+                while (running && batch.size() < MAX_BATCH
+                        && (next = queue.poll(GROUP_COMMIT_DELAY_MS, TimeUnit.MILLISECONDS)) != null) {
+                    batch.add(next);
+                }
+            } catch (InterruptedException e) {
+                // close() was called; drain what is left and exit
+                queue.drainTo(batch, MAX_BATCH - batch.size());
+            }
+            queue.drainTo(batch, MAX_BATCH - batch.size());
+
+            if (!batch.isEmpty()) {
+                synchronized (this) {
+                    commit(batch);
+                }
+                batch.clear();
+            }
+        }
+
+        synchronized (this) {
+            closeActiveFile();
+        }
+    }
+
+    private void commit(List<DetectionRecord> batch) {
+        try {
+            ByteBuffer buffer = encode(batch);
+            if (channel == null) {
+                // A failed rotation or compaction could not reopen the file; try again
+                openActiveFile();
+            }
+            if (channel.size() + buffer.remaining() > MAX_FILE_BYTES) {
+                rotate();
+            }
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(false);
+            recordCount.addAndGet(batch.size());
+        } catch (IOException e) {
+            Log.e(TAG, "Error writing " + batch.size() + " detection records", e);
+            droppedCount.addAndGet(batch.size());
+        }
+    }
+
+    private void rotate() throws IOException {
+        File active = new File(directory, ACTIVE_FILE);
+        File rotated = new File(directory, ROTATED_FILE);
+        // Reopening the active file counts its records again
+        long activeRecords = countValid(channel);
+        recordCount.addAndGet(-activeRecords);
+        closeActiveFile();
+        try {
+            long droppedRecords = countRecords(rotated);
+            if (rotated.exists() && !rotated.delete()) {
+                throw new IOException("Cannot delete " + rotated);
+            }
+            recordCount.addAndGet(-droppedRecords);
+            if (!active.renameTo(rotated)) {
+                throw new IOException("Cannot rotate " + active);
+            }
+            recordCount.addAndGet(activeRecords);
+            Log.d(TAG, "Rotated detection log, " + droppedRecords + " old records discarded");
+        } finally {
+            // Whether or not the rename happened, the writer needs an open file
+            openActiveFile();
+        }
+    }
+
+    private void openActiveFile() throws IOException {
+        File active = new File(directory, ACTIVE_FILE);
+        file = new RandomAccessFile(active, "rw");
+        channel = file.getChannel();
+
+        if (channel.size() < HEADER_BYTES) {
+            writeHeader(channel);
+            channel.force(false);
+        } else {
+            // Recover from a crash mid-write by cutting the file after the last valid record
+            long validEnd = scan(channel, null);
+            if (validEnd < channel.size()) {
+                Log.w(TAG, "Truncating " + (channel.size() - validEnd) + " bytes of incomplete records");
+                channel.truncate(validEnd);
+                channel.force(false);
+            }
+        }
+        recordCount.addAndGet(countValid(channel));
+        channel.position(channel.size());
+    }
+
+    private static void writeHeader(FileChannel logChannel) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+        header.putInt(MAGIC).putInt(VERSION).flip();
+        logChannel.truncate(0);
+        logChannel.write(header, 0);
+    }
+
+    // Rewrites a log file that is not open for writing, keeping only the records
+    // from the cutoff on; the new file replaces the old one in a single rename
+    private int dropOlderThan(File logFile, long cutoffMillis) throws IOException {
+        List<DetectionRecord> records = new ArrayList<>();
+        readFile(logFile, records);
+        List<DetectionRecord> kept = new ArrayList<>(records.size());
+        for (DetectionRecord record : records) {
+            if (record.getTimestamp() >= cutoffMillis) {
+                kept.add(record);
+            }
+        }
+        int dropped = records.size() - kept.size();
+        if (dropped == 0) return 0;
+
+        File compacted = new File(directory, logFile.getName() + ".tmp");
+        try (RandomAccessFile out = new RandomAccessFile(compacted, "rw")) {
+            FileChannel outChannel = out.getChannel();
+            writeHeader(outChannel);
+            if (!kept.isEmpty()) {
+                ByteBuffer buffer = encode(kept);
+                outChannel.position(HEADER_BYTES);
+                while (buffer.hasRemaining()) {
+                    outChannel.write(buffer);
+                }
+            }
+            outChannel.force(false);
+        }
+        if (!compacted.renameTo(logFile)) {
+            compacted.delete();
+            throw new IOException("Cannot replace " + logFile);
+        }
+        return dropped;
+    }
+
+    private void closeActiveFile() {
+        try {
+            if (channel != null) {
+                channel.force(false);
+            }
+            if (file != null) {
+                file.close();
+            }
+        } catch (IOException e) {
+            Log.e(TAG, "Error closing detection log", e);
+        }
+        channel = null;
+        file = null;
+    }
+
+    private long countRecords(File logFile) {
+        if (!logFile.exists()) return 0;
+        try (RandomAccessFile in = new RandomAccessFile(logFile, "r")) {
+            return countValid(in.getChannel());
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    private long countValid(FileChannel logChannel) throws IOException {
+        List<DetectionRecord> records = new ArrayList<>();
+        scan(logChannel, records);
+        return records.size();
+    }
+
+    private void readFile(File logFile, List<DetectionRecord> out) {
+        if (!logFile.exists()) return;
+        try (RandomAccessFile in = new RandomAccessFile(logFile, "r")) {
+            scan(in.getChannel(), out);
+        } catch (IOException e) {
+            Log.e(TAG, "Error reading " + logFile, e);
+        }
+    }
+
+    /**
+     * Walks the records of a log file, adding decoded records to out when it is
+     * non-null, and returns the offset just past the last valid record.
+     */
+    private static long scan(FileChannel logChannel, List<DetectionRecord> out) throws IOException {
+        long size = logChannel.size();
+        if (size < HEADER_BYTES) return 0;
+
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+        logChannel.read(header, 0);
+        header.flip();
+        if (header.getInt() != MAGIC || header.getInt() != VERSION) return 0;
+
+        long position = HEADER_BYTES;
+        ByteBuffer recordHeader = ByteBuffer.allocate(RECORD_HEADER_BYTES);
+        CRC32 crc = new CRC32();
+        while (position + RECORD_HEADER_BYTES <= size) {
+            recordHeader.clear();
+            logChannel.read(recordHeader, position);
+            recordHeader.flip();
+            int length = recordHeader.getInt();
+            int checksum = recordHeader.getInt();
+            if (length <= 0 || length > MAX_RECORD_BYTES || position + RECORD_HEADER_BYTES + length > size) {
+                break;
+            }
+
+            ByteBuffer payload = ByteBuffer.allocate(length);
+            logChannel.read(payload, position + RECORD_HEADER_BYTES);
+            crc.reset();
+            crc.update(payload.array(), 0, length);
+            if ((int) crc.getValue() != checksum) {
+                break;
+            }
+            if (out != null) {
+                payload.flip();
+                out.add(decode(payload));
+            }
+            position += RECORD_HEADER_BYTES + length;
+        }
+        return position;
+    }
+
+    private static ByteBuffer encode(List<DetectionRecord> batch) {
+        List<byte[]> payloads = new ArrayList<>(batch.size());
+        int total = 0;
+        for (DetectionRecord record : batch) {
+            byte[] payload = encodePayload(record);
+            payloads.add(payload);
+            total += RECORD_HEADER_BYTES + payload.length;
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate(total);
+        CRC32 crc = new CRC32();
+        for (byte[] payload : payloads) {
+            crc.reset();
+            crc.update(payload, 0, payload.length);
+            buffer.putInt(payload.length).putInt((int) crc.getValue()).put(payload);
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    private static byte[] encodePayload(DetectionRecord record) {
+        List<byte[]> factors = new ArrayList<>(record.getFactors().size());
+        int length = 8 + 1 + 8 + 2 + 1 + 1;
+        for (String factor : record.getFactors()) {
+            if (factors.size() == 255) break;
+            byte[] bytes = factor.getBytes(UTF_8);
+            if (bytes.length > 1024) continue;
+            factors.add(bytes);
+            length += 2 + bytes.length;
+        }
+
+        ByteBuffer payload = ByteBuffer.allocate(length);
+        payload.putLong(record.getTimestamp());
+        payload.put((byte) record.getPlatform().ordinal());
+        payload.putLong(record.getTextHash());
+        payload.putShort((short) record.getScore());
+        payload.put((byte) record.getRiskLevel().ordinal());
+        payload.put((byte) factors.size());
+        for (byte[] factor : factors) {
+            payload.putShort((short) factor.length).put(factor);
+        }
+        return payload.array();
+    }
+
+    private static DetectionRecord decode(ByteBuffer payload) {
+        long timestamp = payload.getLong();
+        Platform platform = enumAt(Platform.values(), payload.get(), Platform.UNKNOWN);
+        long textHash = payload.getLong();
+        int score = payload.getShort();
+        RiskLevel level = enumAt(RiskLevel.values(), payload.get(), RiskLevel.SAFE);
+        int factorCount = payload.get() & 0xFF;
+        List<String> factors = new ArrayList<>(factorCount);
+        for (int i = 0; i < factorCount; i++) {
+            byte[] bytes = new byte[payload.getShort() & 0xFFFF];
+            payload.get(bytes);
+            factors.add(new String(bytes, UTF_8));
+        }
+        return new DetectionRecord(timestamp, platform, textHash, score, level, factors);
+    }
+
+    private static <T> T enumAt(T[] values, int ordinal, T fallback) {
+        return ordinal >= 0 && ordinal < values.length ? values[ordinal] : fallback;
+    }
+}
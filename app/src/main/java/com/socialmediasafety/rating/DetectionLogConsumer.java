@@ -0,0 +1,52 @@
+package com.socialmediasafety.rating;
+
+import com.socialmediasafety.rating.analysis.RiskAnalysis;
+import com.socialmediasafety.rating.analysis.RiskLevel;
+
+/**
+ * Writes risky screens and scam posts to the {@link DetectionLog}.
+ *
+ * Content-change events re-deliver the same screen and posts many times, so
+ * recently logged text hashes are remembered and skipped.
+ */
+public class DetectionLogConsumer implements ScreenConsumer {
+
+    private static final int RECENT_HASHES = 64;
+
+    private final DetectionLog detectionLog;
+    private final RecentHashes recentHashes = new RecentHashes(RECENT_HASHES);
+
+    public DetectionLogConsumer(DetectionLog detectionLog) {
+        this.detectionLog = detectionLog;
+    }
+
+    @Override
+    public void onScreen(ScreenSnapshot snapshot) {
+        RiskAnalysis screenAnalysis = snapshot.getScreenAnalysis();
+        if (screenAnalysis != null) {
+            RiskLevel level = screenAnalysis.getRiskLevel();
+            if (level == RiskLevel.MEDIUM || level == RiskLevel.HIGH) {
+                log(screenAnalysis, snapshot.getPlatform(), snapshot.getText(), snapshot.getTimestamp());
+            }
+        }
+        for (ScreenSnapshot.Post post : snapshot.getPosts()) {
+            if (post.isScam()) {
+                log(post.getAnalysis(), snapshot.getPlatform(), post.getText(), snapshot.getTimestamp());
+            }
+        }
+    }
+
+    @Override
+    public void release() {
+        recentHashes.clear();
+    }
+
+    private void log(RiskAnalysis analysis, Platform platform, String text, long timestamp) {
+        long textHash = DetectionRecord.hashText(text);
+        if (!recentHashes.add(textHash)) return;
+
+        // Factor descriptions are only rendered for screens that actually get logged
+        detectionLog.append(new DetectionRecord(timestamp, platform, textHash, analysis.getRiskScore(),
+                analysis.getRiskLevel(), analysis.getRiskFactors()));
+    }
+}
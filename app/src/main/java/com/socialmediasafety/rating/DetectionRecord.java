@@ -0,0 +1,51 @@
+package com.socialmediasafety.rating;
+
+import com.socialmediasafety.rating.analysis.RiskAnalysis;
+import com.socialmediasafety.rating.analysis.RiskLevel;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * One entry of the persistent detection log. The post text itself is never
+ * stored, only a 64-bit hash of it so repeated detections can be grouped.
+ */
+public class DetectionRecord {
+
+    private final long timestamp;
+    private final Platform platform;
+    private final long textHash;
+    private final int score;
+    private final RiskLevel riskLevel;
+    private final List<String> factors;
+
+    public DetectionRecord(long timestamp, Platform platform, long textHash, int score,
+                           RiskLevel riskLevel, List<String> factors) {
+        this.timestamp = timestamp;
+        this.platform = platform;
+        this.textHash = textHash;
+        this.score = score;
+        this.riskLevel = riskLevel;
+        this.factors = factors != null ? factors : Collections.<String>emptyList();
+    }
+
+    public static DetectionRecord from(RiskAnalysis analysis, Platform platform, String text, long timestamp) {
+        return new DetectionRecord(timestamp, platform, hashText(text), analysis.getRiskScore(),
+                analysis.getRiskLevel(), analysis.getRiskFactors());
+    }
+
+    /** FNV-1a 64-bit hash of the text. */
+    public static long hashText(CharSequence text) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < text.length(); i++) {
+            hash = (hash ^ text.charAt(i)) * 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    public long getTimestamp() { return timestamp; }
+    public Platform getPlatform() { return platform; }
+    public long getTextHash() { return textHash; }
+    public int getScore() { return score; }
+    public RiskLevel getRiskLevel() { return riskLevel; }
+    public List<String> getFactors() { return factors; }
+}
@@ -0,0 +1,258 @@
+package com.socialmediasafety.rating;
+
+import android.graphics.Rect;
+import android.os.Build;
+import android.view.accessibility.AccessibilityNodeInfo;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A copy of an accessibility node tree in flat primitive arrays.
+ *
+ * Every getter on AccessibilityNodeInfo may be a call into the app being
+ * inspected, so the tree is read exactly once: nodes are visited in preorder,
+ * their text, bounds and view ID are copied into the arrays, and each node is
+ * recycled as soon as its children have been fetched. Texts share a single
+ * char arena and view IDs are interned into a small table, so later stages
+ * read everything without IPC or per-node objects.
+ *
+ * Node i's subtree is the index range [i, subtreeEnd(i)). Each node also
+ * keeps its AccessibilityNodeInfo hash code, which is derived from the source
+ * view and window, so a later event's source node can be located in the tree
+ * and its subtree replaced with {@link #splice}.
+ */
+public class FlatTree {
+
+    /** Upper bound on captured nodes; deeper content is rarely visible anyway. */
+    static final int MAX_NODES = 4000;
+
+    private static final int INITIAL_NODES = 256;
+    private static final int INITIAL_ARENA = 4096;
+
+    private int size;
+    private int[] parent = new int[INITIAL_NODES];
+    private int[] subtreeEnd = new int[INITIAL_NODES];
+    private int[] bounds = new int[INITIAL_NODES * 4];
+    private int[] textStart = new int[INITIAL_NODES];
+    private int[] textLength = new int[INITIAL_NODES];
+    private int[] descriptionStart = new int[INITIAL_NODES];
+    private int[] descriptionLength = new int[INITIAL_NODES];
+    private int[] viewId = new int[INITIAL_NODES];
+    private int[] nodeKey = new int[INITIAL_NODES];
+
+    private char[] arena = new char[INITIAL_ARENA];
+    private int arenaLength;
+
+    private final List<String> viewIds = new ArrayList<>();
+    private final Map<String, Integer> viewIdIndex = new HashMap<>();
+
+    /**
+     * Copies the tree under root. The root node itself is left for the caller
+     * to recycle; every node fetched during the walk is recycled here.
+     */
+    public static FlatTree capture(AccessibilityNodeInfo root) {
+        FlatTree tree = new FlatTree();
+        tree.walk(root);
+        return tree;
+    }
+
+    private void walk(AccessibilityNodeInfo root) {
+        // Explicit stack so deep trees cannot overflow; children are pushed in
+        // reverse so they pop, and are numbered, in preorder
+        List<AccessibilityNodeInfo> stack = new ArrayList<>();
+        int[] stackParent = new int[64];
+        stack.add(root);
+        stackParent[0] = -1;
+
+        Rect rect = new Rect();
+        while (!stack.isEmpty()) {
+            int top = stack.size() - 1;
+            AccessibilityNodeInfo node = stack.remove(top);
+            int parentIndex = stackParent[top];
+
+            if (size < MAX_NODES) {
+                int index = add(node, parentIndex, rect);
+                int childCount = node.getChildCount();
+                for (int i = childCount - 1; i >= 0; i--) {
+                    AccessibilityNodeInfo child = getChild(node, i);
+                    if (child == null) continue;
+                    if (stack.size() == stackParent.length) {
+                        stackParent = Arrays.copyOf(stackParent, stackParent.length * 2);
+                    }
+                    stackParent[stack.size()] = index;
+                    stack.add(child);
+                }
+            }
+            if (node != root) {
+                node.recycle();
+            }
+        }
+        computeSubtreeEnds();
+    }
+
+    private static AccessibilityNodeInfo getChild(AccessibilityNodeInfo node, int i) {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.TIRAMISU) {
+            // Ask for the child's descendants in the same round trip
+            return node.getChild(i, AccessibilityNodeInfo.FLAG_PREFETCH_DESCENDANTS_DEPTH_FIRST);
+        }
+        return node.getChild(i);
+    }
+
+    private int add(AccessibilityNodeInfo node, int parentIndex, Rect rect) {
+        ensureNodeCapacity(size + 1);
+        int index = size++;
+        parent[index] = parentIndex;
+
+        node.getBoundsInScreen(rect);
+        bounds[index * 4] = rect.left;
+        bounds[index * 4 + 1] = rect.top;
+        bounds[index * 4 + 2] = rect.right;
+        bounds[index * 4 + 3] = rect.bottom;
+
+        CharSequence text = node.getText();
+        textStart[index] = arenaLength;
+        textLength[index] = appendToArena(text);
+        CharSequence description = node.getContentDescription();
+        descriptionStart[index] = arenaLength;
+        descriptionLength[index] = appendToArena(description);
+
+        viewId[index] = internViewId(node.getViewIdResourceName());
+        nodeKey[index] = node.hashCode();
+        return index;
+    }
+
+    /** Copies node i of another tree, re-parenting it under parentIndex. */
+    private void copyNode(FlatTree from, int i, int parentIndex) {
+        ensureNodeCapacity(size + 1);
+        int index = size++;
+        parent[index] = parentIndex;
+        System.arraycopy(from.bounds, i * 4, bounds, index * 4, 4);
+        textStart[index] = arenaLength;
+        textLength[index] = appendToArena(from.arena, from.textStart[i], from.textLength[i]);
+        descriptionStart[index] = arenaLength;
+        descriptionLength[index] = appendToArena(from.arena, from.descriptionStart[i], from.descriptionLength[i]);
+        viewId[index] = from.viewId[i] < 0 ? -1 : internViewId(from.viewIds.get(from.viewId[i]));
+        nodeKey[index] = from.nodeKey[i];
+    }
+
+    /**
+     * Returns a new tree in which the subtree at index is replaced by the given
+     * tree, for example a fresh capture of the node an event reported as
+     * changed. Neither input is modified.
+     */
+    public FlatTree splice(int index, FlatTree subtree) {
+        int end = subtreeEnd[index];
+        int delta = subtree.size - (end - index);
+        FlatTree result = new FlatTree();
+        result.ensureNodeCapacity(size + Math.max(delta, 0));
+
+        for (int i = 0; i < index; i++) {
+            result.copyNode(this, i, parent[i]);
+        }
+        for (int i = 0; i < subtree.size; i++) {
+            int p = subtree.parent[i];
+            result.copyNode(subtree, i, p < 0 ? parent[index] : p + index);
+        }
+        for (int i = end; i < size; i++) {
+            // Parents after the replaced range shift with it; parents before it stay put
+            int p = parent[i];
+            result.copyNode(this, i, p >= end ? p + delta : p);
+        }
+        result.computeSubtreeEnds();
+        return result;
+    }
+
+    /** Index of the node with the given AccessibilityNodeInfo hash code, or -1. */
+    public int indexOfNode(int key) {
+        for (int i = 0; i < size; i++) {
+            if (nodeKey[i] == key) return i;
+        }
+        return -1;
+    }
+
+    private int appendToArena(char[] source, int start, int length) {
+        if (arenaLength + length > arena.length) {
+            arena = Arrays.copyOf(arena, Math.max(arena.length * 2, arenaLength + length));
+        }
+        System.arraycopy(source, start, arena, arenaLength, length);
+        arenaLength += length;
+        return length;
+    }
+
+    private int appendToArena(CharSequence text) {
+        if (text == null) return 0;
+        int length = text.length();
+        if (arenaLength + length > arena.length) {
+            arena = Arrays.copyOf(arena, Math.max(arena.length * 2, arenaLength + length));
+        }
+        for (int i = 0; i < length; i++) {
+            arena[arenaLength + i] = text.charAt(i);
+        }
+        arenaLength += length;
+        return length;
+    }
+
+    private int internViewId(String id) {
+        if (id == null) return -1;
+        Integer existing = viewIdIndex.get(id);
+        if (existing != null) return existing;
+        int index = viewIds.size();
+        viewIds.add(id);
+        viewIdIndex.put(id, index);
+        return index;
+    }
+
+    private void computeSubtreeEnds() {
+        for (int i = 0; i < size; i++) {
+            subtreeEnd[i] = i + 1;
+        }
+        // Children always follow their parent in preorder, so one backward pass suffices
+        for (int i = size - 1; i > 0; i--) {
+            int p = parent[i];
+            if (subtreeEnd[i] > subtreeEnd[p]) {
+                subtreeEnd[p] = subtreeEnd[i];
+            }
+        }
+    }
+
+    private void ensureNodeCapacity(int capacity) {
+        if (capacity <= parent.length) return;
+        int newLength = Math.max(parent.length * 2, capacity);
+        parent = Arrays.copyOf(parent, newLength);
+        subtreeEnd = Arrays.copyOf(subtreeEnd, newLength);
+        bounds = Arrays.copyOf(bounds, newLength * 4);
+        textStart = Arrays.copyOf(textStart, newLength);
+        textLength = Arrays.copyOf(textLength, newLength);
+        descriptionStart = Arrays.copyOf(descriptionStart, newLength);
+        descriptionLength = Arrays.copyOf(descriptionLength, newLength);
+        viewId = Arrays.copyOf(viewId, newLength);
+        nodeKey = Arrays.copyOf(nodeKey, newLength);
+    }
+
+    public int size() { return size; }
+    public int getParent(int index) { return parent[index]; }
+    public int getSubtreeEnd(int index) { return subtreeEnd[index]; }
+    public int getTextLength(int index) { return textLength[index]; }
+    public int getDescriptionLength(int index) { return descriptionLength[index]; }
+
+    /** Interned view ID of the node, or -1 if it has none. */
+    public int getViewId(int index) { return viewId[index]; }
+
+    public int getViewIdCount() { return viewIds.size(); }
+    public String getViewIdName(int id) { return viewIds.get(id); }
+
+    public void getBounds(int index, Rect out) {
+        out.set(bounds[index * 4], bounds[index * 4 + 1], bounds[index * 4 + 2], bounds[index * 4 + 3]);
+    }
+
+    public void appendText(int index, StringBuilder out) {
+        out.append(arena, textStart[index], textLength[index]);
+    }
+
+    public void appendDescription(int index, StringBuilder out) {
+        out.append(arena, descriptionStart[index], descriptionLength[index]);
+    }
+}
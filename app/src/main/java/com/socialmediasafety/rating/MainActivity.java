@@ -23,6 +23,12 @@ public class MainActivity extends Activity {
     private Button enableAccessibilityButton;
     private Button enableOverlayButton;
     private Button startServiceButton;
+    private SafetyStats.Snapshot latestStats;
+
+    private final SafetyStats.Listener statsListener = snapshot -> {
+        latestStats = snapshot;
+        updateStatus();
+    };
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -37,6 +43,13 @@ public class MainActivity extends Activity {
     protected void onResume() {
         super.onResume();
         updateStatus();
+        SafetyStats.getInstance().addListener(statsListener);
+    }
+
+    @Override
+    protected void onPause() {
+        super.onPause();
+        SafetyStats.getInstance().removeListener(statsListener);
     }
 
     private void initViews() {
@@ -79,12 +92,27 @@ public class MainActivity extends Activity {
             startServiceButton.setText("Setup Required");
         }
 
+        if (latestStats != null && latestStats.getPostCount() > 0) {
+            appendStats(status, latestStats);
+        }
+
         statusText.setText(status.toString());
 
         enableAccessibilityButton.setEnabled(!hasAccessibility);
         enableOverlayButton.setEnabled(!hasOverlay);
     }
 
+    private void appendStats(StringBuilder status, SafetyStats.Snapshot snapshot) {
+        status.append("\n\nPosts analyzed: ").append(snapshot.getPostCount());
+        status.append("\nThreats detected: ").append(snapshot.getThreatCount());
+        for (Platform platform : Platform.values()) {
+            long count = snapshot.getPlatformCount(platform);
+            if (count > 0) {
+                status.append("\n  ").append(platform).append(": ").append(count);
+            }
+        }
+    }
+
     private void openAccessibilitySettings() {
         Intent intent = new Intent(Settings.ACTION_ACCESSIBILITY_SETTINGS);
         startActivityForResult(intent, REQUEST_ACCESSIBILITY_PERMISSION);
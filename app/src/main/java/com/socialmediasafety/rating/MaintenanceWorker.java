@@ -0,0 +1,68 @@
+package com.socialmediasafety.rating;
+
+import android.content.Context;
+import android.os.SystemClock;
+import android.util.Log;
+import androidx.work.Constraints;
+import androidx.work.ExistingPeriodicWorkPolicy;
+import androidx.work.PeriodicWorkRequest;
+import androidx.work.WorkManager;
+import androidx.work.Worker;
+import androidx.work.WorkerParameters;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Upkeep that the accessibility thread should never pay for: compacting the
+ * detection log, compiling the rule pack for the device language ahead of
+ * its first post, and pruning expired cache entries.
+ *
+ * Runs once a day through WorkManager, only while the device is charging and
+ * idle. The caches live in {@link MonitoringService}, so they are only
+ * touched when the service is running in this process.
+ */
+public class MaintenanceWorker extends Worker {
+
+    private static final String TAG = "MaintenanceWorker";
+    private static final String WORK_NAME = "maintenance";
+    private static final long INTERVAL_HOURS = 24;
+    // Detections older than this are dropped from the log
+    private static final long LOG_RETENTION_MS = 30L * 24 * 60 * 60 * 1000;
+
+    public MaintenanceWorker(Context context, WorkerParameters params) {
+        super(context, params);
+    }
+
+    /** Schedules the daily run; a run already scheduled is kept as is. */
+    public static void schedule(Context context) {
+        Constraints constraints = new Constraints.Builder()
+                .setRequiresCharging(true)
+                .setRequiresDeviceIdle(true)
+                .build();
+        PeriodicWorkRequest request = new PeriodicWorkRequest.Builder(
+                MaintenanceWorker.class, INTERVAL_HOURS, TimeUnit.HOURS)
+                .setConstraints(constraints)
+                .build();
+        WorkManager.getInstance(context).enqueueUniquePeriodicWork(
+                WORK_NAME, ExistingPeriodicWorkPolicy.KEEP, request);
+    }
+
+    @Override
+    public Result doWork() {
+        long start = SystemClock.elapsedRealtime();
+        try {
+            int dropped = DetectionLog.getInstance(getApplicationContext())
+                    .compact(System.currentTimeMillis() - LOG_RETENTION_MS);
+            Log.d(TAG, "Compacted detection log, " + dropped + " old records dropped");
+
+            MonitoringService service = MonitoringService.getRunningInstance();
+            if (service != null && !isStopped()) {
+                service.runMaintenance();
+            }
+        } catch (RuntimeException e) {
+            Log.e(TAG, "Error during maintenance", e);
+            return Result.retry();
+        }
+        Log.d(TAG, "Maintenance done in " + (SystemClock.elapsedRealtime() - start) + " ms");
+        return Result.success();
+    }
+}
@@ -0,0 +1,164 @@
+package com.socialmediasafety.rating;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Counters, gauges and latency histograms rendered in the Prometheus text
+ * format by {@link MetricsServer}.
+ *
+ * Metrics are registered once, in the order they are rendered; variants of
+ * the same metric with different labels must be registered one after the
+ * other. Gauges read their value when rendered, so they must only touch state
+ * that is safe to read from another thread. Recording is lock-free.
+ */
+public class Metrics {
+
+    /** Reads a value when the metrics are rendered. */
+    public interface Gauge {
+        double get();
+    }
+
+    /** A monotonically increasing count. */
+    public static final class Counter {
+        private final AtomicLong value = new AtomicLong();
+
+        public void increment() { value.incrementAndGet(); }
+        public void add(long amount) { value.addAndGet(amount); }
+        public long get() { return value.get(); }
+    }
+
+    /** Latencies counted into fixed buckets, in seconds. */
+    public static final class Histogram {
+        private final double[] bounds;
+        private final AtomicLongArray buckets;
+        private final AtomicLong count = new AtomicLong();
+        private final AtomicLong sumNanos = new AtomicLong();
+
+        Histogram(double[] bounds) {
+            this.bounds = bounds;
+            this.buckets = new AtomicLongArray(bounds.length);
+        }
+
+        public void observeNanos(long nanos) {
+            double seconds = nanos / 1e9;
+            for (int i = 0; i < bounds.length; i++) {
+                if (seconds <= bounds[i]) {
+                    buckets.incrementAndGet(i);
+                    break;
+                }
+            }
+            count.incrementAndGet();
+            sumNanos.addAndGet(nanos);
+        }
+    }
+
+    /** Bucket bounds suited to per-event work on the main thread, 0.5 ms to 1 s. */
+    public static final double[] LATENCY_BUCKETS = {
+            0.0005, 0.001, 0.0025, 0.005, 0.01, 0.025, 0.05, 0.1, 0.25, 0.5, 1
+    };
+
+    private static final class Entry {
+        final String name;
+        final String labels;
+        final String help;
+        final String type;
+        final Object metric;
+
+        Entry(String name, String labels, String help, String type, Object metric) {
+            this.name = name;
+            this.labels = labels;
+            this.help = help;
+            this.type = type;
+            this.metric = metric;
+        }
+    }
+
+    private final List<Entry> entries = new ArrayList<>();
+
+    public synchronized Counter counter(String name, String labels, String help) {
+        Counter counter = new Counter();
+        entries.add(new Entry(name, labels, help, "counter", counter));
+        return counter;
+    }
+
+    /** Registers a counter kept elsewhere, read when rendered. */
+    public synchronized void counter(String name, String labels, String help, Gauge source) {
+        entries.add(new Entry(name, labels, help, "counter", source));
+    }
+
+    public synchronized void gauge(String name, String labels, String help, Gauge source) {
+        entries.add(new Entry(name, labels, help, "gauge", source));
+    }
+
+    public synchronized Histogram histogram(String name, String labels, String help, double[] bounds) {
+        Histogram histogram = new Histogram(bounds);
+        entries.add(new Entry(name, labels, help, "histogram", histogram));
+        return histogram;
+    }
+
+    /** Renders every metric in the Prometheus text exposition format. */
+    public synchronized String render() {
+        StringBuilder out = new StringBuilder();
+        String previousName = null;
+        for (Entry entry : entries) {
+            if (!entry.name.equals(previousName)) {
+                out.append("# HELP ").append(entry.name).append(' ').append(entry.help).append('\n');
+                out.append("# TYPE ").append(entry.name).append(' ').append(entry.type).append('\n');
+                previousName = entry.name;
+            }
+            if (entry.metric instanceof Counter) {
+                sample(out, entry.name, entry.labels, null, ((Counter) entry.metric).get());
+            } else if (entry.metric instanceof Gauge) {
+                sample(out, entry.name, entry.labels, null, safeGet((Gauge) entry.metric));
+            } else {
+                renderHistogram(out, entry, (Histogram) entry.metric);
+            }
+        }
+        return out.toString();
+    }
+
+    private static void renderHistogram(StringBuilder out, Entry entry, Histogram histogram) {
+        long cumulative = 0;
+        for (int i = 0; i < histogram.bounds.length; i++) {
+            cumulative += histogram.buckets.get(i);
+            sample(out, entry.name + "_bucket", entry.labels, "le=\"" + histogram.bounds[i] + "\"", cumulative);
+        }
+        long count = histogram.count.get();
+        sample(out, entry.name + "_bucket", entry.labels, "le=\"+Inf\"", count);
+        sample(out, entry.name + "_sum", entry.labels, null, histogram.sumNanos.get() / 1e9);
+        sample(out, entry.name + "_count", entry.labels, null, count);
+    }
+
+    private static void sample(StringBuilder out, String name, String labels, String extraLabel, double value) {
+        out.append(name);
+        boolean hasLabels = labels != null && !labels.isEmpty();
+        if (hasLabels || extraLabel != null) {
+            out.append('{');
+            if (hasLabels) out.append(labels);
+            if (extraLabel != null) {
+                if (hasLabels) out.append(',');
+                out.append(extraLabel);
+            }
+            out.append('}');
+        }
+        out.append(' ');
+        if (value == Math.rint(value) && !Double.isInfinite(value)) {
+            out.append((long) value);
+        } else {
+            out.append(value);
+        }
+        out.append('\n');
+    }
+
+    // A gauge that fails must not break the whole scrape
+    private static double safeGet(Gauge gauge) {
+        try {
+            return gauge.get();
+        } catch (RuntimeException e) {
+            return Double.NaN;
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package com.socialmediasafety.rating;
+
+import android.util.Log;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+
+/**
+ * Serves {@link Metrics} at /metrics, and the recent hot-path events of a
+ * {@link TraceBuffer} at /trace, on a loopback port, for scraping a test
+ * device through "adb forward tcp:9464 tcp:9464". Only bound to localhost and
+ * only started in debug builds. Requests are answered one at a time on the
+ * server's own thread.
+ */
+public class MetricsServer {
+
+    private static final String TAG = "MetricsServer";
+
+    /** Default port, the one Prometheus exporters conventionally use. */
+    public static final int DEFAULT_PORT = 9464;
+
+    // A slow client must not hold the server thread for long
+    private static final int CLIENT_TIMEOUT_MS = 2000;
+
+    private final Metrics metrics;
+    private final TraceBuffer trace;
+    private final int port;
+    private ServerSocket serverSocket;
+
+    public MetricsServer(Metrics metrics, TraceBuffer trace, int port) {
+        this.metrics = metrics;
+        this.trace = trace;
+        this.port = port;
+    }
+
+    /** Binds the port and starts answering requests. */
+    public synchronized void start() throws IOException {
+        if (serverSocket != null) return;
+        final ServerSocket socket = new ServerSocket(port, 4, InetAddress.getLoopbackAddress());
+        serverSocket = socket;
+        new Thread(() -> serve(socket), "metrics-server").start();
+        Log.d(TAG, "Serving metrics on localhost:" + port);
+    }
+
+    public synchronized void stop() {
+        if (serverSocket == null) return;
+        try {
+            serverSocket.close();
+        } catch (IOException e) {
+            // Closing is best effort
+        }
+        serverSocket = null;
+    }
+
+    private void serve(ServerSocket socket) {
+        while (!socket.isClosed()) {
+            try (Socket client = socket.accept()) {
+                client.setSoTimeout(CLIENT_TIMEOUT_MS);
+                respond(client);
+            } catch (IOException e) {
+                if (!socket.isClosed()) {
+                    Log.e(TAG, "Error answering metrics request", e);
+                }
+            }
+        }
+    }
+
+    private void respond(Socket client) throws IOException {
+        BufferedReader in = new BufferedReader(new InputStreamReader(client.getInputStream(), "US-ASCII"));
+        String request = in.readLine();
+        if (request == null) return;
+
+        String[] parts = request.split(" ");
+        String status;
+        String body;
+        if (parts.length >= 2 && parts[0].equals("GET") && parts[1].equals("/metrics")) {
+            status = "200 OK";
+            body = metrics.render();
+        } else if (parts.length >= 2 && parts[0].equals("GET") && parts[1].equals("/trace")) {
+            status = "200 OK";
+            body = trace.dump(Integer.MAX_VALUE);
+        } else {
+            status = "404 Not Found";
+            body = "Not found\n";
+        }
+
+        byte[] content = body.getBytes("UTF-8");
+        OutputStream out = client.getOutputStream();
+        out.write(("HTTP/1.1 " + status + "\r\n"
+                + "Content-Type: text/plain; version=0.0.4; charset=utf-8\r\n"
+                + "Content-Length: " + content.length + "\r\n"
+                + "Connection: close\r\n\r\n").getBytes("US-ASCII"));
+        out.write(content);
+        out.flush();
+    }
+}
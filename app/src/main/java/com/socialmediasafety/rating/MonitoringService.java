@@ -6,27 +6,166 @@ import android.app.Notification;
 import android.app.NotificationChannel;
 import android.app.NotificationManager;
 import android.app.PendingIntent;
+import android.content.Context;
 import android.content.Intent;
+import android.content.SharedPreferences;
 import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.os.Trace;
 import android.util.Log;
+import android.view.WindowManager;
 import android.view.accessibility.AccessibilityEvent;
-import android.view.accessibility.AccessibilityNodeInfo;
 import androidx.core.app.NotificationCompat;
+import androidx.preference.PreferenceManager;
+import com.socialmediasafety.rating.analysis.DomainReputationClient;
+import com.socialmediasafety.rating.analysis.HashedNgramClassifier;
+import com.socialmediasafety.rating.analysis.LanguageIdentifier;
 import com.socialmediasafety.rating.analysis.RiskAnalysis;
 import com.socialmediasafety.rating.analysis.RiskLevel;
+import com.socialmediasafety.rating.analysis.RulePackCache;
+import com.socialmediasafety.rating.analysis.ShortLinkExpander;
+import com.socialmediasafety.rating.analysis.TierStats;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
 
 
 public class MonitoringService extends AccessibilityService {
     private static final String TAG = "MonitoringService";
     private static final String CHANNEL_ID = "safety_monitoring_channel";
     private static final int NOTIFICATION_ID = 1001;
+    private static final String CLASSIFIER_MODEL_ASSET = "models/scam_classifier.bin";
+    private static final String RULE_PACK_ASSET_DIR = "rules/";
+    private static final String PLATFORM_ASSET_DIR = "platforms";
+    // Rule packs kept compiled at once; a feed rarely mixes more languages
+    private static final int RULE_PACK_CACHE_SIZE = 3;
+    private static final String PREF_SENSITIVITY = "sensitivity";
+    private static final String PREF_EXPAND_SHORT_LINKS = "expand_short_links";
+    private static final String PREF_REMOTE_ANALYSIS = "remote_analysis";
+    // Short link expansion: lookups at once, per-host spacing, cache and timeouts
+    private static final int LINK_EXPANSIONS_AT_ONCE = 2;
+    private static final long LINK_HOST_INTERVAL_MS = 1000;
+    private static final int LINK_CACHE_SIZE = 256;
+    private static final long LINK_CACHE_TTL_MS = 60 * 60 * 1000;
+    private static final int LINK_HOP_TIMEOUT_MS = 3000;
+    private static final long LINK_DEADLINE_MS = 8000;
+    // Domain reputation batching, caching and circuit breaker cool-down
+    private static final long REPUTATION_BATCH_DELAY_MS = 500;
+    private static final int REPUTATION_CACHE_SIZE = 1024;
+    private static final long REPUTATION_LISTED_TTL_MS = 6 * 60 * 60 * 1000;
+    private static final long REPUTATION_CLEAN_TTL_MS = 30 * 60 * 1000;
+    private static final long REPUTATION_COOLDOWN_MS = 5 * 60 * 1000;
+    private static final int REPUTATION_TIMEOUT_MS = 3000;
+    private static final int TIER_REPORT_INTERVAL = 100;
+    private static final int TRACE_CAPACITY = 1024;
+    // Events slower than two frames dump the recent trace, at most once a minute
+    private static final long SLOW_EVENT_NANOS = 32 * 1000000L;
+    private static final long SLOW_DUMP_INTERVAL_MS = 60 * 1000;
+    private static final int SLOW_DUMP_EVENTS = 64;
+
+    // The connected service, for maintenance jobs running in the same process
+    private static volatile MonitoringService runningInstance;
 
     private OverlayManager overlayManager;
     private ContentAnalyzer contentAnalyzer;
+    private PostAnalyzer postAnalyzer;
+    private ConversationAnalyzer conversationAnalyzer;
+    private WindowModel windowModel;
+    private SharedPreferences preferences;
+    private SafetyStats stats;
+    private RulePackCache rulePacks;
+    // Monitored apps; a profile is loaded when its app is first seen
+    private PlatformRegistry platforms;
+    // Read by the metrics server thread
+    private volatile ShortLinkExpander linkExpander;
+    private volatile DomainReputationClient domainReputation;
+    private PostOverlayConsumer postOverlayConsumer;
+    // Every overlay change goes through here and reaches the screen once per frame
+    private OverlayUpdateQueue overlayUpdates;
+    private MetricsServer metricsServer;
+    // Set while analysis runs in the engine process; read by the metrics server thread
+    private volatile AnalysisEngineClient engineClient;
+    // Text of the last analyzed screen, scored again when one of its links gets a verdict
+    private ScreenSnapshot lastSnapshot;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    // Always recorded; only served by the metrics endpoint in debug builds
+    private final Metrics metrics = new Metrics();
+    private final Metrics.Counter eventsReceived =
+            metrics.counter("meso_events_total", "", "Accessibility events received");
+    private final Metrics.Counter droppedUnknownPlatform = metrics.counter("meso_events_dropped_total",
+            "reason=\"unknown_platform\"", "Events that produced no analysis");
+    private final Metrics.Counter droppedNoWindow = metrics.counter("meso_events_dropped_total",
+            "reason=\"no_window\"", "Events that produced no analysis");
+    private final Metrics.Counter droppedNoText = metrics.counter("meso_events_dropped_total",
+            "reason=\"no_text\"", "Events that produced no analysis");
+    private final Metrics.Counter droppedUnchanged = metrics.counter("meso_events_dropped_total",
+            "reason=\"unchanged\"", "Events that produced no analysis");
+    private final Metrics.Counter droppedError = metrics.counter("meso_events_dropped_total",
+            "reason=\"error\"", "Events that produced no analysis");
+    private final Metrics.Histogram windowLatency = metrics.histogram("meso_stage_seconds",
+            "stage=\"window\"", "Time per event spent in each stage", Metrics.LATENCY_BUCKETS);
+    private final Metrics.Histogram snapshotLatency = metrics.histogram("meso_stage_seconds",
+            "stage=\"snapshot\"", "Time per event spent in each stage", Metrics.LATENCY_BUCKETS);
+    private final Metrics.Histogram analysisLatency = metrics.histogram("meso_stage_seconds",
+            "stage=\"analysis\"", "Time per event spent in each stage", Metrics.LATENCY_BUCKETS);
+    private final Metrics.Histogram dispatchLatency = metrics.histogram("meso_stage_seconds",
+            "stage=\"dispatch\"", "Time per event spent in each stage", Metrics.LATENCY_BUCKETS);
+    // Hot-path events as primitives; read after a slow event or from the metrics endpoint
+    private final TraceBuffer trace = new TraceBuffer(TRACE_CAPACITY);
+    private long lastSlowDump;
+    private final List<ScreenConsumer> consumers = new ArrayList<>();
+    // Every screen is scored into the same result; consumers only read it during dispatch
+    private final RiskAnalysis screenAnalysis = new RiskAnalysis();
+    private final SafetyStats.Listener statsListener = this::updateNotification;
+    // Cold start timing: connect time, and whether the first screen was logged yet
+    private long connectedAt;
+    private boolean firstScreenAnalyzed;
+
+    private final SharedPreferences.OnSharedPreferenceChangeListener preferenceListener =
+            (prefs, key) -> {
+                if (PREF_SENSITIVITY.equals(key) && contentAnalyzer != null) {
+                    contentAnalyzer.setSensitivity(prefs.getInt(PREF_SENSITIVITY, 50));
+                    configureEngine();
+                } else if (PREF_EXPAND_SHORT_LINKS.equals(key)) {
+                    updateLookups();
+                    configureEngine();
+                } else if (PREF_REMOTE_ANALYSIS.equals(key)) {
+                    setRemoteAnalysis(prefs.getBoolean(PREF_REMOTE_ANALYSIS, false));
+                }
+            };
+    private final ShortLinkExpander.Listener linkListener =
+            (shortUrl, destination) -> mainHandler.post(
+                    () -> rescoreScreen(shortUrl, shortUrl + " leads to " + destination));
+    private final DomainReputationClient.Listener reputationListener =
+            domain -> mainHandler.post(() -> rescoreScreen(domain, domain + " is listed"));
+    private final AnalysisEngineClient.Listener engineListener = new AnalysisEngineClient.Listener() {
+        @Override
+        public void onAnalyzed(ScreenSnapshot snapshot, String rescoreReason, long roundTripNanos) {
+            onEngineResult(snapshot, rescoreReason, roundTripNanos);
+        }
+
+        @Override
+        public void onFailed(ScreenSnapshot snapshot, String rescoreReason) {
+            onEngineFailure(snapshot, rescoreReason);
+        }
+
+        @Override
+        public void onVerdictChanged(String link, String reason) {
+            rescoreScreen(link, reason);
+        }
+    };
 
     @Override
     public void onServiceConnected() {
         super.onServiceConnected();
+        connectedAt = SystemClock.elapsedRealtime();
         Log.d(TAG, "Accessibility service connected");
 
         // Configure accessibility service
@@ -35,26 +174,67 @@ public class MonitoringService extends AccessibilityService {
                 AccessibilityEvent.TYPE_WINDOW_STATE_CHANGED;
         info.feedbackType = AccessibilityServiceInfo.FEEDBACK_GENERIC;
         info.flags = AccessibilityServiceInfo.FLAG_REPORT_VIEW_IDS;
-        info.packageNames = new String[]{
-                "com.twitter.android",      // Twitter/X
-                "com.reddit.frontpage",     // Reddit
-                "com.facebook.katana",      // Facebook
-                "com.discord",              // Discord
-                "com.instagram.android"     // Instagram
-        };
+        // Only apps with a profile under assets/platforms are monitored
+        platforms = loadPlatformRegistry(this);
+        info.packageNames = platforms.getPackageNames();
         setServiceInfo(info);
 
         // Initialize components
         try {
-            overlayManager = new OverlayManager(this);
+            overlayUpdates = new OverlayUpdateQueue((WindowManager) getSystemService(WINDOW_SERVICE));
+            overlayManager = new OverlayManager(this, overlayUpdates);
             contentAnalyzer = new ContentAnalyzer();
+            rulePacks = createRulePackCache(this);
+            contentAnalyzer.setRulePacks(rulePacks);
+            postAnalyzer = new PostAnalyzer(contentAnalyzer);
+            conversationAnalyzer = new ConversationAnalyzer(contentAnalyzer);
+            windowModel = new WindowModel(this);
+            stats = SafetyStats.getInstance();
+            stats.restore(this);
+
+            // Every feature consumes the same snapshot; none walks the tree itself
+            consumers.add(new ScreenBadgeConsumer(overlayManager));
+            postOverlayConsumer = new PostOverlayConsumer(this, overlayUpdates);
+            consumers.add(postOverlayConsumer);
+            consumers.add(new DetectionLogConsumer(DetectionLog.getInstance(this)));
+            consumers.add(new StatsConsumer(stats));
+
+            // Sensitivity decides how many analysis tiers run
+            preferences = PreferenceManager.getDefaultSharedPreferences(this);
+            contentAnalyzer.setSensitivity(preferences.getInt(PREF_SENSITIVITY, 50));
+            // Heavy scans can move to their own process so they never hold up events and overlays
+            setRemoteAnalysis(preferences.getBoolean(PREF_REMOTE_ANALYSIS, false));
+            updateLookups();
+            preferences.registerOnSharedPreferenceChangeListener(preferenceListener);
             Log.d(TAG, "Components initialized successfully");
+
+            // Scrape with "adb forward tcp:9464 tcp:9464" on test devices
+            if (BuildConfig.DEBUG) {
+                registerComponentMetrics();
+                metricsServer = new MetricsServer(metrics, trace, MetricsServer.DEFAULT_PORT);
+                try {
+                    metricsServer.start();
+                } catch (IOException e) {
+                    Log.e(TAG, "Could not start the metrics endpoint", e);
+                }
+            }
         } catch (Exception e) {
             Log.e(TAG, "Error initializing components", e);
         }
 
-        // Start foreground notification
+        // Load the classifier model and warm up the analyzers off the main thread;
+        // analysis runs without the classifier until it is ready
+        new Thread(this::warmUpAnalysis, "analysis-warmup").start();
+
+        // Start foreground notification; counts are filled in by the stats publisher
         startForegroundNotification();
+        if (stats != null) {
+            stats.addListener(statsListener);
+        }
+
+        // Log compaction and cache pruning wait until the device is charging and idle
+        MaintenanceWorker.schedule(this);
+        runningInstance = this;
 
         Log.d(TAG, "Monitoring service initialized and ready");
     }
@@ -66,59 +246,444 @@ public class MonitoringService extends AccessibilityService {
         String packageName = event.getPackageName() != null ?
                 event.getPackageName().toString() : "";
 
-        // Detect platform
-        Platform platform = detectPlatform(packageName);
-        if (platform == Platform.UNKNOWN) return;
+        eventsReceived.increment();
 
-        Log.d(TAG, "Detected platform: " + platform + " in package: " + packageName);
+        // Look up the app's profile
+        PlatformProfile profile = platforms != null ? platforms.get(packageName) : null;
+        if (profile == null) {
+            droppedUnknownPlatform.increment();
+            return;
+        }
+        Platform platform = profile.getPlatform();
+
+        trace.record(TraceBuffer.EVENT_RECEIVED, platform.ordinal(), event.getEventType());
 
+        long eventStart = System.nanoTime();
+        Trace.beginSection("meso:event");
         try {
-            // Extract content from screen
-            AccessibilityNodeInfo rootNode = getRootInActiveWindow();
-            if (rootNode != null) {
-                String extractedText = extractTextFromNode(rootNode);
-                if (!extractedText.isEmpty()) {
-                    // Analyze content for risks
-                    RiskAnalysis analysis = contentAnalyzer.analyzeContent(extractedText, platform);
-
-                    // Show overlay with results (will check permissions internally)
-                    if (overlayManager != null) {
-                        overlayManager.showSafetyBadge(analysis, platform);
-                    }
-
-                    Log.d(TAG, "Analysis complete. Risk level: " + analysis.getRiskLevel());
-                } else {
-                    Log.d(TAG, "No text extracted from " + platform);
-                }
-                rootNode.recycle();
-            } else {
-                Log.d(TAG, "Root node is null for " + platform);
+            // Re-read only what the event says changed
+            long stageStart = eventStart;
+            FlatTree tree;
+            Trace.beginSection("meso:window");
+            try {
+                tree = windowModel.update(event);
+            } finally {
+                Trace.endSection();
+            }
+            stageStart = observe(windowLatency, stageStart);
+            if (tree == null) {
+                droppedNoWindow.increment();
+                trace.record(TraceBuffer.EVENT_NO_WINDOW, platform.ordinal());
+                return;
             }
+            // The screen is the one already analyzed and dispatched
+            if (!windowModel.hasChanged()) {
+                droppedUnchanged.increment();
+                trace.record(TraceBuffer.EVENT_UNCHANGED, platform.ordinal());
+                return;
+            }
+            // Per-post overlays cover apps whose profile names their post containers
+            ScreenSnapshot snapshot;
+            Trace.beginSection("meso:snapshot");
+            try {
+                snapshot = ScreenSnapshot.from(tree, profile, event.getEventType());
+            } finally {
+                Trace.endSection();
+            }
+            stageStart = observe(snapshotLatency, stageStart);
+
+            if (snapshot.getText().isEmpty()) {
+                droppedNoText.increment();
+                trace.record(TraceBuffer.EVENT_NO_TEXT, platform.ordinal());
+                return;
+            }
+            // The engine process scores it and hands it back to onEngineResult
+            if (engineClient != null && engineClient.submit(snapshot, null)) {
+                return;
+            }
+            analyze(snapshot);
+            stageStart = observe(analysisLatency, stageStart);
+            dispatch(snapshot);
+            observe(dispatchLatency, stageStart);
+            lastSnapshot = snapshot.textOnly();
         } catch (Exception e) {
-            Log.e(TAG, "Error processing accessibility event for " + platform, e);
+            droppedError.increment();
+            trace.record(TraceBuffer.EVENT_ERROR, platform.ordinal());
+            Log.e(TAG, "Error processing accessibility event for " + packageName, e);
+        } finally {
+            Trace.endSection();
+            long eventNanos = System.nanoTime() - eventStart;
+            trace.record(TraceBuffer.EVENT_FINISHED, (int) Math.min(eventNanos / 1000, Integer.MAX_VALUE));
+            if (eventNanos > SLOW_EVENT_NANOS) {
+                dumpSlowEvent(eventNanos);
+            }
+        }
+    }
+
+    private void analyze(ScreenSnapshot snapshot) {
+        long start = SystemClock.elapsedRealtime();
+        RiskAnalysis analysis;
+        Trace.beginSection("meso:analyze");
+        try {
+            // Analyze content for risks
+            analysis = contentAnalyzer.analyzeContent(snapshot.getText(), snapshot.getProfile(), screenAnalysis);
+            snapshot.setScreenAnalysis(analysis);
+            for (ScreenSnapshot.Post post : snapshot.getPosts()) {
+                postAnalyzer.analyze(post, snapshot.getPlatform());
+            }
+            // Chat screens also count toward their conversation's rolling risk
+            conversationAnalyzer.analyze(snapshot, analysis);
+        } finally {
+            Trace.endSection();
+        }
+        recordAnalyzed(snapshot, SystemClock.elapsedRealtime() - start);
+        if (contentAnalyzer.getTierStats().getPostCount() % TIER_REPORT_INTERVAL == 0) {
+            Log.d(TAG, "Analysis tiers: " + contentAnalyzer.getTierStats().report());
+            Log.d(TAG, "Author reputation: " + postAnalyzer.getAuthorReputation().report());
+            if (linkExpander != null) {
+                Log.d(TAG, "Short links: " + linkExpander.report());
+            }
+            if (domainReputation != null) {
+                Log.d(TAG, "Domain reputation: " + domainReputation.report());
+            }
+        }
+    }
+
+    private void recordAnalyzed(ScreenSnapshot snapshot, long analysisMs) {
+        trace.record(TraceBuffer.EVENT_ANALYZED, snapshot.getScreenAnalysis().getRiskLevel().ordinal(),
+                snapshot.getPosts().size());
+        if (!firstScreenAnalyzed) {
+            firstScreenAnalyzed = true;
+            Log.d(TAG, "First screen analyzed in " + analysisMs + " ms, "
+                    + (SystemClock.elapsedRealtime() - connectedAt) + " ms after connect");
+        }
+    }
+
+    // The engine attached its verdicts: finish the screen here as if it had been analyzed locally
+    private void onEngineResult(ScreenSnapshot snapshot, String rescoreReason, long roundTripNanos) {
+        if (rescoreReason != null) {
+            // A newer screen may have been dispatched while the engine was busy
+            if (snapshot == lastSnapshot) {
+                showRescored(snapshot, snapshot.getScreenAnalysis(), rescoreReason);
+            }
+            return;
+        }
+        analysisLatency.observeNanos(roundTripNanos);
+        try {
+            // Conversations need the tree, which stays in this process
+            conversationAnalyzer.analyze(snapshot, snapshot.getScreenAnalysis());
+            recordAnalyzed(snapshot, roundTripNanos / 1000000);
+            long dispatchStart = System.nanoTime();
+            dispatch(snapshot);
+            observe(dispatchLatency, dispatchStart);
+            lastSnapshot = snapshot.textOnly();
+        } catch (Exception e) {
+            droppedError.increment();
+            trace.record(TraceBuffer.EVENT_ERROR, snapshot.getPlatform().ordinal());
+            Log.e(TAG, "Error finishing engine results for " + snapshot.getPackageName(), e);
+        }
+    }
+
+    private void onEngineFailure(ScreenSnapshot snapshot, String rescoreReason) {
+        if (rescoreReason != null) {
+            rescoreLocally(snapshot, rescoreReason);
+            return;
+        }
+        try {
+            analyze(snapshot);
+            dispatch(snapshot);
+            lastSnapshot = snapshot.textOnly();
+        } catch (Exception e) {
+            droppedError.increment();
+            trace.record(TraceBuffer.EVENT_ERROR, snapshot.getPlatform().ordinal());
+            Log.e(TAG, "Error analyzing " + snapshot.getPackageName() + " after the engine failed", e);
+        }
+    }
+
+    // Records the time since the stage started and returns the start of the next one
+    private static long observe(Metrics.Histogram histogram, long stageStart) {
+        long now = System.nanoTime();
+        histogram.observeNanos(now - stageStart);
+        return now;
+    }
+
+    private void registerComponentMetrics() {
+        metrics.counter("meso_posts_analyzed_total", "", "Texts scored by the content analyzer",
+                () -> contentAnalyzer.getTierStats().getPostCount());
+        metrics.gauge("meso_tier_hit_ratio", "tier=\"rules\"", "Fraction of texts that reached each tier",
+                () -> contentAnalyzer.getTierStats().getHitRate(TierStats.TIER_RULES));
+        metrics.gauge("meso_tier_hit_ratio", "tier=\"urls\"", "Fraction of texts that reached each tier",
+                () -> contentAnalyzer.getTierStats().getHitRate(TierStats.TIER_URLS));
+        metrics.gauge("meso_tier_hit_ratio", "tier=\"classifier\"", "Fraction of texts that reached each tier",
+                () -> contentAnalyzer.getTierStats().getHitRate(TierStats.TIER_CLASSIFIER));
+        metrics.counter("meso_analysis_cut_short_total", "reason=\"decided\"", "Texts whose analysis stopped early, by reason",
+                () -> contentAnalyzer.getTierStats().getDecidedCount());
+        metrics.counter("meso_analysis_cut_short_total", "reason=\"sampled\"", "Texts whose analysis stopped early, by reason",
+                () -> contentAnalyzer.getTierStats().getSampledCount());
+        metrics.counter("meso_analysis_cut_short_total", "reason=\"over_budget\"", "Texts whose analysis stopped early, by reason",
+                () -> contentAnalyzer.getTierStats().getOverBudgetCount());
+        metrics.counter("meso_engine_requests_total", "result=\"sent\"", "Snapshots handed to the analysis engine process",
+                () -> engineClient != null ? engineClient.getSentCount() : 0);
+        metrics.counter("meso_engine_requests_total", "result=\"superseded\"", "Snapshots handed to the analysis engine process",
+                () -> engineClient != null ? engineClient.getSupersededCount() : 0);
+        metrics.counter("meso_engine_requests_total", "result=\"failed\"", "Snapshots handed to the analysis engine process",
+                () -> engineClient != null ? engineClient.getFailedCount() : 0);
+        metrics.gauge("meso_platform_profiles_loaded", "", "Platform profiles parsed so far",
+                () -> platforms.getLoadedCount());
+        metrics.gauge("meso_cache_hit_ratio", "cache=\"author\"", "Fraction of lookups answered by each cache",
+                () -> postAnalyzer.getAuthorReputation().getHitRate());
+        metrics.gauge("meso_cache_hit_ratio", "cache=\"short_link\"", "Fraction of lookups answered by each cache",
+                () -> linkExpander != null ? linkExpander.getCacheHitRate() : 0);
+        metrics.gauge("meso_cache_hit_ratio", "cache=\"domain_reputation\"", "Fraction of lookups answered by each cache",
+                () -> domainReputation != null ? domainReputation.getCacheHitRate() : 0);
+        metrics.gauge("meso_queue_depth", "queue=\"short_link\"", "Background lookups queued or running",
+                () -> linkExpander != null ? linkExpander.getQueueDepth() : 0);
+        metrics.gauge("meso_queue_depth", "queue=\"domain_reputation\"", "Background lookups queued or running",
+                () -> domainReputation != null ? domainReputation.getQueueDepth() : 0);
+        metrics.gauge("meso_overlay_windows", "", "Overlay windows currently shown",
+                () -> postOverlayConsumer.getOverlayCount() + (overlayManager.isBadgeShown() ? 1 : 0));
+        metrics.counter("meso_overlay_updates_total", "result=\"applied\"", "Overlay operations by outcome",
+                () -> overlayUpdates.getAppliedCount());
+        metrics.counter("meso_overlay_updates_total", "result=\"collapsed\"", "Overlay operations by outcome",
+                () -> overlayUpdates.getCollapsedCount());
+        metrics.counter("meso_overlay_batches_total", "", "Frames in which overlay operations were applied",
+                () -> overlayUpdates.getBatchCount());
+        metrics.counter("meso_window_reads_total", "kind=\"full\"", "Window model updates by kind",
+                () -> windowModel.getFullWalkCount());
+        metrics.counter("meso_window_reads_total", "kind=\"subtree\"", "Window model updates by kind",
+                () -> windowModel.getSubtreeUpdateCount());
+    }
+
+    /** The connected service, or null if it is not running in this process. */
+    static MonitoringService getRunningInstance() {
+        return runningInstance;
+    }
+
+    /**
+     * Compiles the rule pack for the device language before a post needs it
+     * and prunes expired cache entries. Called by {@link MaintenanceWorker} on
+     * its own thread.
+     */
+    void runMaintenance() {
+        String language = Locale.getDefault().getLanguage();
+        if (rulePacks != null && !LanguageIdentifier.ENGLISH.equals(language)) {
+            rulePacks.get(language);
+        }
+        ShortLinkExpander expander = linkExpander;
+        DomainReputationClient reputation = domainReputation;
+        int prunedLinks = expander != null ? expander.pruneExpired() : 0;
+        int prunedDomains = reputation != null ? reputation.pruneExpired() : 0;
+        Log.d(TAG, "Pruned " + prunedLinks + " short links and " + prunedDomains + " domain verdicts");
+    }
+
+    /**
+     * Network lookups run in one process only: the engine's while it is
+     * enabled, this one otherwise. Screens scored here while the engine is
+     * down go without them.
+     */
+    private void updateLookups() {
+        boolean local = engineClient == null;
+        // Following short links contacts their hosts, so it is opt-in
+        setLinkExpansion(local && preferences.getBoolean(PREF_EXPAND_SHORT_LINKS, false));
+        setDomainReputation(local);
+    }
+
+    private void setLinkExpansion(boolean enabled) {
+        if (contentAnalyzer == null || enabled == (linkExpander != null)) return;
+        if (enabled) {
+            linkExpander = createLinkExpander();
+            contentAnalyzer.setLinkExpander(linkExpander, linkListener);
+        } else {
+            contentAnalyzer.setLinkExpander(null, null);
+            linkExpander.shutdown();
+            linkExpander = null;
+        }
+        Log.d(TAG, "Short link expansion " + (enabled ? "enabled" : "disabled"));
+    }
+
+    private void setDomainReputation(boolean enabled) {
+        if (contentAnalyzer == null || enabled == (domainReputation != null)) return;
+        if (enabled) {
+            DomainReputationClient client = createDomainReputation(reputationListener);
+            // Builds without a reputation endpoint have no lookups to enable
+            if (client == null) {
+                Log.d(TAG, "Domain reputation lookups unavailable, no endpoint configured");
+                return;
+            }
+            domainReputation = client;
+            contentAnalyzer.setDomainReputation(client);
+        } else {
+            contentAnalyzer.setDomainReputation(null);
+            domainReputation.shutdown();
+            domainReputation = null;
+        }
+        Log.d(TAG, "Domain reputation lookups " + (enabled ? "enabled" : "disabled"));
+    }
+
+    private void setRemoteAnalysis(boolean enabled) {
+        if (enabled == (engineClient != null)) return;
+        if (enabled) {
+            engineClient = new AnalysisEngineClient(this, engineListener);
+            configureEngine();
+            engineClient.bind();
+        } else {
+            engineClient.unbind();
+            engineClient = null;
+        }
+        updateLookups();
+        Log.d(TAG, "Analysis engine process " + (enabled ? "enabled" : "disabled"));
+    }
+
+    private void configureEngine() {
+        if (engineClient == null || preferences == null) return;
+        engineClient.configure(preferences.getInt(PREF_SENSITIVITY, 50),
+                preferences.getBoolean(PREF_EXPAND_SHORT_LINKS, false));
+    }
+
+    // A link on the last screen got a background verdict: score the screen again with it known
+    private void rescoreScreen(String link, String reason) {
+        ScreenSnapshot snapshot = lastSnapshot;
+        if (snapshot == null || contentAnalyzer == null || !snapshot.getText().contains(link)) return;
+
+        if (engineClient != null && engineClient.submit(snapshot, reason)) return;
+        rescoreLocally(snapshot, reason);
+    }
+
+    private void rescoreLocally(ScreenSnapshot snapshot, String reason) {
+        RiskAnalysis analysis = contentAnalyzer.analyzeContent(snapshot.getText(), snapshot.getProfile(), screenAnalysis);
+        showRescored(snapshot, analysis, reason);
+    }
+
+    private void showRescored(ScreenSnapshot snapshot, RiskAnalysis analysis, String reason) {
+        trace.record(TraceBuffer.EVENT_RESCORED, analysis.getRiskLevel().ordinal());
+        Log.d(TAG, reason + ", screen risk now " + analysis.getRiskLevel());
+        if (overlayManager != null) {
+            overlayManager.showSafetyBadge(analysis, snapshot.getProfile());
+        }
+    }
+
+    private void dispatch(ScreenSnapshot snapshot) {
+        Trace.beginSection("meso:dispatch");
+        try {
+            for (ScreenConsumer consumer : consumers) {
+                try {
+                    consumer.onScreen(snapshot);
+                } catch (Exception e) {
+                    // One failing consumer must not starve the others
+                    Log.e(TAG, "Error in " + consumer.getClass().getSimpleName(), e);
+                }
+            }
+        } finally {
+            Trace.endSection();
+        }
+        trace.record(TraceBuffer.EVENT_DISPATCHED, consumers.size());
+    }
+
+    private void dumpSlowEvent(long eventNanos) {
+        long now = SystemClock.elapsedRealtime();
+        if (lastSlowDump != 0 && now - lastSlowDump < SLOW_DUMP_INTERVAL_MS) return;
+        lastSlowDump = now;
+        Log.w(TAG, "Slow event took " + eventNanos / 1000000 + " ms, recent trace:\n"
+                + trace.dump(SLOW_DUMP_EVENTS));
+    }
+
+    private void releaseConsumers() {
+        for (ScreenConsumer consumer : consumers) {
+            consumer.release();
         }
     }
 
     @Override
     public void onInterrupt() {
         Log.d(TAG, "Accessibility service interrupted");
-        if (overlayManager != null) {
-            overlayManager.hideAllOverlays();
+        if (windowModel != null) {
+            windowModel.invalidate();
         }
+        lastSnapshot = null;
+        releaseConsumers();
     }
 
     @Override
     public void onDestroy() {
         super.onDestroy();
+        runningInstance = null;
+        if (preferences != null) {
+            preferences.unregisterOnSharedPreferenceChangeListener(preferenceListener);
+        }
+        if (stats != null) {
+            stats.removeListener(statsListener);
+        }
+        if (linkExpander != null) {
+            linkExpander.shutdown();
+        }
+        if (domainReputation != null) {
+            domainReputation.shutdown();
+        }
+        if (metricsServer != null) {
+            metricsServer.stop();
+        }
+        if (engineClient != null) {
+            engineClient.unbind();
+        }
+        mainHandler.removeCallbacksAndMessages(null);
+        releaseConsumers();
+        consumers.clear();
         if (overlayManager != null) {
             overlayManager.cleanup();
         }
+        if (overlayUpdates != null) {
+            overlayUpdates.clear();
+        }
         Log.d(TAG, "Monitoring service destroyed");
     }
 
+    private void warmUpAnalysis() {
+        HashedNgramClassifier classifier = loadClassifierModel(this);
+        if (classifier != null && contentAnalyzer != null) {
+            contentAnalyzer.setClassifier(classifier);
+        }
+        try {
+            int samples = AnalysisWarmup.run(classifier);
+            Log.d(TAG, "Analysis ready " + (SystemClock.elapsedRealtime() - connectedAt)
+                    + " ms after connect (" + samples + " warm-up samples)");
+        } catch (Exception e) {
+            Log.e(TAG, "Error warming up analysis", e);
+        }
+    }
+
+    // Analysis setup shared with AnalysisEngineService, which builds its own analyzers
+
+    static HashedNgramClassifier loadClassifierModel(Context context) {
+        try (InputStream in = context.getAssets().open(CLASSIFIER_MODEL_ASSET)) {
+            HashedNgramClassifier classifier = HashedNgramClassifier.load(in);
+            Log.d(TAG, "Classifier model loaded (" + classifier.getHashBits() + " hash bits)");
+            return classifier;
+        } catch (FileNotFoundException e) {
+            Log.d(TAG, "No classifier model bundled, classifier stage disabled");
+        } catch (IOException e) {
+            Log.e(TAG, "Error loading classifier model", e);
+        }
+        return null;
+    }
+
     private void startForegroundNotification() {
         createNotificationChannel();
+        // Counted from the profile list, since naming the apps would mean loading every profile
+        int apps = platforms.getPackageNames().length;
+        startForeground(NOTIFICATION_ID, buildNotification(
+                "✅ Monitoring " + apps + (apps == 1 ? " app" : " apps") + " for threats"));
+        Log.d(TAG, "Foreground notification started");
+    }
+
+    private void updateNotification(SafetyStats.Snapshot snapshot) {
+        NotificationManager manager = (NotificationManager) getSystemService(NOTIFICATION_SERVICE);
+        if (manager == null) return;
+        String text = String.format("Analyzed: %d posts | Threats: %d",
+                snapshot.getPostCount(), snapshot.getThreatCount());
+        manager.notify(NOTIFICATION_ID, buildNotification(text));
+    }
 
+    private Notification buildNotification(String contentText) {
         Intent notificationIntent = new Intent(this, MainActivity.class);
         PendingIntent pendingIntent = PendingIntent.getActivity(
                 this, 0, notificationIntent,
@@ -133,9 +698,9 @@ public class MonitoringService extends AccessibilityService {
                 PendingIntent.FLAG_IMMUTABLE | PendingIntent.FLAG_UPDATE_CURRENT
         );
 
-        Notification notification = new NotificationCompat.Builder(this, CHANNEL_ID)
+        return new NotificationCompat.Builder(this, CHANNEL_ID)
                 .setContentTitle("Social Media Safety Active")
-                .setContentText("✅ Monitoring Twitter, Reddit, Facebook, Discord, Instagram for threats")
+                .setContentText(contentText)
                 .setSmallIcon(R.drawable.ic_shield)
                 .setContentIntent(pendingIntent)
                 .setOngoing(true)
@@ -144,10 +709,8 @@ public class MonitoringService extends AccessibilityService {
                 .addAction(R.drawable.ic_settings, "Settings", settingsPendingIntent)
                 .setStyle(new NotificationCompat.BigTextStyle()
                         .bigText("Monitoring social media apps for scams, phishing, and suspicious content. Tap to open settings."))
+                .setOnlyAlertOnce(true)
                 .build();
-
-        startForeground(NOTIFICATION_ID, notification);
-        Log.d(TAG, "Foreground notification started");
     }
 
     private void createNotificationChannel() {
@@ -169,47 +732,40 @@ public class MonitoringService extends AccessibilityService {
         }
     }
 
-    private String extractTextFromNode(AccessibilityNodeInfo node) {
-        if (node == null) return "";
-
-        StringBuilder text = new StringBuilder();
-
-        // Get text from current node
-        if (node.getText() != null) {
-            text.append(node.getText().toString()).append(" ");
-        }
-
-        // Get content description
-        if (node.getContentDescription() != null) {
-            text.append(node.getContentDescription().toString()).append(" ");
+    // Lists the bundled profiles; parsing them waits until their app shows up
+    static PlatformRegistry loadPlatformRegistry(Context context) {
+        String[] files;
+        try {
+            files = context.getAssets().list(PLATFORM_ASSET_DIR);
+        } catch (IOException e) {
+            Log.e(TAG, "Cannot list platform profiles", e);
+            files = new String[0];
         }
+        PlatformRegistry registry = new PlatformRegistry(Arrays.asList(files),
+                fileName -> context.getAssets().open(PLATFORM_ASSET_DIR + "/" + fileName));
+        Log.d(TAG, registry.getPackageNames().length + " platform profiles available");
+        return registry;
+    }
 
-        // Recursively extract from children
-        for (int i = 0; i < node.getChildCount(); i++) {
-            AccessibilityNodeInfo child = node.getChild(i);
-            if (child != null) {
-                text.append(extractTextFromNode(child));
-                child.recycle();
-            }
-        }
+    // Non-English packs are compiled only once a post in that language shows up
+    static RulePackCache createRulePackCache(Context context) {
+        return new RulePackCache(
+                language -> context.getAssets().open(RULE_PACK_ASSET_DIR + language + ".rules"),
+                RULE_PACK_CACHE_SIZE);
+    }
 
-        return text.toString().trim();
+    static ShortLinkExpander createLinkExpander() {
+        return new ShortLinkExpander(new ShortLinkExpander.HttpResolver(LINK_HOP_TIMEOUT_MS),
+                LINK_EXPANSIONS_AT_ONCE, LINK_HOST_INTERVAL_MS, LINK_CACHE_SIZE, LINK_CACHE_TTL_MS,
+                LINK_DEADLINE_MS);
     }
 
-    private Platform detectPlatform(String packageName) {
-        switch (packageName) {
-            case "com.twitter.android":
-                return Platform.TWITTER;
-            case "com.reddit.frontpage":
-                return Platform.REDDIT;
-            case "com.facebook.katana":
-                return Platform.FACEBOOK;
-            case "com.discord":
-                return Platform.DISCORD;
-            case "com.instagram.android":
-                return Platform.INSTAGRAM;
-            default:
-                return Platform.UNKNOWN;
-        }
+    // Link domains are checked against the reputation service when the build names one
+    static DomainReputationClient createDomainReputation(DomainReputationClient.Listener listener) {
+        if (BuildConfig.REPUTATION_ENDPOINT.isEmpty()) return null;
+        return new DomainReputationClient(
+                new DomainReputationClient.HttpTransport(BuildConfig.REPUTATION_ENDPOINT, REPUTATION_TIMEOUT_MS),
+                REPUTATION_BATCH_DELAY_MS, REPUTATION_CACHE_SIZE, REPUTATION_LISTED_TTL_MS,
+                REPUTATION_CLEAN_TTL_MS, REPUTATION_COOLDOWN_MS, listener);
     }
 }
\ No newline at end of file
@@ -17,16 +17,20 @@ import com.socialmediasafety.rating.analysis.RiskAnalysis;
 public class OverlayManager {
 
     private static final String TAG = "OverlayManager";
+    // Key of the badge in the overlay update queue
+    private static final Object BADGE_KEY = new Object();
     private final Context context;
     private final WindowManager windowManager;
-    private View badgeView;
+    private final OverlayUpdateQueue overlayUpdates;
+    private volatile View badgeView;
 
-    public OverlayManager(Context context) {
+    public OverlayManager(Context context, OverlayUpdateQueue overlayUpdates) {
         this.context = context;
         this.windowManager = (WindowManager) context.getSystemService(Context.WINDOW_SERVICE);
+        this.overlayUpdates = overlayUpdates;
     }
 
-    public void showSafetyBadge(RiskAnalysis analysis, Platform platform) {
+    public void showSafetyBadge(RiskAnalysis analysis, PlatformProfile profile) {
         if (context == null || windowManager == null) {
             Log.w(TAG, "OverlayManager not properly initialized");
             return;
@@ -40,50 +44,54 @@ public class OverlayManager {
             }
         }
 
-        hideAllOverlays(); // Clear existing overlays before showing new one
-
         try {
-            LayoutInflater inflater = LayoutInflater.from(context);
-            badgeView = inflater.inflate(R.layout.overlay_safety_badge, null);
+            // The badge stays in place from screen to screen; only its text changes
+            View badge = badgeView;
+            if (badge == null) {
+                badge = LayoutInflater.from(context).inflate(R.layout.overlay_safety_badge, null);
+                ImageView badgeIcon = badge.findViewById(R.id.badgeIcon);
+                badgeIcon.setImageResource(R.drawable.ic_shield); // Replace with your own icon
+                overlayUpdates.add(BADGE_KEY, badge, createBadgeParams());
+                badgeView = badge;
+            }
 
-            TextView riskText = badgeView.findViewById(R.id.riskText);
-            TextView platformText = badgeView.findViewById(R.id.platformText);
-            ImageView badgeIcon = badgeView.findViewById(R.id.badgeIcon);
+            TextView riskText = badge.findViewById(R.id.riskText);
+            TextView platformText = badge.findViewById(R.id.platformText);
 
             // Populate badge
             riskText.setText(analysis.getRiskLevel().getDisplayName());
-            platformText.setText(platform.getEmoji() + " " + platform.name());
-            badgeIcon.setImageResource(R.drawable.ic_shield); // Replace with your own icon
-
-            WindowManager.LayoutParams params = new WindowManager.LayoutParams(
-                    WindowManager.LayoutParams.WRAP_CONTENT,
-                    WindowManager.LayoutParams.WRAP_CONTENT,
-                    Build.VERSION.SDK_INT >= Build.VERSION_CODES.O ?
-                            WindowManager.LayoutParams.TYPE_APPLICATION_OVERLAY :
-                            WindowManager.LayoutParams.TYPE_PHONE,
-                    WindowManager.LayoutParams.FLAG_NOT_FOCUSABLE |
-                            WindowManager.LayoutParams.FLAG_LAYOUT_NO_LIMITS,
-                    PixelFormat.TRANSLUCENT
-            );
-
-            params.gravity = Gravity.TOP | Gravity.END;
-            params.x = 20;
-            params.y = 100;
-
-            windowManager.addView(badgeView, params);
-            Log.d(TAG, "Safety badge displayed for " + platform + " with risk level " + analysis.getRiskLevel());
+            platformText.setText(profile.getEmoji() + " " + profile.getName());
+            Log.d(TAG, "Safety badge displayed for " + profile.getName() + " with risk level " + analysis.getRiskLevel());
         } catch (Exception e) {
             Log.e(TAG, "Error displaying safety badge", e);
         }
     }
 
+    private static WindowManager.LayoutParams createBadgeParams() {
+        WindowManager.LayoutParams params = new WindowManager.LayoutParams(
+                WindowManager.LayoutParams.WRAP_CONTENT,
+                WindowManager.LayoutParams.WRAP_CONTENT,
+                Build.VERSION.SDK_INT >= Build.VERSION_CODES.O ?
+                        WindowManager.LayoutParams.TYPE_APPLICATION_OVERLAY :
+                        WindowManager.LayoutParams.TYPE_PHONE,
+                WindowManager.LayoutParams.FLAG_NOT_FOCUSABLE |
+                        WindowManager.LayoutParams.FLAG_LAYOUT_NO_LIMITS,
+                PixelFormat.TRANSLUCENT
+        );
+
+        params.gravity = Gravity.TOP | Gravity.END;
+        params.x = 20;
+        params.y = 100;
+        return params;
+    }
+
+    public boolean isBadgeShown() {
+        return badgeView != null;
+    }
+
     public void hideAllOverlays() {
-        if (badgeView != null && windowManager != null) {
-            try {
-                windowManager.removeView(badgeView);
-            } catch (Exception e) {
-                e.printStackTrace();
-            }
+        if (badgeView != null) {
+            overlayUpdates.remove(BADGE_KEY);
             badgeView = null;
         }
     }
@@ -0,0 +1,180 @@
+package com.socialmediasafety.rating;
+
+import android.util.Log;
+import android.view.Choreographer;
+import android.view.View;
+import android.view.WindowManager;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Collects overlay adds, moves and removes and applies them together once
+ * per frame, so analyses finishing in quick succession do not each touch the
+ * window manager.
+ *
+ * Overlays are identified by a key chosen by the caller. Operations on the
+ * same key within one frame collapse into the last one that matters: an
+ * overlay added and removed before the frame never reaches the screen, and
+ * several moves become one. Call only from the main thread.
+ */
+public class OverlayUpdateQueue implements Choreographer.FrameCallback {
+
+    private static final String TAG = "OverlayUpdateQueue";
+
+    private static final int OP_ADD = 0;
+    private static final int OP_MOVE = 1;
+    private static final int OP_REMOVE = 2;
+
+    private static final class Pending {
+        int op;
+        View view;
+        WindowManager.LayoutParams params;
+    }
+
+    private final WindowManager windowManager;
+    // Operations waiting for the next frame, in the order they were first queued
+    private final Map<Object, Pending> pending = new LinkedHashMap<>();
+    private final Map<Object, View> attached = new HashMap<>();
+    private boolean frameScheduled;
+
+    // Read by the metrics server thread
+    private volatile long appliedCount;
+    private volatile long collapsedCount;
+    private volatile long batchCount;
+
+    public OverlayUpdateQueue(WindowManager windowManager) {
+        this.windowManager = windowManager;
+    }
+
+    /** Shows the view under the key, replacing the overlay already shown there. */
+    public void add(Object key, View view, WindowManager.LayoutParams params) {
+        Pending update = pending.get(key);
+        if (update != null) {
+            collapsedCount++;
+        } else {
+            update = queue(key);
+        }
+        update.op = OP_ADD;
+        update.view = view;
+        update.params = params;
+    }
+
+    /** Moves the overlay shown under the key; does nothing if there is none. */
+    public void move(Object key, WindowManager.LayoutParams params) {
+        Pending update = pending.get(key);
+        if (update != null) {
+            if (update.op == OP_REMOVE) return;
+            // A pending add simply starts out at the new position
+            update.params = params;
+            collapsedCount++;
+        } else if (attached.containsKey(key)) {
+            update = queue(key);
+            update.op = OP_MOVE;
+            update.params = params;
+        }
+    }
+
+    /** Removes the overlay shown under the key, if any. */
+    public void remove(Object key) {
+        Pending update = pending.get(key);
+        if (update != null) {
+            collapsedCount++;
+            if (!attached.containsKey(key)) {
+                // Added and removed within one frame: never shown
+                pending.remove(key);
+                return;
+            }
+        } else if (attached.containsKey(key)) {
+            update = queue(key);
+        } else {
+            return;
+        }
+        update.op = OP_REMOVE;
+        update.view = null;
+        update.params = null;
+    }
+
+    /** True if an overlay is shown, or about to be, under the key. */
+    public boolean isShown(Object key) {
+        Pending update = pending.get(key);
+        return update != null ? update.op != OP_REMOVE : attached.containsKey(key);
+    }
+
+    /** Removes every overlay right away, dropping pending operations. */
+    public void clear() {
+        if (frameScheduled) {
+            Choreographer.getInstance().removeFrameCallback(this);
+            frameScheduled = false;
+        }
+        pending.clear();
+        for (View view : attached.values()) {
+            try {
+                windowManager.removeViewImmediate(view);
+            } catch (Exception e) {
+                // View might already be removed
+            }
+        }
+        attached.clear();
+    }
+
+    public long getAppliedCount() { return appliedCount; }
+    public long getCollapsedCount() { return collapsedCount; }
+    public long getBatchCount() { return batchCount; }
+
+    @Override
+    public void doFrame(long frameTimeNanos) {
+        frameScheduled = false;
+        // Callers may queue more from the window manager's callbacks; those wait a frame
+        ArrayList<Map.Entry<Object, Pending>> batch = new ArrayList<>(pending.entrySet());
+        pending.clear();
+
+        for (Map.Entry<Object, Pending> entry : batch) {
+            Object key = entry.getKey();
+            Pending update = entry.getValue();
+            try {
+                apply(key, update);
+            } catch (Exception e) {
+                Log.e(TAG, "Error updating overlay " + key, e);
+            }
+        }
+        appliedCount += batch.size();
+        batchCount++;
+    }
+
+    private void apply(Object key, Pending update) {
+        View current = attached.get(key);
+        switch (update.op) {
+            case OP_ADD:
+                if (current != null) {
+                    attached.remove(key);
+                    windowManager.removeView(current);
+                }
+                windowManager.addView(update.view, update.params);
+                attached.put(key, update.view);
+                break;
+            case OP_MOVE:
+                if (current != null) {
+                    windowManager.updateViewLayout(current, update.params);
+                }
+                break;
+            case OP_REMOVE:
+                if (current != null) {
+                    attached.remove(key);
+                    windowManager.removeView(current);
+                }
+                break;
+        }
+    }
+
+    private Pending queue(Object key) {
+        Pending update = new Pending();
+        pending.put(key, update);
+        if (!frameScheduled) {
+            frameScheduled = true;
+            Choreographer.getInstance().postFrameCallback(this);
+        }
+        return update;
+    }
+}
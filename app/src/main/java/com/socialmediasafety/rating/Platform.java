@@ -1,7 +1,9 @@
 package com.socialmediasafety.rating;
 
 public enum Platform {
-    TWITTER, REDDIT, FACEBOOK, DISCORD, INSTAGRAM, UNKNOWN;
+    TWITTER, REDDIT, FACEBOOK, DISCORD, INSTAGRAM, UNKNOWN,
+    // Apps with a profile but no built-in rules; after UNKNOWN so stored ordinals keep their meaning
+    OTHER;
 
     public String getEmoji() {
         switch (this) {
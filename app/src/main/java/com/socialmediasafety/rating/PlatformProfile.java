@@ -0,0 +1,149 @@
+package com.socialmediasafety.rating;
+
+import com.socialmediasafety.rating.analysis.RulePack;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * What the service knows about one monitored app: which built-in platform
+ * rules apply, how its screens split into posts, where a conversation names
+ * itself, and any extra rules of its own.
+ *
+ * A profile is a text file of key=value lines:
+ * <pre>
+ * platform=DISCORD
+ * name=Discord
+ * emoji=🎮
+ * post_ids=message_container
+ * title_ids=title,channel_name,toolbar
+ * conversation=true
+ * rules=discord.rules
+ * </pre>
+ * Every key but name is optional. platform names the built-in rules that
+ * apply (OTHER if none); post_ids and title_ids are substrings of the view
+ * IDs of post containers and of conversation titles; rules names a
+ * {@link RulePack} file next to the profile. Blank lines and lines starting
+ * with '#' are ignored. Instances are immutable and safe to share.
+ */
+public class PlatformProfile {
+
+    private static final String[] NO_HINTS = new String[0];
+
+    private final String packageName;
+    private final Platform platform;
+    private final String name;
+    private final String emoji;
+    private final String[] postIds;
+    private final String[] titleIds;
+    private final boolean conversation;
+    private final RulePack rules;
+
+    private PlatformProfile(String packageName, Platform platform, String name, String emoji,
+                            String[] postIds, String[] titleIds, boolean conversation, RulePack rules) {
+        this.packageName = packageName;
+        this.platform = platform;
+        this.name = name;
+        this.emoji = emoji;
+        this.postIds = postIds;
+        this.titleIds = titleIds;
+        this.conversation = conversation;
+        this.rules = rules;
+    }
+
+    /**
+     * Parses a profile, loading its rule pack through the source. Throws
+     * IOException naming the line of the first malformed entry.
+     */
+    public static PlatformProfile parse(String packageName, InputStream in, PlatformRegistry.Source source)
+            throws IOException {
+        Platform platform = Platform.OTHER;
+        String name = null;
+        String emoji = Platform.OTHER.getEmoji();
+        String[] postIds = NO_HINTS;
+        String[] titleIds = NO_HINTS;
+        boolean conversation = false;
+        RulePack rules = null;
+
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        String line;
+        int lineNumber = 0;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            line = line.trim();
+            if (line.isEmpty() || line.startsWith("#")) continue;
+
+            int separator = line.indexOf('=');
+            if (separator <= 0) {
+                throw new IOException(packageName + " profile, line " + lineNumber + ": expected key=value");
+            }
+            String key = line.substring(0, separator).trim();
+            String value = line.substring(separator + 1).trim();
+            switch (key) {
+                case "platform":
+                    try {
+                        platform = Platform.valueOf(value);
+                    } catch (IllegalArgumentException e) {
+                        throw new IOException(packageName + " profile, line " + lineNumber + ": unknown platform " + value);
+                    }
+                    break;
+                case "name":
+                    name = value;
+                    break;
+                case "emoji":
+                    emoji = value;
+                    break;
+                case "post_ids":
+                    postIds = value.split(",");
+                    break;
+                case "title_ids":
+                    titleIds = value.split(",");
+                    break;
+                case "conversation":
+                    conversation = Boolean.parseBoolean(value);
+                    break;
+                case "rules":
+                    try (InputStream rulesIn = source.open(value)) {
+                        rules = RulePack.parse(packageName, rulesIn);
+                    }
+                    break;
+                default:
+                    throw new IOException(packageName + " profile, line " + lineNumber + ": unknown key " + key);
+            }
+        }
+        if (name == null) {
+            throw new IOException(packageName + " profile has no name");
+        }
+        return new PlatformProfile(packageName, platform, name, emoji, postIds, titleIds, conversation, rules);
+    }
+
+    public String getPackageName() { return packageName; }
+    public Platform getPlatform() { return platform; }
+    public String getName() { return name; }
+    public String getEmoji() { return emoji; }
+    /** True for apps whose screens are conversations, such as chat channels. */
+    public boolean isConversation() { return conversation; }
+    /** Extra rules for this app, or null. */
+    public RulePack getRules() { return rules; }
+
+    /** True if the app's screens can be split into posts. */
+    public boolean hasPosts() { return postIds.length > 0; }
+
+    public boolean isPostContainer(String resourceId) {
+        return matchesAny(resourceId, postIds);
+    }
+
+    public boolean isTitle(String resourceId) {
+        return matchesAny(resourceId, titleIds);
+    }
+
+    private static boolean matchesAny(String resourceId, String[] hints) {
+        if (resourceId == null) return false;
+        for (String hint : hints) {
+            if (resourceId.contains(hint)) return true;
+        }
+        return false;
+    }
+}
@@ -0,0 +1,70 @@
+package com.socialmediasafety.rating;
+
+import android.util.Log;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Maps the package name of a monitored app to its {@link PlatformProfile}.
+ *
+ * Only the package names are known up front; a profile is parsed, and its
+ * rule pack compiled, the first time its app shows up, so apps the user never
+ * opens cost nothing. A profile that fails to load is logged and its app is
+ * treated as unmonitored from then on. Adding an app only takes a profile
+ * file. Safe to call from any thread.
+ */
+public class PlatformRegistry {
+
+    private static final String TAG = "PlatformRegistry";
+
+    /** File name suffix of profiles; the rest of the name is the package name. */
+    public static final String PROFILE_SUFFIX = ".profile";
+
+    /** Opens a profile or rule pack file by name. */
+    public interface Source {
+        InputStream open(String fileName) throws IOException;
+    }
+
+    private final Source source;
+    private final Set<String> packageNames;
+    private final Map<String, PlatformProfile> profiles = new HashMap<>();
+
+    /** @param fileNames profile file names; other names are ignored */
+    public PlatformRegistry(Collection<String> fileNames, Source source) {
+        this.source = source;
+        this.packageNames = new HashSet<>();
+        for (String fileName : fileNames) {
+            if (fileName.endsWith(PROFILE_SUFFIX)) {
+                packageNames.add(fileName.substring(0, fileName.length() - PROFILE_SUFFIX.length()));
+            }
+        }
+    }
+
+    /** Returns the app's profile, loading it if needed, or null if the app is not monitored. */
+    public synchronized PlatformProfile get(String packageName) {
+        PlatformProfile profile = profiles.get(packageName);
+        if (profile != null || !packageNames.contains(packageName)) return profile;
+
+        try (InputStream in = source.open(packageName + PROFILE_SUFFIX)) {
+            profile = PlatformProfile.parse(packageName, in, source);
+        } catch (IOException e) {
+            Log.e(TAG, "Cannot load profile for " + packageName, e);
+            packageNames.remove(packageName);
+            return null;
+        }
+        profiles.put(packageName, profile);
+        return profile;
+    }
+
+    /** Package names of every app with a profile, for the accessibility service filter. */
+    public synchronized String[] getPackageNames() {
+        return packageNames.toArray(new String[0]);
+    }
+
+    public synchronized int getLoadedCount() { return profiles.size(); }
+}
@@ -0,0 +1,169 @@
+package com.socialmediasafety.rating;
+
+import android.os.SystemClock;
+import com.socialmediasafety.rating.analysis.AuthorReputation;
+import com.socialmediasafety.rating.analysis.NearDuplicateIndex;
+import com.socialmediasafety.rating.analysis.RiskAnalysis;
+import com.socialmediasafety.rating.analysis.RiskFactor;
+import com.socialmediasafety.rating.analysis.RiskLevel;
+import com.socialmediasafety.rating.analysis.TextCanonicalizer;
+
+/**
+ * Scores individual posts for the per-post overlays: quick phrase checks plus
+ * near-duplicate tracking for copy-paste bot campaigns.
+ *
+ * How much runs depends on the author's {@link AuthorReputation}: posts by
+ * trusted authors only get the phrase checks, while posts by authors with
+ * recent high-risk posts also go through the full tiered pipeline and get a
+ * score boost for the author's history.
+ *
+ * Safe to call from several threads; the shared duplicate index and author
+ * reputation lock themselves.
+ */
+public class PostAnalyzer {
+
+    // Near-duplicate tracking for copy-paste bot campaigns
+    private static final int DUPLICATE_INDEX_CAPACITY = 512;
+    private static final long DUPLICATE_WINDOW_MS = 10 * 60 * 1000;
+
+    // Spam category points per near-identical post, and their cap
+    private static final int DUPLICATE_SPAM_RISK = 20;
+    private static final int MAX_DUPLICATE_SPAM_RISK = 60;
+
+    private static final double SCAM_THRESHOLD = 0.6;
+
+    // Authors remembered at once, and how fast their past posts stop counting
+    private static final int AUTHOR_CAPACITY = 256;
+    private static final long AUTHOR_HALF_LIFE_MS = 6 * 60 * 60 * 1000;
+    // Score added per risky post by a suspect author, and its cap
+    private static final double AUTHOR_BOOST_PER_POST = 0.2;
+    private static final double MAX_AUTHOR_BOOST = 0.4;
+    // Score added when the full pipeline flags a suspect author's post
+    private static final double FULL_HIGH_WEIGHT = 0.6;
+    private static final double FULL_MEDIUM_WEIGHT = 0.3;
+
+    private static final ThreadLocal<TextCanonicalizer> CANONICALIZER = new ThreadLocal<TextCanonicalizer>() {
+        @Override
+        protected TextCanonicalizer initialValue() {
+            return new TextCanonicalizer();
+        }
+    };
+
+    // Result of the full pipeline for suspect authors, merged into the post's
+    private static final ThreadLocal<RiskAnalysis> FULL_ANALYSIS = new ThreadLocal<RiskAnalysis>() {
+        @Override
+        protected RiskAnalysis initialValue() {
+            return new RiskAnalysis();
+        }
+    };
+
+    private final ContentAnalyzer contentAnalyzer;
+    private final NearDuplicateIndex nearDuplicateIndex =
+            new NearDuplicateIndex(DUPLICATE_INDEX_CAPACITY, DUPLICATE_WINDOW_MS);
+    private final AuthorReputation authorReputation = new AuthorReputation(AUTHOR_CAPACITY, AUTHOR_HALF_LIFE_MS);
+
+    /** Uses the given analyzer for the full pass over posts by suspect authors. */
+    public PostAnalyzer(ContentAnalyzer contentAnalyzer) {
+        this.contentAnalyzer = contentAnalyzer;
+    }
+
+    /** Scores the post and stores the verdict on it. */
+    public void analyze(ScreenSnapshot.Post post, Platform platform) {
+        long startTime = System.nanoTime();
+        long now = SystemClock.elapsedRealtime();
+        String text = post.getText();
+        String author = post.getAuthor();
+        int standing = authorReputation.lookup(author, now);
+
+        RiskAnalysis analysis = analyzeContent(text);
+        analysis.setPlatform(platform);
+
+        // Trusted authors stop at the phrase checks
+        if (standing != AuthorReputation.STANDING_TRUSTED) {
+            // Same text posted again with small edits points to a bot campaign
+            int nearDuplicates = nearDuplicateIndex.recordAndCount(text, author, now);
+            if (nearDuplicates > 0) {
+                addDuplicateRisk(nearDuplicates, analysis);
+            }
+        }
+
+        if (standing == AuthorReputation.STANDING_SUSPECT) {
+            analyzeSuspect(text, platform, author, analysis);
+        }
+
+        // Determine if it's Clean or Scam
+        boolean isScam = analysis.getTotalRiskScore() > SCAM_THRESHOLD;
+        if (isScam) {
+            analysis.setRiskLevel(RiskLevel.HIGH);
+        }
+        post.setVerdict(analysis, isScam);
+
+        authorReputation.record(author, text.hashCode(), analysis.getRiskLevel(), now);
+        authorReputation.recordCost(standing, System.nanoTime() - startTime);
+    }
+
+    public AuthorReputation getAuthorReputation() {
+        return authorReputation;
+    }
+
+    // Full tiered pipeline plus a boost for the author's recent risky posts
+    private void analyzeSuspect(String text, Platform platform, String author, RiskAnalysis analysis) {
+        RiskAnalysis full = contentAnalyzer.analyzeContent(text, platform, FULL_ANALYSIS.get(),
+                ContentAnalyzer.DEPTH_THOROUGH);
+        if (full.getRiskLevel() != RiskLevel.SAFE) {
+            analysis.addRisk(full, full.getRiskLevel() == RiskLevel.HIGH ? FULL_HIGH_WEIGHT : FULL_MEDIUM_WEIGHT);
+        }
+        int riskyPosts = authorReputation.getRiskyPosts(author);
+        analysis.addRisk(RiskFactor.RISKY_AUTHOR, riskyPosts,
+                Math.min(riskyPosts * AUTHOR_BOOST_PER_POST, MAX_AUTHOR_BOOST));
+    }
+
+    // Repetition is spam, so it goes into the spam category; the score grows by what the category gained
+    private static void addDuplicateRisk(int nearDuplicates, RiskAnalysis analysis) {
+        int spamRisk = analysis.getCategoryScore(RiskAnalysis.CATEGORY_SPAM);
+        int added = Math.min(Math.min(nearDuplicates * DUPLICATE_SPAM_RISK, MAX_DUPLICATE_SPAM_RISK), 100 - spamRisk);
+        analysis.setSpamRisk(spamRisk + added);
+        analysis.addRisk(RiskFactor.COPY_PASTE_CAMPAIGN, nearDuplicates, added / 100.0);
+    }
+
+    private RiskAnalysis analyzeContent(String text) {
+        RiskAnalysis analysis = new RiskAnalysis();
+
+        // Basic scam detection patterns, after undoing obfuscation like "fr33" or "b i t c o i n"
+        text = CANONICALIZER.get().canonicalize(text).toString().toLowerCase();
+
+        // Financial scam indicators
+        if (text.contains("crypto") && (text.contains("guaranteed") || text.contains("profit"))) {
+            analysis.addRisk(RiskFactor.CRYPTO_SCAM, 0.8);
+        }
+
+        if (text.contains("bitcoin") && text.contains("double")) {
+            analysis.addRisk(RiskFactor.BITCOIN_DOUBLING, 0.9);
+        }
+
+        if (text.contains("click here") && text.contains("win")) {
+            analysis.addRisk(RiskFactor.CLICK_BAIT, 0.7);
+        }
+
+        // Phishing indicators
+        if (text.contains("verify") && text.contains("account")) {
+            analysis.addRisk(RiskFactor.VERIFICATION_PHISHING, 0.8);
+        }
+
+        if (text.contains("suspended") && text.contains("click")) {
+            analysis.addRisk(RiskFactor.SUSPENSION_PHISHING, 0.9);
+        }
+
+        // Urgency indicators
+        if (text.contains("urgent") || text.contains("limited time")) {
+            analysis.addRisk(RiskFactor.URGENCY, 0.6);
+        }
+
+        // Giveaway scams
+        if (text.contains("giveaway") && text.contains("retweet")) {
+            analysis.addRisk(RiskFactor.FAKE_GIVEAWAY, 0.7);
+        }
+
+        return analysis;
+    }
+}
@@ -0,0 +1,163 @@
+package com.socialmediasafety.rating;
+
+import android.content.Context;
+import android.graphics.Color;
+import android.graphics.PixelFormat;
+import android.graphics.Rect;
+import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.provider.Settings;
+import android.util.Log;
+import android.view.Gravity;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.WindowManager;
+import android.widget.TextView;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * Labels each post container on screen as SCAM or CLEAN with a small overlay
+ * that removes itself a few seconds after the post was last seen.
+ *
+ * Each post gets one overlay, keyed by the hash of its text: when the post
+ * shows up again, e.g. while scrolling, its overlay is moved rather than
+ * added once more. Changes go through the shared {@link OverlayUpdateQueue},
+ * so they reach the screen once per frame.
+ */
+public class PostOverlayConsumer implements ScreenConsumer {
+
+    private static final String TAG = "PostOverlayConsumer";
+    private static final long OVERLAY_LIFETIME_MS = 5000;
+
+    private static final class Overlay {
+        final boolean scam;
+        long expiresAt;
+
+        Overlay(boolean scam) {
+            this.scam = scam;
+        }
+    }
+
+    private final Context context;
+    private final WindowManager windowManager;
+    private final OverlayUpdateQueue overlayUpdates;
+    private final Map<Long, Overlay> overlays = new HashMap<>();
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final Runnable expireOverlays = this::expireOverlays;
+    private boolean expiryScheduled;
+    // Mirrors overlays.size() for readers on other threads
+    private volatile int overlayCount;
+
+    public PostOverlayConsumer(Context context, OverlayUpdateQueue overlayUpdates) {
+        this.context = context;
+        this.windowManager = (WindowManager) context.getSystemService(Context.WINDOW_SERVICE);
+        this.overlayUpdates = overlayUpdates;
+    }
+
+    @Override
+    public void onScreen(ScreenSnapshot snapshot) {
+        if (snapshot.getPosts().isEmpty() || windowManager == null) return;
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.M && !Settings.canDrawOverlays(context)) return;
+
+        long expiresAt = SystemClock.uptimeMillis() + OVERLAY_LIFETIME_MS;
+        for (ScreenSnapshot.Post post : snapshot.getPosts()) {
+            Long key = DetectionRecord.hashText(post.getText());
+            Overlay overlay = overlays.get(key);
+            WindowManager.LayoutParams params = createParams(post.getBounds());
+            if (overlay != null && overlay.scam == post.isScam()) {
+                overlayUpdates.move(key, params);
+            } else {
+                overlay = createPostOverlay(key, params, post.isScam() ? "SCAM" : "CLEAN", post.isScam());
+                if (overlay == null) continue;
+            }
+            overlay.expiresAt = expiresAt;
+        }
+        overlayCount = overlays.size();
+        scheduleExpiry();
+    }
+
+    /** Post overlays currently on screen. */
+    public int getOverlayCount() { return overlayCount; }
+
+    @Override
+    public void release() {
+        handler.removeCallbacks(expireOverlays);
+        expiryScheduled = false;
+        for (Long key : overlays.keySet()) {
+            overlayUpdates.remove(key);
+        }
+        overlays.clear();
+        overlayCount = 0;
+    }
+
+    private Overlay createPostOverlay(Long key, WindowManager.LayoutParams params, String label, boolean isScam) {
+        try {
+            // Create overlay view
+            View overlayView = LayoutInflater.from(context).inflate(R.layout.post_overlay, null);
+            TextView labelView = overlayView.findViewById(R.id.labelText);
+
+            labelView.setText(label);
+            labelView.setBackgroundColor(isScam ? Color.RED : Color.GREEN);
+            labelView.setTextColor(Color.WHITE);
+
+            // Replaces the overlay with the old label, if any
+            overlayUpdates.add(key, overlayView, params);
+            Overlay overlay = new Overlay(isScam);
+            overlays.put(key, overlay);
+            return overlay;
+        } catch (Exception e) {
+            Log.e(TAG, "Error displaying post overlay", e);
+            return null;
+        }
+    }
+
+    private static WindowManager.LayoutParams createParams(Rect bounds) {
+        WindowManager.LayoutParams params = new WindowManager.LayoutParams(
+                WindowManager.LayoutParams.WRAP_CONTENT,
+                WindowManager.LayoutParams.WRAP_CONTENT,
+                Build.VERSION.SDK_INT >= Build.VERSION_CODES.O ?
+                        WindowManager.LayoutParams.TYPE_APPLICATION_OVERLAY :
+                        WindowManager.LayoutParams.TYPE_PHONE,
+                WindowManager.LayoutParams.FLAG_NOT_FOCUSABLE |
+                        WindowManager.LayoutParams.FLAG_NOT_TOUCHABLE |
+                        WindowManager.LayoutParams.FLAG_LAYOUT_IN_SCREEN,
+                PixelFormat.TRANSLUCENT
+        );
+
+        // Position overlay at top-right of post
+        params.gravity = Gravity.TOP | Gravity.START;
+        params.x = bounds.right - 150; // 150px from right edge
+        params.y = bounds.top + 20;    // 20px from top
+        return params;
+    }
+
+    // One timer for all overlays, set for the one that expires first
+    private void scheduleExpiry() {
+        if (expiryScheduled || overlays.isEmpty()) return;
+        long next = Long.MAX_VALUE;
+        for (Overlay overlay : overlays.values()) {
+            next = Math.min(next, overlay.expiresAt);
+        }
+        expiryScheduled = true;
+        handler.postAtTime(expireOverlays, next);
+    }
+
+    private void expireOverlays() {
+        expiryScheduled = false;
+        long now = SystemClock.uptimeMillis();
+        Iterator<Map.Entry<Long, Overlay>> entries = overlays.entrySet().iterator();
+        while (entries.hasNext()) {
+            Map.Entry<Long, Overlay> entry = entries.next();
+            if (entry.getValue().expiresAt <= now) {
+                overlayUpdates.remove(entry.getKey());
+                entries.remove();
+            }
+        }
+        overlayCount = overlays.size();
+        scheduleExpiry();
+    }
+}
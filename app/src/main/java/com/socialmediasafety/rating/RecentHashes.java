@@ -0,0 +1,32 @@
+package com.socialmediasafety.rating;
+
+import java.util.Arrays;
+
+/**
+ * Remembers the last few text hashes seen, so consumers can skip the screens
+ * and posts that content-change events deliver again and again. Not thread
+ * safe; each consumer keeps its own.
+ */
+class RecentHashes {
+
+    private final long[] hashes;
+    private int next;
+
+    RecentHashes(int capacity) {
+        hashes = new long[capacity];
+    }
+
+    /** Remembers the hash and returns true, or returns false if it was seen recently. */
+    boolean add(long hash) {
+        for (long recent : hashes) {
+            if (recent == hash) return false;
+        }
+        hashes[next] = hash;
+        next = (next + 1) % hashes.length;
+        return true;
+    }
+
+    void clear() {
+        Arrays.fill(hashes, 0);
+    }
+}
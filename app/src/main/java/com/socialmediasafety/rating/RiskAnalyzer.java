@@ -1,15 +1,20 @@
 package com.socialmediasafety.rating;
 
-import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.regex.Matcher;
 import java.util.regex.Pattern;
+import com.socialmediasafety.rating.analysis.AnalysisBudget;
+import com.socialmediasafety.rating.analysis.DomainSpoofDetector;
 import com.socialmediasafety.rating.analysis.RiskAnalysis;
+import com.socialmediasafety.rating.analysis.RiskFactor;
 import com.socialmediasafety.rating.analysis.RiskLevel;
+import com.socialmediasafety.rating.analysis.TextCanonicalizer;
 
 /**
  * Risk analysis engine that evaluates social media content for potential threats.
  * Ports the same analysis logic from the browser extension to Android.
+ * Keeps no state between calls, so one instance can be shared across threads.
  */
 public class RiskAnalyzer {
     
@@ -69,77 +74,126 @@ public class RiskAnalyzer {
         "join my server", "invite reward", "boost reward"
     );
     
-    // URL patterns that might indicate suspicious links
+    // Score from which content is high risk; everything only adds to the score,
+    // so once it is reached the remaining checks cannot change the level
+    private static final int HIGH_RISK_SCORE = 60;
+
+    /** A phrase list with the score each match adds and the factor it records. */
+    private static final class PhraseRule {
+        final List<String> phrases;
+        final int weight;
+        final RiskFactor factor;
+
+        PhraseRule(List<String> phrases, int weight, RiskFactor factor) {
+            this.phrases = phrases;
+            this.weight = weight;
+            this.factor = factor;
+        }
+    }
+
+    // Heaviest first, so the most decisive lists get to end the evaluation early
+    private static final PhraseRule[] PHRASE_RULES = {
+        new PhraseRule(MALICIOUS_PATTERNS, 25, RiskFactor.MALICIOUS_PHRASES),
+        new PhraseRule(PHISHING_PATTERNS, 20, RiskFactor.PHISHING_PHRASES),
+        new PhraseRule(FINANCIAL_PATTERNS, 15, RiskFactor.FINANCIAL_PHRASES),
+        new PhraseRule(SPAM_PATTERNS, 10, RiskFactor.SPAM_PHRASES),
+        new PhraseRule(URGENCY_PATTERNS, 8, RiskFactor.URGENCY_PHRASES),
+        new PhraseRule(BOT_PATTERNS, 8, RiskFactor.BOT_PHRASES)
+    };
+    
+    // URL patterns that might indicate suspicious links; only ever used with
+    // find(), so no leading or trailing .* that would backtrack on long texts
     private static final Pattern SUSPICIOUS_URL_PATTERN = Pattern.compile(
-        ".*(bit\\.ly|tinyurl|t\\.co|goo\\.gl|ow\\.ly|short\\.link).*",
+        "(bit\\.ly|tinyurl|t\\.co|goo\\.gl|ow\\.ly|short\\.link)",
         Pattern.CASE_INSENSITIVE
     );
     
+    private static final Pattern LINK_PATTERN = Pattern.compile("https?://\\S+");
+
+    private static final ThreadLocal<TextCanonicalizer> CANONICALIZER = new ThreadLocal<TextCanonicalizer>() {
+        @Override
+        protected TextCanonicalizer initialValue() {
+            return new TextCanonicalizer();
+        }
+    };
+
+    // The spoof detector reuses its buffers between scans, so each thread gets its own
+    private static final ThreadLocal<DomainSpoofDetector> DOMAIN_SPOOF_DETECTOR = new ThreadLocal<DomainSpoofDetector>() {
+        @Override
+        protected DomainSpoofDetector initialValue() {
+            return new DomainSpoofDetector();
+        }
+    };
+    
     public RiskAnalysis analyzeContent(String text, Platform platform) {
+        RiskAnalysis analysis = new RiskAnalysis();
+        analysis.setPlatform(platform);
         if (text == null || text.trim().isEmpty()) {
-            return new RiskAnalysis(0, RiskLevel.MINIMAL, new ArrayList<>(), platform);
+            analysis.setRiskLevel(RiskLevel.MINIMAL);
+            return analysis;
         }
         
-        String lowercaseText = text.toLowerCase();
-        List<String> riskFactors = new ArrayList<>();
-        int riskScore = 0;
-        
-        // Check financial scam patterns
-        int financialMatches = countPatternMatches(lowercaseText, FINANCIAL_PATTERNS);
-        if (financialMatches > 0) {
-            riskScore += financialMatches * 15;
-            riskFactors.add("Financial scam indicators (" + financialMatches + " matches)");
+        long deadline = AnalysisBudget.deadline(System.nanoTime());
+        // Huge screen dumps are only analyzed in their head and tail windows
+        String sampled = AnalysisBudget.sample(text);
+        if (sampled != text) {
+            text = sampled;
+            analysis.setTruncated(true);
         }
         
-        // Check phishing patterns
-        int phishingMatches = countPatternMatches(lowercaseText, PHISHING_PATTERNS);
-        if (phishingMatches > 0) {
-            riskScore += phishingMatches * 20;
-            riskFactors.add("Phishing indicators (" + phishingMatches + " matches)");
-        }
+        // Phrase lists match after undoing obfuscation like "fr33 n1tr0" or zero-width characters;
+        // the text characteristics and URLs keep the original
+        String lowercaseText = CANONICALIZER.get().canonicalize(text).toString().toLowerCase();
+        int riskScore = 0;
         
-        // Check urgency manipulation
-        int urgencyMatches = countPatternMatches(lowercaseText, URGENCY_PATTERNS);
-        if (urgencyMatches > 0) {
-            riskScore += urgencyMatches * 8;
-            riskFactors.add("Urgency manipulation (" + urgencyMatches + " matches)");
+        // Phrase lists first, then the text characteristics, then the URL regexes,
+        // the costliest; stops as soon as the level is settled
+        for (PhraseRule rule : PHRASE_RULES) {
+            if (canStop(riskScore, deadline, analysis)) break;
+            int matches = countPatternMatches(lowercaseText, rule.phrases);
+            if (matches > 0) {
+                riskScore += matches * rule.weight;
+                analysis.addFactor(rule.factor, matches);
+            }
         }
         
-        // Check spam patterns
-        int spamMatches = countPatternMatches(lowercaseText, SPAM_PATTERNS);
-        if (spamMatches > 0) {
-            riskScore += spamMatches * 10;
-            riskFactors.add("Spam indicators (" + spamMatches + " matches)");
+        // Platform-specific analysis
+        if (!canStop(riskScore, deadline, analysis)) {
+            riskScore += analyzePlatformSpecific(lowercaseText, platform, analysis);
         }
         
-        // Check bot patterns
-        int botMatches = countPatternMatches(lowercaseText, BOT_PATTERNS);
-        if (botMatches > 0) {
-            riskScore += botMatches * 8;
-            riskFactors.add("Bot-like behavior (" + botMatches + " matches)");
+        // Additional analysis
+        if (!canStop(riskScore, deadline, analysis)) {
+            riskScore += analyzeTextCharacteristics(text, analysis);
         }
-        
-        // Check malicious patterns
-        int maliciousMatches = countPatternMatches(lowercaseText, MALICIOUS_PATTERNS);
-        if (maliciousMatches > 0) {
-            riskScore += maliciousMatches * 25;
-            riskFactors.add("Malicious content indicators (" + maliciousMatches + " matches)");
+        if (!canStop(riskScore, deadline, analysis)) {
+            riskScore += analyzeSuspiciousUrls(text, analysis);
         }
         
-        // Platform-specific analysis
-        riskScore += analyzePlatformSpecific(lowercaseText, platform, riskFactors);
-        
-        // Additional analysis
-        riskScore += analyzeTextCharacteristics(text, riskFactors);
-        riskScore += analyzeSuspiciousUrls(text, riskFactors);
-        
         // Determine risk level
         RiskLevel riskLevel = determineRiskLevel(riskScore);
         
         // Cap at maximum score
         riskScore = Math.min(riskScore, 100);
         
-        return new RiskAnalysis(riskScore, riskLevel, riskFactors, platform);
+        analysis.setRiskScore(riskScore);
+        analysis.setRiskLevel(riskLevel);
+        return analysis;
+    }
+    
+    /**
+     * True once the score is high risk or the deadline has passed; in the
+     * latter case the result is marked truncated.
+     */
+    private static boolean canStop(int riskScore, long deadline, RiskAnalysis analysis) {
+        if (riskScore >= HIGH_RISK_SCORE) {
+            return true;
+        }
+        if (AnalysisBudget.isOver(deadline)) {
+            analysis.setTruncated(true);
+            return true;
+        }
+        return false;
     }
     
     private int countPatternMatches(String text, List<String> patterns) {
@@ -152,7 +206,7 @@ public class RiskAnalyzer {
         return matches;
     }
     
-    private int analyzePlatformSpecific(String text, Platform platform, List<String> riskFactors) {
+    private int analyzePlatformSpecific(String text, Platform platform, RiskAnalysis analysis) {
         int platformRiskScore = 0;
         
         switch (platform) {
@@ -160,7 +214,7 @@ public class RiskAnalyzer {
                 int twitterMatches = countPatternMatches(text, TWITTER_ENGAGEMENT_BAIT);
                 if (twitterMatches > 0) {
                     platformRiskScore += twitterMatches * 8;
-                    riskFactors.add("Twitter engagement bait (" + twitterMatches + " matches)");
+                    analysis.addFactor(RiskFactor.TWITTER_ENGAGEMENT_BAIT, twitterMatches);
                 }
                 break;
                 
@@ -168,7 +222,7 @@ public class RiskAnalyzer {
                 int redditMatches = countPatternMatches(text, REDDIT_KARMA_FARMING);
                 if (redditMatches > 0) {
                     platformRiskScore += redditMatches * 10;
-                    riskFactors.add("Reddit karma farming (" + redditMatches + " matches)");
+                    analysis.addFactor(RiskFactor.REDDIT_KARMA_FARMING, redditMatches);
                 }
                 break;
                 
@@ -176,7 +230,7 @@ public class RiskAnalyzer {
                 int discordMatches = countPatternMatches(text, DISCORD_SCAM_PATTERNS);
                 if (discordMatches > 0) {
                     platformRiskScore += discordMatches * 15;
-                    riskFactors.add("Discord scam patterns (" + discordMatches + " matches)");
+                    analysis.addFactor(RiskFactor.DISCORD_SCAM_PHRASES, discordMatches);
                 }
                 break;
                 
@@ -192,7 +246,7 @@ public class RiskAnalyzer {
         return platformRiskScore;
     }
     
-    private int analyzeTextCharacteristics(String text, List<String> riskFactors) {
+    private int analyzeTextCharacteristics(String text, RiskAnalysis analysis) {
         int characteristicsScore = 0;
         
         // Check for excessive uppercase (shouting/spam indicator)
@@ -202,49 +256,55 @@ public class RiskAnalyzer {
             
             if (uppercaseRatio > 0.5) {
                 characteristicsScore += 12;
-                riskFactors.add("Excessive uppercase text");
+                analysis.addFactor(RiskFactor.EXCESSIVE_UPPERCASE, 0);
             }
         }
         
         // Check for very short text with suspicious content
         if (text.length() < 30 && (text.contains("http") || text.contains("link"))) {
             characteristicsScore += 8;
-            riskFactors.add("Short text with links");
+            analysis.addFactor(RiskFactor.SHORT_TEXT_WITH_LINKS, 0);
         }
         
         // Check for excessive punctuation
         long punctuationCount = text.chars().filter(ch -> "!?.,;:".indexOf(ch) >= 0).count();
         if (punctuationCount > text.length() * 0.1 && text.length() > 10) {
             characteristicsScore += 6;
-            riskFactors.add("Excessive punctuation");
+            analysis.addFactor(RiskFactor.EXCESSIVE_PUNCTUATION, 0);
         }
         
         return characteristicsScore;
     }
     
-    private int analyzeSuspiciousUrls(String text, List<String> riskFactors) {
+    private int analyzeSuspiciousUrls(String text, RiskAnalysis analysis) {
         int urlRiskScore = 0;
         
         // Check for shortened URLs
         if (SUSPICIOUS_URL_PATTERN.matcher(text).find()) {
             urlRiskScore += 15;
-            riskFactors.add("Contains shortened URLs");
+            analysis.addFactor(RiskFactor.SHORTENED_URLS, 0);
         }
         
         // Count total number of URLs
-        long urlCount = text.split("\\s+").length - 
-                       text.replaceAll("http[s]?://\\S+", "").split("\\s+").length;
+        Matcher links = LINK_PATTERN.matcher(text);
+        int urlCount = 0;
+        while (links.find()) {
+            urlCount++;
+        }
         
         if (urlCount > 2) {
             urlRiskScore += Math.min(urlCount * 5, 20);
-            riskFactors.add("Multiple URLs (" + urlCount + " links)");
+            analysis.addFactor(RiskFactor.MULTIPLE_URLS, urlCount);
         }
         
+        // Check for look-alike domains impersonating known brands
+        urlRiskScore += DOMAIN_SPOOF_DETECTOR.get().score(text, analysis);
+        
         return urlRiskScore;
     }
     
     private RiskLevel determineRiskLevel(int riskScore) {
-        if (riskScore >= 60) {
+        if (riskScore >= HIGH_RISK_SCORE) {
             return RiskLevel.HIGH;
         } else if (riskScore >= 30) {
             return RiskLevel.MEDIUM;
@@ -0,0 +1,199 @@
+package com.socialmediasafety.rating;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import com.socialmediasafety.rating.analysis.RiskLevel;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Process-wide counters of analyzed posts by platform and risk level.
+ *
+ * Recording a post is a single uncontended atomic add: counters are striped
+ * by thread, each stripe on its own cache lines, and only summed when a
+ * snapshot is taken. Listeners are not called per post; a publisher on the
+ * main thread pushes at most one snapshot per {@link #PUBLISH_INTERVAL_MS},
+ * so reporting cost stays constant however many posts are scored.
+ *
+ * Totals carry over between sessions: the post and threat counts are saved
+ * to SharedPreferences.
+ */
+public class SafetyStats {
+
+    public static final long PUBLISH_INTERVAL_MS = 1000;
+
+    private static final String COUNTER_PREFS = "meso_counters";
+    private static final String KEY_POSTS_ANALYZED = "posts_analyzed";
+    private static final String KEY_THREATS_DETECTED = "threats_detected";
+    private static final int SAVE_INTERVAL = 50;
+
+    private static final int PLATFORMS = Platform.values().length;
+    private static final int LEVELS = RiskLevel.values().length;
+    private static final int CELLS = PLATFORMS * LEVELS;
+    // Round each stripe up to whole 64-byte cache lines of longs
+    private static final int STRIPE_WIDTH = (CELLS + 7) & ~7;
+    private static final int STRIPES = stripeCount();
+
+    private static final SafetyStats INSTANCE = new SafetyStats();
+
+    /** Receives snapshots on the main thread. */
+    public interface Listener {
+        void onStatsUpdated(Snapshot snapshot);
+    }
+
+    private final AtomicLongArray counts = new AtomicLongArray(STRIPES * STRIPE_WIDTH);
+    private final AtomicLong restoredPosts = new AtomicLong();
+    private final AtomicLong restoredThreats = new AtomicLong();
+    private final AtomicBoolean restored = new AtomicBoolean();
+    private final AtomicBoolean publishPending = new AtomicBoolean();
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final Runnable publishRunnable = this::publish;
+    private volatile long lastPublishTime;
+    private volatile SharedPreferences counterPrefs;
+    // Written by the restore thread and whichever thread saves
+    private volatile long lastSavedPosts;
+
+    public static SafetyStats getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Loads the totals of earlier sessions in the background. Only the first
+     * call per process has an effect.
+     */
+    public void restore(Context context) {
+        if (!restored.compareAndSet(false, true)) return;
+
+        final Context appContext = context.getApplicationContext();
+        new Thread(() -> {
+            SharedPreferences prefs = appContext.getSharedPreferences(COUNTER_PREFS, Context.MODE_PRIVATE);
+            restoredPosts.set(prefs.getInt(KEY_POSTS_ANALYZED, 0));
+            restoredThreats.set(prefs.getInt(KEY_THREATS_DETECTED, 0));
+            // Saving before the old total is known would overwrite it
+            lastSavedPosts = restoredPosts.get();
+            counterPrefs = prefs;
+            schedulePublish();
+        }, "stats-restore").start();
+    }
+
+    /** Saves the running post and threat totals; call when a service shuts down. */
+    public void save() {
+        SharedPreferences prefs = counterPrefs;
+        if (prefs == null) return;
+        Snapshot snapshot = snapshot();
+        long posts = snapshot.getPostCount();
+        prefs.edit()
+                .putInt(KEY_POSTS_ANALYZED, (int) Math.min(posts, Integer.MAX_VALUE))
+                .putInt(KEY_THREATS_DETECTED, (int) Math.min(snapshot.getThreatCount(), Integer.MAX_VALUE))
+                .apply();
+        lastSavedPosts = posts;
+    }
+
+    /** Counts one analyzed post. Safe to call from any thread. */
+    public void record(Platform platform, RiskLevel level) {
+        if (platform == null) platform = Platform.UNKNOWN;
+        if (level == null) level = RiskLevel.SAFE;
+        int stripe = (int) (Thread.currentThread().getId() & (STRIPES - 1));
+        counts.incrementAndGet(stripe * STRIPE_WIDTH + platform.ordinal() * LEVELS + level.ordinal());
+        schedulePublish();
+    }
+
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+        // Give new listeners current numbers without waiting for the next post
+        schedulePublish();
+    }
+
+    public void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    /** Sums the stripes into an immutable snapshot. */
+    public Snapshot snapshot() {
+        long[] cells = new long[CELLS];
+        for (int stripe = 0; stripe < STRIPES; stripe++) {
+            int base = stripe * STRIPE_WIDTH;
+            for (int cell = 0; cell < CELLS; cell++) {
+                cells[cell] += counts.get(base + cell);
+            }
+        }
+        return new Snapshot(cells, restoredPosts.get(), restoredThreats.get());
+    }
+
+    private void schedulePublish() {
+        // Cheap read first so the hot path rarely touches the flag's cache line
+        if (publishPending.get() || !publishPending.compareAndSet(false, true)) return;
+        long wait = lastPublishTime + PUBLISH_INTERVAL_MS - SystemClock.elapsedRealtime();
+        mainHandler.postDelayed(publishRunnable, Math.max(0, wait));
+    }
+
+    private void publish() {
+        publishPending.set(false);
+        lastPublishTime = SystemClock.elapsedRealtime();
+
+        Snapshot snapshot = snapshot();
+        if (snapshot.getPostCount() - lastSavedPosts >= SAVE_INTERVAL) {
+            save();
+        }
+        for (Listener listener : listeners) {
+            listener.onStatsUpdated(snapshot);
+        }
+    }
+
+    private static int stripeCount() {
+        int cpus = Math.max(1, Runtime.getRuntime().availableProcessors());
+        return Math.min(16, Integer.highestOneBit(cpus * 2 - 1) << 1);
+    }
+
+    /** Point-in-time totals. Threats are posts rated MEDIUM or HIGH. */
+    public static class Snapshot {
+        private final long[] cells;
+        private final long restoredPosts;
+        private final long restoredThreats;
+
+        Snapshot(long[] cells, long restoredPosts, long restoredThreats) {
+            this.cells = cells;
+            this.restoredPosts = restoredPosts;
+            this.restoredThreats = restoredThreats;
+        }
+
+        public long getCount(Platform platform, RiskLevel level) {
+            return cells[platform.ordinal() * LEVELS + level.ordinal()];
+        }
+
+        public long getPlatformCount(Platform platform) {
+            long total = 0;
+            for (int level = 0; level < LEVELS; level++) {
+                total += cells[platform.ordinal() * LEVELS + level];
+            }
+            return total;
+        }
+
+        public long getLevelCount(RiskLevel level) {
+            long total = 0;
+            for (int platform = 0; platform < PLATFORMS; platform++) {
+                total += cells[platform * LEVELS + level.ordinal()];
+            }
+            return total;
+        }
+
+        public long getPostCount() {
+            long total = restoredPosts;
+            for (long cell : cells) {
+                total += cell;
+            }
+            return total;
+        }
+
+        public long getThreatCount() {
+            return restoredThreats + getLevelCount(RiskLevel.MEDIUM) + getLevelCount(RiskLevel.HIGH);
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package com.socialmediasafety.rating;
+
+/**
+ * Shows the whole-screen safety badge for each analyzed screen.
+ */
+public class ScreenBadgeConsumer implements ScreenConsumer {
+
+    private final OverlayManager overlayManager;
+
+    public ScreenBadgeConsumer(OverlayManager overlayManager) {
+        this.overlayManager = overlayManager;
+    }
+
+    @Override
+    public void onScreen(ScreenSnapshot snapshot) {
+        if (snapshot.getScreenAnalysis() != null) {
+            // Will check permissions internally
+            overlayManager.showSafetyBadge(snapshot.getScreenAnalysis(), snapshot.getProfile());
+        }
+    }
+
+    @Override
+    public void release() {
+        overlayManager.hideAllOverlays();
+    }
+}
@@ -0,0 +1,15 @@
+package com.socialmediasafety.rating;
+
+/**
+ * Receives every analyzed screen from {@link MonitoringService}. Consumers run
+ * on the main thread in registration order and must not walk the node tree
+ * themselves; everything they need is in the snapshot. The screen analysis is
+ * reused for the next screen, so consumers must not keep it past onScreen.
+ */
+public interface ScreenConsumer {
+
+    void onScreen(ScreenSnapshot snapshot);
+
+    /** Called when the service is interrupted or destroyed; drop any overlays or state. */
+    void release();
+}
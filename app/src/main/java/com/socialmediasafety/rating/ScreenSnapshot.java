@@ -0,0 +1,152 @@
+package com.socialmediasafety.rating;
+
+import android.graphics.Rect;
+import com.socialmediasafety.rating.analysis.RiskAnalysis;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Everything consumers need from one accessibility event, derived from a
+ * single {@link FlatTree} read of the node tree, so consumers never make
+ * cross-process calls or hold on to AccessibilityNodeInfo objects.
+ *
+ * The dispatcher attaches the screen analysis and per-post verdicts before the
+ * snapshot is handed to consumers, so each result is computed once per event.
+ */
+public class ScreenSnapshot {
+
+    private final FlatTree tree;
+    private final PlatformProfile profile;
+    private final int eventType;
+    private final long timestamp;
+    private final String text;
+    private final List<Post> posts;
+    private RiskAnalysis screenAnalysis;
+
+    /** A post container found on screen. */
+    public static class Post {
+        private final String text;
+        private final Rect bounds;
+        private final String author;
+        private RiskAnalysis analysis;
+        private boolean scam;
+
+        Post(String text, Rect bounds, String author) {
+            this.text = text;
+            this.bounds = bounds;
+            this.author = author;
+        }
+
+        public String getText() { return text; }
+        public Rect getBounds() { return bounds; }
+        /** The author's @handle, or null if none was found in the post. */
+        public String getAuthor() { return author; }
+        public RiskAnalysis getAnalysis() { return analysis; }
+        public boolean isScam() { return scam; }
+
+        void setVerdict(RiskAnalysis analysis, boolean scam) {
+            this.analysis = analysis;
+            this.scam = scam;
+        }
+    }
+
+    private ScreenSnapshot(FlatTree tree, PlatformProfile profile, int eventType, long timestamp,
+                           String text, List<Post> posts) {
+        this.tree = tree;
+        this.profile = profile;
+        this.eventType = eventType;
+        this.timestamp = timestamp;
+        this.text = text;
+        this.posts = posts;
+    }
+
+    /**
+     * Derives the screen text and, for apps whose profile names their post
+     * containers, the text and bounds of every post from the window's tree.
+     */
+    public static ScreenSnapshot from(FlatTree tree, PlatformProfile profile, int eventType) {
+        List<Post> posts = profile.hasPosts() ? findPosts(tree, profile) : Collections.<Post>emptyList();
+        return new ScreenSnapshot(tree, profile, eventType, System.currentTimeMillis(),
+                screenText(tree), posts);
+    }
+
+    private static String screenText(FlatTree tree) {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < tree.size(); i++) {
+            if (tree.getTextLength(i) > 0) {
+                tree.appendText(i, text);
+                text.append(' ');
+            }
+            if (tree.getDescriptionLength(i) > 0) {
+                tree.appendDescription(i, text);
+                text.append(' ');
+            }
+        }
+        return text.toString().trim();
+    }
+
+    private static List<Post> findPosts(FlatTree tree, PlatformProfile profile) {
+        // Decide once per distinct view ID rather than once per node
+        boolean[] containerIds = new boolean[tree.getViewIdCount()];
+        for (int id = 0; id < containerIds.length; id++) {
+            containerIds[id] = profile.isPostContainer(tree.getViewIdName(id));
+        }
+
+        List<Post> posts = new ArrayList<>();
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < tree.size(); i++) {
+            int id = tree.getViewId(i);
+            if (id < 0 || !containerIds[id]) continue;
+
+            text.setLength(0);
+            String author = null;
+            for (int j = i; j < tree.getSubtreeEnd(i); j++) {
+                if (tree.getTextLength(j) > 0) {
+                    int start = text.length();
+                    tree.appendText(j, text);
+                    // The first @handle in the post names its author
+                    if (author == null && text.charAt(start) == '@') {
+                        author = handleAt(text, start);
+                    }
+                    text.append(' ');
+                }
+            }
+            String postText = text.toString().trim();
+            if (!postText.isEmpty()) {
+                Rect bounds = new Rect();
+                tree.getBounds(i, bounds);
+                posts.add(new Post(postText, bounds, author));
+            }
+        }
+        return posts;
+    }
+
+    private static String handleAt(CharSequence text, int start) {
+        int end = start + 1;
+        while (end < text.length() && (Character.isLetterOrDigit(text.charAt(end)) || text.charAt(end) == '_')) {
+            end++;
+        }
+        return end > start + 1 ? text.subSequence(start, end).toString().toLowerCase() : null;
+    }
+
+    public FlatTree getTree() { return tree; }
+    public PlatformProfile getProfile() { return profile; }
+    public Platform getPlatform() { return profile.getPlatform(); }
+    public String getPackageName() { return profile.getPackageName(); }
+    public int getEventType() { return eventType; }
+    public long getTimestamp() { return timestamp; }
+    public String getText() { return text; }
+    public List<Post> getPosts() { return posts; }
+    public RiskAnalysis getScreenAnalysis() { return screenAnalysis; }
+
+    /**
+     * A copy with only the profile and text, for keeping the screen after
+     * dispatch without the tree or the results, which later screens reuse.
+     */
+    public ScreenSnapshot textOnly() {
+        return new ScreenSnapshot(null, profile, eventType, timestamp, text, Collections.<Post>emptyList());
+    }
+
+    void setScreenAnalysis(RiskAnalysis screenAnalysis) { this.screenAnalysis = screenAnalysis; }
+}
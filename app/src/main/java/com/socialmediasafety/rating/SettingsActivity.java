@@ -21,6 +21,8 @@ public class SettingsActivity extends AppCompatActivity {
     private Switch enableDiscordSwitch;
     private Switch enableInstagramSwitch;
     private Switch showMinimalRiskSwitch;
+    private Switch expandShortLinksSwitch;
+    private Switch remoteAnalysisSwitch;
     private SeekBar sensitivitySeekBar;
     private TextView sensitivityText;
     
@@ -41,6 +43,8 @@ public class SettingsActivity extends AppCompatActivity {
         enableDiscordSwitch = findViewById(R.id.enableDiscordSwitch);
         enableInstagramSwitch = findViewById(R.id.enableInstagramSwitch);
         showMinimalRiskSwitch = findViewById(R.id.showMinimalRiskSwitch);
+        expandShortLinksSwitch = findViewById(R.id.expandShortLinksSwitch);
+        remoteAnalysisSwitch = findViewById(R.id.remoteAnalysisSwitch);
         sensitivitySeekBar = findViewById(R.id.sensitivitySeekBar);
         sensitivityText = findViewById(R.id.sensitivityText);
     }
@@ -65,6 +69,12 @@ public class SettingsActivity extends AppCompatActivity {
         showMinimalRiskSwitch.setChecked(
             PreferenceManager.getDefaultSharedPreferences(this)
                 .getBoolean("show_minimal_risk", false));
+        expandShortLinksSwitch.setChecked(
+            PreferenceManager.getDefaultSharedPreferences(this)
+                .getBoolean("expand_short_links", false));
+        remoteAnalysisSwitch.setChecked(
+            PreferenceManager.getDefaultSharedPreferences(this)
+                .getBoolean("remote_analysis", false));
         
         int sensitivity = PreferenceManager.getDefaultSharedPreferences(this)
                 .getInt("sensitivity", 50);
@@ -91,6 +101,12 @@ public class SettingsActivity extends AppCompatActivity {
         showMinimalRiskSwitch.setOnCheckedChangeListener((buttonView, isChecked) -> 
             savePreference("show_minimal_risk", isChecked));
         
+        expandShortLinksSwitch.setOnCheckedChangeListener((buttonView, isChecked) -> 
+            savePreference("expand_short_links", isChecked));
+        
+        remoteAnalysisSwitch.setOnCheckedChangeListener((buttonView, isChecked) -> 
+            savePreference("remote_analysis", isChecked));
+        
         sensitivitySeekBar.setOnSeekBarChangeListener(new SeekBar.OnSeekBarChangeListener() {
             @Override
             public void onProgressChanged(SeekBar seekBar, int progress, boolean fromUser) {
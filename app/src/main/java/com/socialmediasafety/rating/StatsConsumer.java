@@ -0,0 +1,46 @@
+package com.socialmediasafety.rating;
+
+import com.socialmediasafety.rating.analysis.RiskAnalysis;
+
+/**
+ * Counts analyzed posts in {@link SafetyStats}. Screens with post containers
+ * count each post; other screens count once.
+ *
+ * Content-change events re-deliver the same posts many times, so recently
+ * counted text hashes are remembered and skipped.
+ */
+public class StatsConsumer implements ScreenConsumer {
+
+    // A few screens' worth of posts, so scrolling back does not count them again
+    private static final int RECENT_HASHES = 256;
+
+    private final SafetyStats stats;
+    private final RecentHashes recentHashes = new RecentHashes(RECENT_HASHES);
+
+    public StatsConsumer(SafetyStats stats) {
+        this.stats = stats;
+    }
+
+    @Override
+    public void onScreen(ScreenSnapshot snapshot) {
+        if (!snapshot.getPosts().isEmpty()) {
+            for (ScreenSnapshot.Post post : snapshot.getPosts()) {
+                record(snapshot.getPlatform(), post.getText(), post.getAnalysis());
+            }
+        } else if (snapshot.getScreenAnalysis() != null) {
+            record(snapshot.getPlatform(), snapshot.getText(), snapshot.getScreenAnalysis());
+        }
+    }
+
+    @Override
+    public void release() {
+        recentHashes.clear();
+        stats.save();
+    }
+
+    private void record(Platform platform, String text, RiskAnalysis analysis) {
+        if (recentHashes.add(DetectionRecord.hashText(text))) {
+            stats.record(platform, analysis.getRiskLevel());
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package com.socialmediasafety.rating;
+
+import java.util.Locale;
+
+/**
+ * Fixed-size ring of recent hot-path events, for finding out what happened
+ * around a slow or failed event without logging every one of them.
+ *
+ * Recording stores a timestamp, an event code and two ints into preallocated
+ * arrays: no strings are built and nothing is allocated, so it costs next to
+ * nothing when nobody reads the trace. Text is only produced by
+ * {@link #dump}. The oldest events are overwritten once the ring is full.
+ * Safe to call from any thread.
+ */
+public class TraceBuffer {
+
+    public static final int EVENT_RECEIVED = 0;    // platform ordinal, accessibility event type
+    public static final int EVENT_NO_WINDOW = 1;   // platform ordinal
+    public static final int EVENT_NO_TEXT = 2;     // platform ordinal
+    public static final int EVENT_ANALYZED = 3;    // risk level ordinal, post count
+    public static final int EVENT_DISPATCHED = 4;  // consumer count
+    public static final int EVENT_ERROR = 5;       // platform ordinal
+    public static final int EVENT_RESCORED = 6;    // risk level ordinal
+    public static final int EVENT_FINISHED = 7;    // event time in microseconds
+    public static final int EVENT_UNCHANGED = 8;   // platform ordinal
+
+    private static final String[] EVENT_NAMES = {
+            "received", "no-window", "no-text", "analyzed", "dispatched", "error", "rescored", "finished", "unchanged"
+    };
+    private static final String[][] ARG_NAMES = {
+            {"platform", "type"}, {"platform", ""}, {"platform", ""}, {"level", "posts"},
+            {"consumers", ""}, {"platform", ""}, {"level", ""}, {"us", ""}, {"platform", ""}
+    };
+
+    private final int mask;
+    private final long[] times;
+    private final int[] events;
+    private final int[] firstArgs;
+    private final int[] secondArgs;
+    // Total events recorded; the next slot is written % capacity
+    private long written;
+
+    /** @param capacity events kept, rounded up to a power of two */
+    public TraceBuffer(int capacity) {
+        int size = Integer.highestOneBit(Math.max(capacity, 2) - 1) << 1;
+        this.mask = size - 1;
+        this.times = new long[size];
+        this.events = new int[size];
+        this.firstArgs = new int[size];
+        this.secondArgs = new int[size];
+    }
+
+    public synchronized void record(int event, int firstArg, int secondArg) {
+        int slot = (int) (written++ & mask);
+        times[slot] = System.nanoTime();
+        events[slot] = event;
+        firstArgs[slot] = firstArg;
+        secondArgs[slot] = secondArg;
+    }
+
+    public void record(int event, int arg) {
+        record(event, arg, 0);
+    }
+
+    public synchronized long getRecordedCount() { return written; }
+
+    /**
+     * Renders the most recent events, oldest first, one per line, with times
+     * relative to the newest. Allocates; call it only when the trace is read.
+     */
+    public synchronized String dump(int maxEvents) {
+        long count = Math.min(Math.min(written, mask + 1), Math.max(maxEvents, 0));
+        if (count == 0) return "";
+        StringBuilder out = new StringBuilder();
+        long newest = times[(int) ((written - 1) & mask)];
+        for (long i = written - count; i < written; i++) {
+            int slot = (int) (i & mask);
+            int event = events[slot];
+            out.append(String.format(Locale.US, "%10.3fms %-10s", (times[slot] - newest) / 1e6, EVENT_NAMES[event]));
+            out.append(' ').append(ARG_NAMES[event][0]).append('=').append(firstArgs[slot]);
+            if (!ARG_NAMES[event][1].isEmpty()) {
+                out.append(' ').append(ARG_NAMES[event][1]).append('=').append(secondArgs[slot]);
+            }
+            out.append('\n');
+        }
+        return out.toString();
+    }
+}
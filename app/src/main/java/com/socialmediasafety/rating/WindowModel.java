@@ -0,0 +1,134 @@
+package com.socialmediasafety.rating;
+
+import android.accessibilityservice.AccessibilityService;
+import android.os.Build;
+import android.util.Log;
+import android.view.accessibility.AccessibilityEvent;
+import android.view.accessibility.AccessibilityNodeInfo;
+
+/**
+ * Keeps a {@link FlatTree} of the active window up to date from accessibility
+ * events.
+ *
+ * Only TYPE_WINDOW_STATE_CHANGED (or having no model yet) reads the whole
+ * window. A TYPE_WINDOW_CONTENT_CHANGED re-reads just the subtree under the
+ * event's source node and splices it into the retained tree. An event whose
+ * source is already gone leaves the tree as it is, since the removal is also
+ * reported on the parent. A source that can no longer be refreshed, belongs to
+ * another window, or cannot be placed in the tree within a few ancestors makes
+ * the model fall back to a full walk.
+ */
+public class WindowModel {
+
+    private static final String TAG = "WindowModel";
+
+    // How far up from a new source node to look for a node the model already has
+    private static final int MAX_ANCESTOR_LOOKUP = 3;
+
+    private final AccessibilityService service;
+    private FlatTree tree;
+    private int windowId = -1;
+    private boolean changed;
+    private int fullWalks;
+    private int subtreeUpdates;
+
+    public WindowModel(AccessibilityService service) {
+        this.service = service;
+    }
+
+    /**
+     * Brings the model up to date with the event and returns the current tree,
+     * or null if the window could not be read. {@link #hasChanged()} tells
+     * whether the event changed the tree.
+     */
+    public FlatTree update(AccessibilityEvent event) {
+        changed = true;
+        if (tree != null && event.getEventType() == AccessibilityEvent.TYPE_WINDOW_CONTENT_CHANGED
+                && event.getWindowId() == windowId) {
+            AccessibilityNodeInfo source = event.getSource();
+            // No source means the node is already gone; its removal is reported on the parent
+            if (source == null) {
+                changed = false;
+                return tree;
+            }
+            try {
+                if (updateSubtree(source)) {
+                    subtreeUpdates++;
+                    return tree;
+                }
+            } finally {
+                source.recycle();
+            }
+        }
+        return readWindow();
+    }
+
+    /** False if the last update returned the retained tree untouched, so there is nothing new to analyze. */
+    public boolean hasChanged() { return changed; }
+
+    /** Forgets the retained tree, e.g. when the service is interrupted. */
+    public void invalidate() {
+        tree = null;
+        windowId = -1;
+    }
+
+    public int getFullWalkCount() { return fullWalks; }
+    public int getSubtreeUpdateCount() { return subtreeUpdates; }
+
+    private boolean updateSubtree(AccessibilityNodeInfo source) {
+        // A node whose view has gone away can no longer be refreshed
+        if (!source.refresh()) return false;
+
+        int index = tree.indexOfNode(source.hashCode());
+        if (index >= 0) {
+            tree = tree.splice(index, FlatTree.capture(source));
+            return true;
+        }
+
+        // New node: re-read from the nearest ancestor the model already knows
+        AccessibilityNodeInfo ancestor = source.getParent();
+        for (int depth = 0; ancestor != null && depth < MAX_ANCESTOR_LOOKUP; depth++) {
+            index = tree.indexOfNode(ancestor.hashCode());
+            if (index >= 0) {
+                tree = tree.splice(index, FlatTree.capture(ancestor));
+                ancestor.recycle();
+                return true;
+            }
+            AccessibilityNodeInfo next = ancestor.getParent();
+            ancestor.recycle();
+            ancestor = next;
+        }
+        if (ancestor != null) {
+            ancestor.recycle();
+        }
+        return false;
+    }
+
+    private FlatTree readWindow() {
+        AccessibilityNodeInfo root = fetchRoot();
+        if (root == null) {
+            invalidate();
+            return null;
+        }
+        try {
+            tree = FlatTree.capture(root);
+            windowId = root.getWindowId();
+            fullWalks++;
+            if (fullWalks % 50 == 0) {
+                Log.d(TAG, "Full walks: " + fullWalks + ", subtree updates: " + subtreeUpdates);
+            }
+            return tree;
+        } finally {
+            root.recycle();
+        }
+    }
+
+    private AccessibilityNodeInfo fetchRoot() {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.TIRAMISU) {
+            // Prefetch the root's descendants with it instead of one round trip per node
+            return service.getRootInActiveWindow(AccessibilityNodeInfo.FLAG_PREFETCH_DESCENDANTS_DEPTH_FIRST
+                    | AccessibilityNodeInfo.FLAG_PREFETCH_UNINTERRUPTIBLE);
+        }
+        return service.getRootInActiveWindow();
+    }
+}
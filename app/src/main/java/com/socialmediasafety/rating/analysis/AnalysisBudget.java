@@ -0,0 +1,54 @@
+package com.socialmediasafety.rating.analysis;
+
+/**
+ * Work and time budget for analyzing one post, shared by the analyzers.
+ *
+ * Texts longer than {@link #MAX_CHARS} are cut down to a head and a tail
+ * window: scams put the hook up front and the link or call to action at the
+ * end, so the middle of a huge screen dump is rarely worth running every rule
+ * over. Analyzers check {@link #isOver} between stages and skip the ones left
+ * once a post has used up {@link #TIME_NANOS}.
+ */
+public final class AnalysisBudget {
+
+    /** Longest text analyzed in full; longer texts are sampled. */
+    public static final int MAX_CHARS = 8192;
+    /** Time one post may spend in analysis before the remaining stages are skipped. */
+    public static final long TIME_NANOS = 10 * 1000000L;
+
+    // Share of the sampled text taken from the end of the original
+    private static final int TAIL_DIVISOR = 4;
+
+    private AnalysisBudget() {
+    }
+
+    /** Deadline for a post whose analysis started at the given time. */
+    public static long deadline(long startNanos) {
+        return startNanos + TIME_NANOS;
+    }
+
+    public static boolean isOver(long deadline) {
+        return System.nanoTime() - deadline > 0;
+    }
+
+    /**
+     * Returns the text itself if it fits the budget, otherwise a new string
+     * with its head and tail windows joined by a line break.
+     */
+    public static String sample(String text) {
+        if (text.length() <= MAX_CHARS) {
+            return text;
+        }
+        int tailLength = MAX_CHARS / TAIL_DIVISOR;
+        int headEnd = MAX_CHARS - tailLength - 1;
+        int tailStart = text.length() - tailLength;
+        // Never cut a surrogate pair in half
+        if (Character.isHighSurrogate(text.charAt(headEnd - 1))) headEnd--;
+        if (Character.isLowSurrogate(text.charAt(tailStart))) tailStart++;
+        return new StringBuilder(MAX_CHARS)
+                .append(text, 0, headEnd)
+                .append('\n')
+                .append(text, tailStart, text.length())
+                .toString();
+    }
+}
@@ -0,0 +1,153 @@
+package com.socialmediasafety.rating.analysis;
+
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Recent track record of the authors seen in the feed, used to pick how much
+ * analysis their next post gets.
+ *
+ * Each author keeps a risk score that halves every half-life, the number of
+ * distinct clean posts in a row and the number of risky posts seen. Authors
+ * are held in a bounded LRU map, so memory stays fixed however long the feed.
+ * Also counts how often lookups hit and the time spent per standing, to
+ * estimate what the cheap path for trusted authors saves. Safe to call from
+ * any thread.
+ */
+public class AuthorReputation {
+
+    /** Not seen yet, or not enough posts to tell. */
+    public static final int STANDING_UNKNOWN = 0;
+    /** Several distinct clean posts and no recent risk. */
+    public static final int STANDING_TRUSTED = 1;
+    /** Seen before, neither trusted nor suspect. */
+    public static final int STANDING_NEUTRAL = 2;
+    /** Recent high-risk posts. */
+    public static final int STANDING_SUSPECT = 3;
+    public static final int STANDING_COUNT = 4;
+
+    // Distinct clean posts in a row before an author is trusted
+    private static final int TRUSTED_CLEAN_POSTS = 3;
+    // Decayed risk below which an author can be trusted, and from which they are suspect
+    private static final double TRUSTED_MAX_RISK = 0.25;
+    private static final double SUSPECT_MIN_RISK = 0.75;
+    // Risk added per post by verdict; a high-risk post alone makes an author suspect
+    private static final double HIGH_RISK = 1.0;
+    private static final double MEDIUM_RISK = 0.5;
+
+    private static final class Entry {
+        double risk;
+        long updatedAt;
+        int cleanPosts;
+        int riskyPosts;
+        int lastPostHash;
+    }
+
+    private final Map<String, Entry> authors;
+    private final double halfLifeMillis;
+
+    private long lookups;
+    private long hits;
+    private final long[] standingPosts = new long[STANDING_COUNT];
+    private final long[] standingNanos = new long[STANDING_COUNT];
+
+    public AuthorReputation(final int capacity, long halfLifeMillis) {
+        this.halfLifeMillis = halfLifeMillis;
+        this.authors = new LinkedHashMap<String, Entry>(capacity + 1, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    /** Returns the author's standing; a null author is always unknown. */
+    public synchronized int lookup(String author, long nowMillis) {
+        lookups++;
+        Entry entry = author != null ? authors.get(author) : null;
+        if (entry == null) return STANDING_UNKNOWN;
+        hits++;
+
+        double risk = decayedRisk(entry, nowMillis);
+        if (risk >= SUSPECT_MIN_RISK) return STANDING_SUSPECT;
+        if (entry.cleanPosts >= TRUSTED_CLEAN_POSTS && risk < TRUSTED_MAX_RISK) return STANDING_TRUSTED;
+        return STANDING_NEUTRAL;
+    }
+
+    /**
+     * Adds a post's verdict to the author's record. The same post seen again,
+     * e.g. while scrolling, does not count as another post.
+     */
+    public synchronized void record(String author, int postHash, RiskLevel level, long nowMillis) {
+        if (author == null) return;
+        Entry entry = authors.get(author);
+        if (entry == null) {
+            entry = new Entry();
+            authors.put(author, entry);
+        } else if (entry.lastPostHash == postHash) {
+            return;
+        }
+
+        entry.risk = decayedRisk(entry, nowMillis);
+        entry.updatedAt = nowMillis;
+        entry.lastPostHash = postHash;
+        if (level == RiskLevel.SAFE) {
+            entry.cleanPosts++;
+        } else {
+            entry.risk += level == RiskLevel.HIGH ? HIGH_RISK : MEDIUM_RISK;
+            entry.cleanPosts = 0;
+            entry.riskyPosts++;
+        }
+    }
+
+    /** Number of risky posts recorded for the author. */
+    public synchronized int getRiskyPosts(String author) {
+        Entry entry = author != null ? authors.get(author) : null;
+        return entry != null ? entry.riskyPosts : 0;
+    }
+
+    /** Records how long a post by an author of the given standing took to analyze. */
+    public synchronized void recordCost(int standing, long nanos) {
+        standingPosts[standing]++;
+        standingNanos[standing] += nanos;
+    }
+
+    public synchronized double getHitRate() {
+        return lookups == 0 ? 0 : (double) hits / lookups;
+    }
+
+    /**
+     * Estimated time saved, in nanoseconds, assuming posts by trusted authors
+     * would otherwise have cost as much as the average post by an unknown or
+     * neutral author.
+     */
+    public synchronized long getEstimatedNanosSaved() {
+        long trusted = standingPosts[STANDING_TRUSTED];
+        long standard = standingPosts[STANDING_UNKNOWN] + standingPosts[STANDING_NEUTRAL];
+        if (trusted == 0 || standard == 0) return 0;
+        long averageStandard = (standingNanos[STANDING_UNKNOWN] + standingNanos[STANDING_NEUTRAL]) / standard;
+        long averageTrusted = standingNanos[STANDING_TRUSTED] / trusted;
+        return Math.max(0, averageStandard - averageTrusted) * trusted;
+    }
+
+    public synchronized int size() { return authors.size(); }
+
+    public synchronized String report() {
+        long posts = 0;
+        for (long count : standingPosts) {
+            posts += count;
+        }
+        return String.format(Locale.US,
+                "authors=%d hits=%.0f%% trusted=%d neutral=%d suspect=%d unknown=%d of %d posts saved=%.1fms",
+                authors.size(), getHitRate() * 100,
+                standingPosts[STANDING_TRUSTED], standingPosts[STANDING_NEUTRAL],
+                standingPosts[STANDING_SUSPECT], standingPosts[STANDING_UNKNOWN], posts,
+                getEstimatedNanosSaved() / 1e6);
+    }
+
+    private double decayedRisk(Entry entry, long nowMillis) {
+        long elapsed = nowMillis - entry.updatedAt;
+        return elapsed <= 0 ? entry.risk : entry.risk * Math.pow(0.5, elapsed / halfLifeMillis);
+    }
+}
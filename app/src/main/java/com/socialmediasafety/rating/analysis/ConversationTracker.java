@@ -0,0 +1,175 @@
+package com.socialmediasafety.rating.analysis;
+
+/**
+ * Rolling risk of chat conversations, for scams that build up over several
+ * messages that each look harmless on their own.
+ *
+ * Each conversation keeps exponentially decayed category scores and the
+ * fingerprints of its recent messages in a fixed set of slots. A message only
+ * counts once: re-rendering the same messages while scrolling finds their
+ * fingerprints and adds nothing, so the history is never re-scanned. When all
+ * slots are taken, the conversation updated least recently is dropped.
+ *
+ * Conversations are addressed by the slot index returned from {@link #open}.
+ * Not thread-safe; the service uses it from the main thread only.
+ */
+public class ConversationTracker {
+
+    /** Decayed score across categories at which a conversation counts as escalating. */
+    public static final double ESCALATION_SCORE = 45;
+    /**
+     * Decayed number of risky messages needed before a conversation can
+     * escalate; two recent ones are enough even after some decay.
+     */
+    public static final double ESCALATION_MESSAGES = 1.5;
+
+    private static final int CATEGORIES = RiskAnalysis.CATEGORY_COUNT;
+
+    private final int capacity;
+    private final int fingerprintsPerConversation;
+    private final double halfLifeMillis;
+
+    private final long[] keys;
+    private final long[] lastUpdates;
+    private final boolean[] occupied;
+    // Category scores and risky message count as of the last update, decayed on read
+    private final double[] scores;
+    private final double[] riskyMessages;
+    // Ring of recent message fingerprints per conversation
+    private final long[] fingerprints;
+    private final int[] nextFingerprint;
+
+    public ConversationTracker(int capacity, int fingerprintsPerConversation, long halfLifeMillis) {
+        this.capacity = capacity;
+        this.fingerprintsPerConversation = fingerprintsPerConversation;
+        this.halfLifeMillis = halfLifeMillis;
+        this.keys = new long[capacity];
+        this.lastUpdates = new long[capacity];
+        this.occupied = new boolean[capacity];
+        this.scores = new double[capacity * CATEGORIES];
+        this.riskyMessages = new double[capacity];
+        this.fingerprints = new long[capacity * fingerprintsPerConversation];
+        this.nextFingerprint = new int[capacity];
+    }
+
+    /**
+     * Returns the slot of the conversation with the given key, starting a new
+     * one in place of the least recently updated conversation if needed.
+     */
+    public int open(CharSequence key, long nowMillis) {
+        long hash = hash(key, false);
+        int free = -1;
+        int oldest = -1;
+        for (int slot = 0; slot < capacity; slot++) {
+            if (!occupied[slot]) {
+                if (free < 0) free = slot;
+            } else if (keys[slot] == hash) {
+                return slot;
+            } else if (oldest < 0 || lastUpdates[slot] < lastUpdates[oldest]) {
+                oldest = slot;
+            }
+        }
+
+        int slot = free >= 0 ? free : oldest;
+        clear(slot);
+        keys[slot] = hash;
+        lastUpdates[slot] = nowMillis;
+        occupied[slot] = true;
+        return slot;
+    }
+
+    /**
+     * Records the message's fingerprint and returns true if the conversation
+     * has not seen it recently. Case, punctuation and spacing are ignored.
+     */
+    public boolean recordMessage(int conversation, CharSequence message) {
+        // 0 marks an empty fingerprint slot
+        long fingerprint = hash(message, true) | 1;
+        int base = conversation * fingerprintsPerConversation;
+        for (int i = 0; i < fingerprintsPerConversation; i++) {
+            if (fingerprints[base + i] == fingerprint) return false;
+        }
+        fingerprints[base + nextFingerprint[conversation]] = fingerprint;
+        nextFingerprint[conversation] = (nextFingerprint[conversation] + 1) % fingerprintsPerConversation;
+        return true;
+    }
+
+    /** Decays the conversation to now and adds the scores of one new message. */
+    public void addMessage(int conversation, RiskAnalysis message, long nowMillis) {
+        double decay = decay(conversation, nowMillis);
+        int base = conversation * CATEGORIES;
+        for (int category = 0; category < CATEGORIES; category++) {
+            scores[base + category] = scores[base + category] * decay + message.getCategoryScore(category);
+        }
+        riskyMessages[conversation] *= decay;
+        if (message.getRiskLevel() != RiskLevel.SAFE) {
+            riskyMessages[conversation] += 1;
+        }
+        lastUpdates[conversation] = nowMillis;
+    }
+
+    /** Decayed score of one category, see {@link RiskAnalysis#CATEGORY_FINANCIAL} and friends. */
+    public double getCategoryScore(int conversation, int category, long nowMillis) {
+        return scores[conversation * CATEGORIES + category] * decay(conversation, nowMillis);
+    }
+
+    /** Decayed score summed over all categories. */
+    public double getScore(int conversation, long nowMillis) {
+        double total = 0;
+        int base = conversation * CATEGORIES;
+        for (int category = 0; category < CATEGORIES; category++) {
+            total += scores[base + category];
+        }
+        return total * decay(conversation, nowMillis);
+    }
+
+    /** Decayed number of messages that were not rated safe on their own. */
+    public double getRiskyMessages(int conversation, long nowMillis) {
+        return riskyMessages[conversation] * decay(conversation, nowMillis);
+    }
+
+    /** True once several recent messages together carry enough risk. */
+    public boolean isEscalating(int conversation, long nowMillis) {
+        return getRiskyMessages(conversation, nowMillis) >= ESCALATION_MESSAGES
+                && getScore(conversation, nowMillis) >= ESCALATION_SCORE;
+    }
+
+    /** Number of conversations currently tracked. */
+    public int size() {
+        int size = 0;
+        for (boolean slotUsed : occupied) {
+            if (slotUsed) size++;
+        }
+        return size;
+    }
+
+    private double decay(int conversation, long nowMillis) {
+        long elapsed = nowMillis - lastUpdates[conversation];
+        return elapsed <= 0 ? 1 : Math.pow(0.5, elapsed / halfLifeMillis);
+    }
+
+    private void clear(int conversation) {
+        for (int category = 0; category < CATEGORIES; category++) {
+            scores[conversation * CATEGORIES + category] = 0;
+        }
+        riskyMessages[conversation] = 0;
+        for (int i = 0; i < fingerprintsPerConversation; i++) {
+            fingerprints[conversation * fingerprintsPerConversation + i] = 0;
+        }
+        nextFingerprint[conversation] = 0;
+    }
+
+    /** 64-bit FNV-1a over the text, optionally over lowercased letters and digits only. */
+    private static long hash(CharSequence text, boolean normalize) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (normalize) {
+                if (!Character.isLetterOrDigit(c)) continue;
+                c = Character.toLowerCase(c);
+            }
+            hash = (hash ^ c) * 0x100000001b3L;
+        }
+        return hash;
+    }
+}
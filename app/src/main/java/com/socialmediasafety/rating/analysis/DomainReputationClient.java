@@ -0,0 +1,306 @@
+package com.socialmediasafety.rating.analysis;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Looks domains up on a reputation service without ever making the analysis
+ * wait for it.
+ *
+ * {@link #lookup} only answers from the cache. A domain that is not cached is
+ * queued, and queued domains from many posts go out together in one batched
+ * query shortly after, so the verdict is there the next time the domain shows
+ * up. A domain already queued or in flight is not queued twice. Listed
+ * domains and clean ones are cached for separate times.
+ *
+ * After several failed queries in a row a circuit breaker opens: lookups stop
+ * queueing and analysis runs on local rules only until the cool-down passes,
+ * when one batch is let through to test the service again. Queries go through
+ * a {@link Transport}, so the service can be swapped for a stand-in. Safe to
+ * call from any thread; listeners run on the client's thread.
+ */
+public class DomainReputationClient {
+
+    /** Sends one batched query to the reputation service. */
+    public interface Transport {
+        /** Returns the domains of the batch that the service lists as malicious. */
+        Set<String> query(List<String> domains) throws IOException;
+    }
+
+    /** Told about each listed domain once its verdict arrives. */
+    public interface Listener {
+        void onListed(String domain);
+    }
+
+    /**
+     * Posts the domains one per line and reads back the listed ones, one per
+     * line, from a plain-text endpoint.
+     */
+    public static class HttpTransport implements Transport {
+
+        private final String endpoint;
+        private final int timeoutMillis;
+
+        public HttpTransport(String endpoint, int timeoutMillis) {
+            this.endpoint = endpoint;
+            this.timeoutMillis = timeoutMillis;
+        }
+
+        @Override
+        public Set<String> query(List<String> domains) throws IOException {
+            StringBuilder body = new StringBuilder();
+            for (String domain : domains) {
+                body.append(domain).append('\n');
+            }
+            byte[] bytes = body.toString().getBytes("UTF-8");
+
+            HttpURLConnection connection = (HttpURLConnection) new URL(endpoint).openConnection();
+            try {
+                connection.setRequestMethod("POST");
+                connection.setDoOutput(true);
+                connection.setConnectTimeout(timeoutMillis);
+                connection.setReadTimeout(timeoutMillis);
+                connection.setRequestProperty("Content-Type", "text/plain; charset=utf-8");
+                connection.setFixedLengthStreamingMode(bytes.length);
+                try (OutputStream out = connection.getOutputStream()) {
+                    out.write(bytes);
+                }
+                int code = connection.getResponseCode();
+                if (code != HttpURLConnection.HTTP_OK) {
+                    throw new IOException("Reputation service returned " + code);
+                }
+
+                Set<String> listed = new HashSet<>();
+                try (BufferedReader reader = new BufferedReader(
+                        new InputStreamReader(connection.getInputStream(), "UTF-8"))) {
+                    String line;
+                    while ((line = reader.readLine()) != null) {
+                        line = line.trim();
+                        if (!line.isEmpty()) listed.add(line.toLowerCase(Locale.ROOT));
+                    }
+                }
+                return listed;
+            } finally {
+                connection.disconnect();
+            }
+        }
+    }
+
+    public static final int VERDICT_UNKNOWN = 0;
+    public static final int VERDICT_CLEAN = 1;
+    public static final int VERDICT_LISTED = 2;
+
+    private static final int BATCH_SIZE = 32;
+    // Domains waiting for a batch; more than this are dropped until the queue drains
+    private static final int MAX_PENDING = 256;
+    // Failed queries in a row that open the circuit breaker
+    private static final int FAILURE_THRESHOLD = 3;
+
+    private final Transport transport;
+    private final long batchDelayMillis;
+    private final long listedTtlMillis;
+    private final long cleanTtlMillis;
+    private final long cooldownMillis;
+    private final Listener listener;
+    private final ScheduledThreadPoolExecutor executor;
+
+    private final Map<String, CacheEntry> cache;
+    private final Set<String> pending = new LinkedHashSet<>();
+    private final Set<String> inFlight = new HashSet<>();
+    private boolean flushScheduled;
+
+    private int consecutiveFailures;
+    private long openUntil;
+
+    private int queries;
+    private int lookups;
+    private int cacheHits;
+    private int failures;
+    private int skippedOpen;
+
+    private static final class CacheEntry {
+        final int verdict;
+        final long expiresAt;
+
+        CacheEntry(int verdict, long expiresAt) {
+            this.verdict = verdict;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    /**
+     * @param batchDelayMillis how long a queued domain waits for others to join its batch
+     * @param cacheCapacity    verdicts remembered at once
+     * @param listedTtlMillis  how long a listed verdict is remembered
+     * @param cleanTtlMillis   how long a clean verdict is remembered
+     * @param cooldownMillis   how long the circuit breaker stays open
+     * @param listener         told about listed domains, or null
+     */
+    public DomainReputationClient(Transport transport, long batchDelayMillis, final int cacheCapacity,
+                                  long listedTtlMillis, long cleanTtlMillis, long cooldownMillis,
+                                  Listener listener) {
+        this.transport = transport;
+        this.batchDelayMillis = batchDelayMillis;
+        this.listedTtlMillis = listedTtlMillis;
+        this.cleanTtlMillis = cleanTtlMillis;
+        this.cooldownMillis = cooldownMillis;
+        this.listener = listener;
+        this.cache = new LinkedHashMap<String, CacheEntry>(cacheCapacity + 1, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CacheEntry> eldest) {
+                return size() > cacheCapacity;
+            }
+        };
+        this.executor = new ScheduledThreadPoolExecutor(1, runnable -> {
+            Thread thread = new Thread(runnable, "domain-reputation");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Returns the cached verdict for the URL's host. An unknown host is
+     * queued for the next batch unless the circuit breaker is open.
+     */
+    public synchronized int lookup(String url) {
+        String domain = ShortLinkExpander.hostOf(url);
+        if (domain == null) return VERDICT_UNKNOWN;
+        lookups++;
+
+        CacheEntry entry = cache.get(domain);
+        if (entry != null) {
+            if (entry.expiresAt > now()) {
+                cacheHits++;
+                return entry.verdict;
+            }
+            cache.remove(domain);
+        }
+
+        if (pending.contains(domain) || inFlight.contains(domain)) return VERDICT_UNKNOWN;
+        if (isOpen()) {
+            skippedOpen++;
+            return VERDICT_UNKNOWN;
+        }
+        if (pending.size() >= MAX_PENDING) return VERDICT_UNKNOWN;
+
+        pending.add(domain);
+        if (pending.size() >= BATCH_SIZE) {
+            executor.execute(this::flush);
+        } else if (!flushScheduled) {
+            flushScheduled = true;
+            executor.schedule(this::flush, batchDelayMillis, TimeUnit.MILLISECONDS);
+        }
+        return VERDICT_UNKNOWN;
+    }
+
+    /** True while the circuit breaker keeps lookups local-only. */
+    public synchronized boolean isOpen() {
+        return consecutiveFailures >= FAILURE_THRESHOLD && now() < openUntil;
+    }
+
+    /** Domains queued or in flight. */
+    public synchronized int getQueueDepth() {
+        return pending.size() + inFlight.size();
+    }
+
+    public synchronized double getCacheHitRate() {
+        return lookups == 0 ? 0 : (double) cacheHits / lookups;
+    }
+
+    /** Drops expired verdicts and returns how many were dropped. Meant for idle maintenance. */
+    public synchronized int pruneExpired() {
+        long now = now();
+        int removed = 0;
+        Iterator<CacheEntry> entries = cache.values().iterator();
+        while (entries.hasNext()) {
+            if (entries.next().expiresAt <= now) {
+                entries.remove();
+                removed++;
+            }
+        }
+        return removed;
+    }
+
+    /** Stops the client; a query still running is interrupted. */
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    public synchronized String report() {
+        return String.format(Locale.US,
+                "queries=%d cached=%d failed=%d skipped=%d pending=%d size=%d open=%b",
+                queries, cacheHits, failures, skippedOpen, pending.size(), cache.size(), isOpen());
+    }
+
+    private void flush() {
+        List<String> batch = new ArrayList<>();
+        synchronized (this) {
+            flushScheduled = false;
+            Iterator<String> iterator = pending.iterator();
+            while (iterator.hasNext() && batch.size() < BATCH_SIZE) {
+                String domain = iterator.next();
+                iterator.remove();
+                batch.add(domain);
+            }
+            if (batch.isEmpty()) return;
+            inFlight.addAll(batch);
+            queries++;
+        }
+
+        Set<String> listed = null;
+        try {
+            listed = transport.query(batch);
+        } catch (IOException | RuntimeException e) {
+            // Falls through with no verdicts
+        }
+
+        synchronized (this) {
+            inFlight.removeAll(batch);
+            if (listed == null) {
+                failures++;
+                // Past the threshold every failure, including the trial batch, restarts the cool-down
+                if (++consecutiveFailures >= FAILURE_THRESHOLD) {
+                    openUntil = now() + cooldownMillis;
+                    pending.clear();
+                }
+            } else {
+                consecutiveFailures = 0;
+                long now = now();
+                for (String domain : batch) {
+                    cache.put(domain, listed.contains(domain)
+                            ? new CacheEntry(VERDICT_LISTED, now + listedTtlMillis)
+                            : new CacheEntry(VERDICT_CLEAN, now + cleanTtlMillis));
+                }
+            }
+            if (!pending.isEmpty() && !flushScheduled) {
+                flushScheduled = true;
+                executor.schedule(this::flush, batchDelayMillis, TimeUnit.MILLISECONDS);
+            }
+        }
+
+        if (listed != null && listener != null) {
+            for (String domain : batch) {
+                if (listed.contains(domain)) listener.onListed(domain);
+            }
+        }
+    }
+
+    private static long now() {
+        return System.nanoTime() / 1000000;
+    }
+}
@@ -0,0 +1,468 @@
+package com.socialmediasafety.rating.analysis;
+
+import java.net.IDN;
+import java.util.Arrays;
+
+/**
+ * Detects look-alike domains that impersonate well known brands, e.g.
+ * "dlscord-gift.com" or a Cyrillic "раураl.com".
+ *
+ * Only tokens that are clearly hosts are checked: those following a URL
+ * scheme or starting with "www.", and those ending in a known top-level
+ * domain, so "Discord.Nitro" in a sentence is not a host. Each host is reduced
+ * to a confusables "skeleton" (homoglyphs, leetspeak digits and "rn"/"vv"
+ * style digraphs folded to one canonical form, punycode labels decoded first)
+ * and each label token is looked up in a precomputed hash index of protected
+ * brand skeletons.
+ *
+ * A look-alike of a brand counts anywhere in the host. The brand name itself
+ * only counts in the registrable label ("discord-gift.com") or in front of a
+ * suffix of its own ("paypal.com.verify.xyz"), so projects on a subdomain such
+ * as "discord.js.org" are left alone. Hosts on one of a brand's official
+ * domains, or their subdomains, never count.
+ *
+ * Scanning reuses internal buffers, so instances are not thread-safe.
+ */
+public class DomainSpoofDetector {
+
+    // URL risk per spoofed host; look-alikes are a much stronger signal than a
+    // brand name on a foreign domain
+    private static final int LOOKALIKE_RISK = 40;
+    private static final int IMPERSONATION_RISK = 20;
+
+    // Brand label followed by the registrable domains it legitimately uses, one
+    // per TLD. Only distinctive names: a word like "nitro" or "apple" is part of
+    // too many ordinary hosts
+    private static final String[][] PROTECTED_BRANDS = {
+        {"discord", "discord.com", "discord.gg", "discordapp.com", "discord.media", "discordapp.net",
+                "discord.new", "discord.gift"},
+        {"paypal", "paypal.com", "paypal.me", "paypal.de", "paypal.fr", "paypal.it", "paypal.es",
+                "paypal.co.uk", "paypal.com.au", "paypal.ca", "paypal-community.com", "paypal-objects.com"},
+        {"twitter", "twitter.com", "x.com", "t.co"},
+        {"reddit", "reddit.com", "redd.it", "redditmedia.com", "redditstatic.com"},
+        {"facebook", "facebook.com", "facebook.net", "fb.com", "fb.me"},
+        {"instagram", "instagram.com"},
+        {"steamcommunity", "steamcommunity.com"},
+        {"steampowered", "steampowered.com"},
+        {"google", "google.com", "google.co.uk", "google.de", "google.fr", "google.it", "google.es",
+                "google.nl", "google.pl", "google.ca", "google.com.au", "google.co.in", "google.co.jp",
+                "google.com.br", "google.com.mx", "google.ru", "google.com.tr", "google-analytics.com"},
+        {"icloud", "icloud.com", "apple.com"},
+        {"appleid", "apple.com"},
+        {"microsoft", "microsoft.com"},
+        {"amazon", "amazon.com", "amazon.co.uk", "amazon.de", "amazon.fr", "amazon.it", "amazon.es",
+                "amazon.nl", "amazon.pl", "amazon.se", "amazon.ca", "amazon.com.au", "amazon.co.jp",
+                "amazon.in", "amazon.com.br", "amazon.com.mx", "amazon.com.tr", "amazon.sg", "amazon.ae",
+                "amazon.sa", "amazon-adsystem.com"},
+        {"netflix", "netflix.com", "netflix.net"},
+        {"binance", "binance.com", "binance.us"},
+        {"coinbase", "coinbase.com"},
+        {"metamask", "metamask.io"},
+        {"opensea", "opensea.io"},
+        {"whatsapp", "whatsapp.com", "whatsapp.net", "wa.me"},
+        {"telegram", "telegram.org", "telegram.me", "t.me"}
+    };
+
+    // Top-level domains a host is recognized by outside of a URL
+    private static final String[] TOP_LEVEL_DOMAINS = {
+        "com", "net", "org", "info", "biz", "io", "co", "me", "gg", "xyz", "top", "site", "online",
+        "app", "dev", "pro", "tv", "ly", "to", "gl", "ai", "cc", "ws", "pw", "tk", "ml", "ga", "cf", "gq",
+        "live", "shop", "club", "store", "link", "click", "vip", "icu", "buzz", "gift", "win", "fun",
+        "lol", "one", "tech", "world", "today", "support", "help", "page", "cloud", "email", "money",
+        "finance", "network", "services", "security", "digital", "news", "blog", "zip", "mov", "asia",
+        "mobi", "name", "eu", "us", "uk", "de", "fr", "it", "es", "nl", "pl", "br", "in", "jp", "au",
+        "ca", "ch", "se", "no", "fi", "dk", "be", "at", "cz", "pt", "gr", "tr", "ua", "ru", "su", "cn",
+        "kr", "mx", "ar", "cl", "id", "ph", "my", "sg", "hk", "tw", "nz", "za", "ae", "sa", "eg", "ng",
+        "ke", "ro", "hu", "sk", "bg", "rs", "hr", "si", "lt", "lv", "ee", "ie", "is", "lu", "il", "ir",
+        "pk", "bd", "vn", "th"
+    };
+
+    // Second-level labels country-code registries sell names under, as in "co.uk"
+    private static final String[] SECOND_LEVEL_LABELS = {
+        "co", "com", "net", "org", "gov", "edu", "ac", "ne", "or", "gob"
+    };
+
+    // Pairs of (confusable, skeleton) characters; anything not listed maps to itself
+    private static final String CONFUSABLE_PAIRS =
+            // Digits and symbols commonly substituted for letters
+            "0o1l3e4a5s7t" +
+            // "i" and "l" are indistinguishable in many fonts, fold both to "l"
+            "il" +
+            // Latin-1 and Latin Extended accented letters
+            "àaáaâaãaäaåaçcèeéeêeëeìlílîlïlñnòoóoôoõoöoøoùuúuûuüuýyÿyıl" +
+            "ɑaɡgɩlʟlḃbḋdḟfṁmṗpṡsṫtẏyẓz" +
+            // Cyrillic lowercase
+            "аaвbгrдdеeѕsіlјjкkмmнhоoрpсcтtуyхxһhӏlԁdԛqԝwёeїlүy" +
+            // Cyrillic uppercase (compared after case folding)
+            "АaВbЕeЅsІlЈjКkМmНhОoРpСcТtУyХxҮyӀl" +
+            // Greek
+            "αaβbεeηnιlκkνvοoρpτtυuχxωwΑaΒbΕeΖzΗhΙlΚkΜmΝnΟoΡpΤtΥyΧx";
+
+    private static final char[] CONFUSABLE_KEYS;
+    private static final char[] CONFUSABLE_VALUES;
+
+    private static final WordIndex BRAND_SKELETONS;
+    private static final WordIndex TOP_LEVEL_DOMAIN_INDEX = new WordIndex(TOP_LEVEL_DOMAINS);
+
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    static {
+        int pairCount = CONFUSABLE_PAIRS.length() / 2;
+        long[] packed = new long[pairCount];
+        for (int i = 0; i < pairCount; i++) {
+            packed[i] = ((long) CONFUSABLE_PAIRS.charAt(i * 2) << 16) | CONFUSABLE_PAIRS.charAt(i * 2 + 1);
+        }
+        Arrays.sort(packed);
+        CONFUSABLE_KEYS = new char[pairCount];
+        CONFUSABLE_VALUES = new char[pairCount];
+        for (int i = 0; i < pairCount; i++) {
+            CONFUSABLE_KEYS[i] = (char) (packed[i] >>> 16);
+            CONFUSABLE_VALUES[i] = (char) packed[i];
+        }
+
+        String[] skeletons = new String[PROTECTED_BRANDS.length];
+        char[] scratch = new char[64];
+        for (int brand = 0; brand < PROTECTED_BRANDS.length; brand++) {
+            String label = PROTECTED_BRANDS[brand][0];
+            skeletons[brand] = new String(scratch, 0, skeletonOf(label, 0, label.length(), scratch));
+        }
+        BRAND_SKELETONS = new WordIndex(skeletons);
+    }
+
+    private char[] hostBuffer = new char[256];
+    private char[] skeletonBuffer = new char[256];
+
+    private int homoglyphCount;
+    private int impersonationCount;
+    // Brand index of the most recent host of each kind, or -1
+    private int homoglyphBrand;
+    private int impersonationBrand;
+
+    /** Name of the brand with the given index, as recorded in the analysis factors. */
+    public static String getBrandName(int brand) {
+        return brand >= 0 && brand < PROTECTED_BRANDS.length ? PROTECTED_BRANDS[brand][0] : null;
+    }
+
+    /**
+     * Scans the text and records a {@link RiskFactor#LOOKALIKE_DOMAIN} and a
+     * {@link RiskFactor#BRAND_IMPERSONATION} factor, each naming its own brand,
+     * for the kinds of spoofed hosts found. Returns the URL risk they add.
+     */
+    public int score(CharSequence text, RiskAnalysis analysis) {
+        if (scan(text) == 0) {
+            return 0;
+        }
+        int risk = 0;
+        if (homoglyphCount > 0) {
+            risk += LOOKALIKE_RISK * homoglyphCount;
+            analysis.addFactor(RiskFactor.LOOKALIKE_DOMAIN, homoglyphBrand);
+        }
+        if (impersonationCount > 0) {
+            risk += IMPERSONATION_RISK * impersonationCount;
+            analysis.addFactor(RiskFactor.BRAND_IMPERSONATION, impersonationBrand);
+        }
+        return risk;
+    }
+
+    /**
+     * Scans all hosts in the text and returns the number of spoofed domains found.
+     * Details of the last scan are available through the getters.
+     */
+    public int scan(CharSequence text) {
+        homoglyphCount = 0;
+        impersonationCount = 0;
+        homoglyphBrand = -1;
+        impersonationBrand = -1;
+        if (text == null) return 0;
+
+        int length = text.length();
+        int i = 0;
+        while (i < length) {
+            if (!isHostChar(text.charAt(i))) {
+                i++;
+                continue;
+            }
+            int start = i;
+            boolean hasDot = false;
+            while (i < length && isHostChar(text.charAt(i))) {
+                if (text.charAt(i) == '.') hasDot = true;
+                i++;
+            }
+            if (hasDot) {
+                checkHost(text, start, i, followsScheme(text, start));
+            }
+        }
+        return homoglyphCount + impersonationCount;
+    }
+
+    /** Number of hosts whose homoglyph skeleton matches a brand they do not belong to. */
+    public int getHomoglyphCount() { return homoglyphCount; }
+
+    /** Number of hosts using a brand name verbatim on a domain the brand does not own. */
+    public int getImpersonationCount() { return impersonationCount; }
+
+    /** Brand imitated by the most recent look-alike host, or null. */
+    public String getHomoglyphBrand() { return getBrandName(homoglyphBrand); }
+
+    /** Brand named by the most recent host using it verbatim, or null. */
+    public String getImpersonationBrand() { return getBrandName(impersonationBrand); }
+
+    private void checkHost(CharSequence text, int start, int end, boolean inUrl) {
+        // Trim leading/trailing dots and hyphens from sentence punctuation
+        while (start < end && (text.charAt(start) == '.' || text.charAt(start) == '-')) start++;
+        while (end > start && (text.charAt(end - 1) == '.' || text.charAt(end - 1) == '-')) end--;
+
+        int hostLength = end - start;
+        if (hostLength < 4 || hostLength > 253) return;
+        if (hostBuffer.length < hostLength) hostBuffer = new char[hostLength];
+
+        for (int j = 0; j < hostLength; j++) {
+            hostBuffer[j] = Character.toLowerCase(text.charAt(start + j));
+        }
+
+        // A host needs a purely alphabetic top-level domain of at least two letters
+        int lastDot = lastIndexOf(hostBuffer, hostLength, '.');
+        if (lastDot <= 0 || hostLength - lastDot - 1 < 2) return;
+        for (int j = lastDot + 1; j < hostLength; j++) {
+            if (!Character.isLetter(hostBuffer[j])) return;
+        }
+        // Outside of a URL, only a known top-level domain makes a dotted word a host
+        if (!inUrl && !regionStartsWith("www.", hostLength)
+                && TOP_LEVEL_DOMAIN_INDEX.indexOf(hostBuffer, lastDot + 1, hostLength) < 0) {
+            return;
+        }
+
+        if (containsPunycode(hostBuffer, hostLength)) {
+            String decoded = decodePunycode(new String(hostBuffer, 0, hostLength));
+            if (decoded == null) return;
+            hostLength = decoded.length();
+            if (hostBuffer.length < hostLength) hostBuffer = new char[hostLength];
+            decoded.getChars(0, hostLength, hostBuffer, 0);
+            lastDot = lastIndexOf(hostBuffer, hostLength, '.');
+        }
+
+        // The public suffix is the top-level domain, plus a registry label under
+        // a country code as in "co.uk"; the label in front of it is registrable
+        int suffixDot = lastDot;
+        int previousDot = lastIndexOf(hostBuffer, lastDot, '.');
+        if (hostLength - lastDot - 1 == 2 && previousDot > 0 && isSecondLevelLabel(previousDot + 1, lastDot)) {
+            suffixDot = previousDot;
+        }
+        int registrableStart = lastIndexOf(hostBuffer, suffixDot, '.') + 1;
+
+        // Check every label token in front of the public suffix
+        int tokenStart = 0;
+        for (int j = 0; j <= suffixDot; j++) {
+            char c = hostBuffer[j];
+            if (c == '.' || c == '-' || c == '_') {
+                // A brand name on a subdomain only counts when a suffix follows it
+                boolean nameCounts = tokenStart >= registrableStart
+                        || (c == '.' && followedBySuffix(j + 1, suffixDot));
+                if (checkToken(tokenStart, j, hostLength, nameCounts)) return;
+                tokenStart = j + 1;
+            }
+        }
+    }
+
+    private boolean checkToken(int start, int end, int hostLength, boolean nameCounts) {
+        if (end - start < 3) return false;
+        if (skeletonBuffer.length < end - start) skeletonBuffer = new char[end - start];
+
+        int length = skeletonOf(hostBuffer, start, end, skeletonBuffer);
+        int brand = BRAND_SKELETONS.indexOf(skeletonBuffer, 0, length);
+        if (brand < 0 || isOfficialDomain(brand, hostLength)) {
+            return false;
+        }
+
+        if (regionEquals(PROTECTED_BRANDS[brand][0], start, end)) {
+            if (!nameCounts) return false;
+            impersonationCount++;
+            impersonationBrand = brand;
+        } else {
+            homoglyphCount++;
+            homoglyphBrand = brand;
+        }
+        return true;
+    }
+
+    // True if the label starting at start, which lies before the public suffix, is a top-level domain
+    private boolean followedBySuffix(int start, int suffixDot) {
+        int end = start;
+        while (end < suffixDot && hostBuffer[end] != '.') end++;
+        return TOP_LEVEL_DOMAIN_INDEX.indexOf(hostBuffer, start, end) >= 0;
+    }
+
+    private boolean isSecondLevelLabel(int start, int end) {
+        for (String label : SECOND_LEVEL_LABELS) {
+            if (regionEquals(label, start, end)) return true;
+        }
+        return false;
+    }
+
+    private boolean regionStartsWith(String prefix, int hostLength) {
+        return hostLength > prefix.length() && regionEquals(prefix, 0, prefix.length());
+    }
+
+    private boolean isOfficialDomain(int brand, int hostLength) {
+        String[] row = PROTECTED_BRANDS[brand];
+        for (int i = 1; i < row.length; i++) {
+            String domain = row[i];
+            int offset = hostLength - domain.length();
+            if (offset < 0) continue;
+            // Exact match or a subdomain of the official domain
+            if ((offset == 0 || hostBuffer[offset - 1] == '.') && regionEquals(domain, offset, hostLength)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean regionEquals(String value, int start, int end) {
+        if (value.length() != end - start) return false;
+        for (int i = 0; i < value.length(); i++) {
+            if (hostBuffer[start + i] != value.charAt(i)) return false;
+        }
+        return true;
+    }
+
+    private static int skeletonOf(CharSequence source, int start, int end, char[] out) {
+        int length = 0;
+        for (int i = start; i < end; i++) {
+            length = appendSkeleton(out, length, source.charAt(i));
+        }
+        return length;
+    }
+
+    private static int skeletonOf(char[] source, int start, int end, char[] out) {
+        int length = 0;
+        for (int i = start; i < end; i++) {
+            length = appendSkeleton(out, length, source[i]);
+        }
+        return length;
+    }
+
+    private static int appendSkeleton(char[] out, int length, char raw) {
+        char c = fold(raw);
+        if (length > 0) {
+            char merged = mergeDigraph(out[length - 1], c);
+            if (merged != 0) {
+                out[length - 1] = merged;
+                return length;
+            }
+        }
+        out[length] = c;
+        return length + 1;
+    }
+
+    private static char fold(char c) {
+        if (c >= 'A' && c <= 'Z') c = (char) (c + 32);
+        // Fullwidth ASCII variants
+        if (c >= '！' && c <= '～') c = Character.toLowerCase((char) (c - 0xFEE0));
+        int index = Arrays.binarySearch(CONFUSABLE_KEYS, c);
+        return index >= 0 ? CONFUSABLE_VALUES[index] : c;
+    }
+
+    private static char mergeDigraph(char previous, char current) {
+        if (previous == 'r' && current == 'n') return 'm';
+        if (previous == 'v' && current == 'v') return 'w';
+        if (previous == 'c' && current == 'l') return 'd';
+        return 0;
+    }
+
+    private static long hash(char[] chars, int start, int end) {
+        long hash = FNV_OFFSET;
+        for (int i = start; i < end; i++) {
+            hash ^= chars[i];
+            hash *= FNV_PRIME;
+        }
+        return hash;
+    }
+
+    private static boolean containsPunycode(char[] host, int length) {
+        for (int i = 0; i + 3 < length; i++) {
+            if ((i == 0 || host[i - 1] == '.') && host[i] == 'x' && host[i + 1] == 'n'
+                    && host[i + 2] == '-' && host[i + 3] == '-') {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String decodePunycode(String host) {
+        try {
+            return IDN.toUnicode(host, IDN.ALLOW_UNASSIGNED).toLowerCase();
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private static int lastIndexOf(char[] chars, int length, char target) {
+        for (int i = length - 1; i >= 0; i--) {
+            if (chars[i] == target) return i;
+        }
+        return -1;
+    }
+
+    private static boolean followsScheme(CharSequence text, int start) {
+        return start >= 3 && text.charAt(start - 1) == '/' && text.charAt(start - 2) == '/'
+                && text.charAt(start - 3) == ':';
+    }
+
+    private static boolean isHostChar(char c) {
+        if (c < 0x80) {
+            return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9')
+                    || c == '.' || c == '-' || c == '_';
+        }
+        return Character.isLetterOrDigit(c);
+    }
+
+    /** Open-addressing hash index from words to their position in a list. */
+    private static final class WordIndex {
+        private final String[] words;
+        private final long[] keys;
+        private final int[] positions;
+        private final int mask;
+
+        WordIndex(String[] words) {
+            this.words = words;
+            int capacity = Integer.highestOneBit(words.length * 4 - 1) << 1;
+            mask = capacity - 1;
+            keys = new long[capacity];
+            positions = new int[capacity];
+            Arrays.fill(positions, -1);
+            for (int i = 0; i < words.length; i++) {
+                char[] word = words[i].toCharArray();
+                long hash = hash(word, 0, word.length);
+                int slot = (int) hash & mask;
+                while (positions[slot] != -1) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = hash;
+                positions[slot] = i;
+            }
+        }
+
+        /** Position of the word spelled by chars[start, end), or -1. */
+        int indexOf(char[] chars, int start, int end) {
+            long hash = hash(chars, start, end);
+            int slot = (int) hash & mask;
+            while (positions[slot] != -1) {
+                // Compare the word itself to guard against hash collisions
+                if (keys[slot] == hash && matches(words[positions[slot]], chars, start, end)) {
+                    return positions[slot];
+                }
+                slot = (slot + 1) & mask;
+            }
+            return -1;
+        }
+
+        private static boolean matches(String word, char[] chars, int start, int end) {
+            if (word.length() != end - start) return false;
+            for (int i = 0; i < word.length(); i++) {
+                if (chars[start + i] != word.charAt(i)) return false;
+            }
+            return true;
+        }
+    }
+}
@@ -0,0 +1,204 @@
+package com.socialmediasafety.rating.analysis;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * Logistic regression over feature-hashed word unigrams, word bigrams and
+ * character trigrams. Catches paraphrased scams that the fixed phrase and
+ * regex rules miss.
+ *
+ * Weights are stored in a primitive float array indexed by feature hash and
+ * are loaded from an 8-bit quantized model file produced by the
+ * HashedNgramTrainer in the unit tests. Scoring reuses a per-thread feature buffer, so
+ * it allocates nothing in steady state and is safe to call from any thread.
+ */
+public class HashedNgramClassifier {
+
+    /** Model file magic, "MSCL". */
+    public static final int MAGIC = 0x4D53434C;
+    public static final int VERSION = 1;
+    public static final int DEFAULT_HASH_BITS = 16;
+
+    // Features beyond this many are ignored; long screen dumps are truncated
+    static final int MAX_FEATURES = 4096;
+
+    private static final int SIGN_BIT = 0x80000000;
+
+    private static final int SEED_WORD = 0x3C6EF372;
+    private static final int SEED_BIGRAM = 0x5BE0CD19;
+    private static final int SEED_TRIGRAM = 0x1F83D9AB;
+
+    private static final ThreadLocal<int[]> FEATURE_BUFFER = new ThreadLocal<int[]>() {
+        @Override
+        protected int[] initialValue() {
+            return new int[MAX_FEATURES];
+        }
+    };
+
+    private final int hashBits;
+    private final float[] weights;
+    private float bias;
+
+    public HashedNgramClassifier(int hashBits) {
+        this(hashBits, new float[1 << hashBits], 0f);
+    }
+
+    HashedNgramClassifier(int hashBits, float[] weights, float bias) {
+        this.hashBits = hashBits;
+        this.weights = weights;
+        this.bias = bias;
+    }
+
+    /**
+     * Returns the probability that the text is a scam, between 0 and 1.
+     */
+    public float score(CharSequence text) {
+        int[] features = FEATURE_BUFFER.get();
+        int count = extractFeatures(text, features);
+        return sigmoid(margin(features, count));
+    }
+
+    public int getHashBits() { return hashBits; }
+
+    /**
+     * Reads a quantized model: magic, version, hash bits, scale, bias and then
+     * one signed byte per weight.
+     */
+    public static HashedNgramClassifier load(InputStream input) throws IOException {
+        DataInputStream in = new DataInputStream(input);
+        if (in.readInt() != MAGIC) {
+            throw new IOException("Not a classifier model file");
+        }
+        int version = in.readInt();
+        if (version != VERSION) {
+            throw new IOException("Unsupported classifier model version " + version);
+        }
+        int hashBits = in.readInt();
+        if (hashBits < 8 || hashBits > 24) {
+            throw new IOException("Invalid hash size " + hashBits);
+        }
+        float scale = in.readFloat();
+        float bias = in.readFloat();
+
+        byte[] quantized = new byte[1 << hashBits];
+        in.readFully(quantized);
+        float[] weights = new float[quantized.length];
+        for (int i = 0; i < quantized.length; i++) {
+            weights[i] = quantized[i] * scale;
+        }
+        return new HashedNgramClassifier(hashBits, weights, bias);
+    }
+
+    /** Writes the model in the quantized format read by {@link #load}. */
+    public void save(OutputStream output) throws IOException {
+        float maxAbs = 0f;
+        for (float weight : weights) {
+            maxAbs = Math.max(maxAbs, Math.abs(weight));
+        }
+        float scale = maxAbs > 0f ? maxAbs / 127f : 1f;
+
+        DataOutputStream out = new DataOutputStream(output);
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeInt(hashBits);
+        out.writeFloat(scale);
+        out.writeFloat(bias);
+        byte[] quantized = new byte[weights.length];
+        for (int i = 0; i < weights.length; i++) {
+            quantized[i] = (byte) Math.round(weights[i] / scale);
+        }
+        out.write(quantized);
+        out.flush();
+    }
+
+    /** One SGD step of L2-regularized logistic regression; used by the trainer. */
+    void train(int[] features, int count, int label, float learningRate, float l2) {
+        float error = label - sigmoid(margin(features, count));
+        float step = learningRate * error * normalization(count);
+        for (int i = 0; i < count; i++) {
+            int index = features[i] & ~SIGN_BIT;
+            float sign = (features[i] & SIGN_BIT) != 0 ? -1f : 1f;
+            weights[index] += step * sign - learningRate * l2 * weights[index];
+        }
+        bias += learningRate * error;
+    }
+
+    float margin(int[] features, int count) {
+        float sum = 0f;
+        for (int i = 0; i < count; i++) {
+            float weight = weights[features[i] & ~SIGN_BIT];
+            sum += (features[i] & SIGN_BIT) != 0 ? -weight : weight;
+        }
+        return bias + sum * normalization(count);
+    }
+
+    /**
+     * Hashes the text's n-grams into the feature buffer, each entry being a
+     * weight index with the hash sign in the top bit. Returns the feature count.
+     */
+    int extractFeatures(CharSequence text, int[] out) {
+        if (text == null) return 0;
+
+        int mask = (1 << hashBits) - 1;
+        int count = 0;
+        int previousWord = 0;
+        int wordHash = SEED_WORD;
+        int wordLength = 0;
+        // Last two characters of the current word for trigrams, '^' marks a word start
+        char c1 = '^';
+        char c2 = '^';
+
+        int length = text.length();
+        for (int i = 0; i <= length && count < out.length - 3; i++) {
+            char c = i < length ? Character.toLowerCase(text.charAt(i)) : ' ';
+            if (Character.isLetterOrDigit(c)) {
+                wordHash = (wordHash ^ c) * 0x01000193;
+                if (wordLength > 0) {
+                    out[count++] = encode(trigram(c2, c1, c), mask);
+                }
+                c2 = c1;
+                c1 = c;
+                wordLength++;
+            } else if (wordLength > 0) {
+                // Close the word: end-of-word trigram, unigram and bigram
+                out[count++] = encode(trigram(c2, c1, '$'), mask);
+                out[count++] = encode(wordHash, mask);
+                if (previousWord != 0) {
+                    out[count++] = encode((previousWord * 0x01000193) ^ wordHash ^ SEED_BIGRAM, mask);
+                }
+                previousWord = wordHash;
+                wordHash = SEED_WORD;
+                wordLength = 0;
+                c1 = '^';
+                c2 = '^';
+            }
+        }
+        return count;
+    }
+
+    private static int trigram(char a, char b, char c) {
+        return ((SEED_TRIGRAM ^ a) * 0x01000193 ^ b) * 0x01000193 ^ c;
+    }
+
+    private static int encode(int hash, int mask) {
+        // Murmur3 finalizer to spread FNV output before masking
+        hash ^= hash >>> 16;
+        hash *= 0x85ebca6b;
+        hash ^= hash >>> 13;
+        hash *= 0xc2b2ae35;
+        hash ^= hash >>> 16;
+        return (hash & mask) | (hash & SIGN_BIT);
+    }
+
+    private static float normalization(int count) {
+        return count > 0 ? (float) (1.0 / Math.sqrt(count)) : 0f;
+    }
+
+    private static float sigmoid(float z) {
+        return (float) (1.0 / (1.0 + Math.exp(-z)));
+    }
+}
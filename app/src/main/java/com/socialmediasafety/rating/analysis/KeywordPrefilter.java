@@ -0,0 +1,130 @@
+package com.socialmediasafety.rating.analysis;
+
+/**
+ * Tier 0 of the analysis pipeline: a single pass over the text that decides
+ * which rules could possibly match.
+ *
+ * Each rule is registered with its anchor words, the words at least one of
+ * which must appear for the rule to match. Scanning hashes every word once
+ * and ORs together the rule bits of the anchors it finds, so the result is a
+ * bitset of candidate rules. A result of 0 means the post is clean and no
+ * further tier needs to run. The same pass also records cheap text signals
+ * (URL-like tokens, shouting, exclamation marks) as flag bits.
+ *
+ * Instances are immutable after construction and safe to share across threads.
+ */
+public class KeywordPrefilter {
+
+    /** Maximum number of rules; the top bits are reserved for signal flags. */
+    public static final int MAX_RULES = 60;
+
+    /** Text contains a scheme, "www." or a word directly followed by ".tld". */
+    public static final long FLAG_URL_HINT = 1L << 60;
+    /** Text contains more than three exclamation marks. */
+    public static final long FLAG_EXCLAMATIONS = 1L << 61;
+    /** More than 30% of the characters are uppercase. */
+    public static final long FLAG_SHOUTING = 1L << 62;
+
+    /** Every rule and flag set, used when prefiltering is bypassed. */
+    public static final long ALL = -1L;
+
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private final long[] keys;
+    private final long[] ruleMasks;
+    private final int mask;
+
+    /**
+     * @param anchors anchor words per rule; rule i sets bit i of the scan result
+     */
+    public KeywordPrefilter(String[][] anchors) {
+        if (anchors.length > MAX_RULES) {
+            throw new IllegalArgumentException("At most " + MAX_RULES + " rules are supported");
+        }
+        int words = 0;
+        for (String[] ruleAnchors : anchors) {
+            words += ruleAnchors.length;
+        }
+        int capacity = Integer.highestOneBit(Math.max(words, 1) * 4 - 1) << 1;
+        keys = new long[capacity];
+        ruleMasks = new long[capacity];
+        mask = capacity - 1;
+
+        for (int rule = 0; rule < anchors.length; rule++) {
+            for (String word : anchors[rule]) {
+                add(hash(word.toLowerCase()), 1L << rule);
+            }
+        }
+    }
+
+    /**
+     * Returns the bitset of rules whose anchor words occur in the text, combined
+     * with the signal flags. Returns 0 for text with nothing worth analyzing.
+     */
+    public long scan(CharSequence text) {
+        if (text == null) return 0;
+
+        long result = 0;
+        int length = text.length();
+        int uppercase = 0;
+        int exclamations = 0;
+        long hash = FNV_OFFSET;
+        int wordLength = 0;
+
+        for (int i = 0; i <= length; i++) {
+            char c = i < length ? text.charAt(i) : ' ';
+            if (Character.isUpperCase(c)) uppercase++;
+            // Words are ASCII letter/digit runs, matching the rules' \b boundaries
+            if ((c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9')) {
+                hash = (hash ^ (c | 0x20)) * FNV_PRIME;
+                wordLength++;
+                continue;
+            }
+
+            if (wordLength > 0) {
+                result |= lookup(hash);
+                // "word.tld" or "word://" looks like a link
+                if ((c == '.' || c == ':') && i + 1 < length) {
+                    char next = text.charAt(i + 1);
+                    if ((c == '.' && Character.isLetter(next)) || (c == ':' && next == '/')) {
+                        result |= FLAG_URL_HINT;
+                    }
+                }
+                hash = FNV_OFFSET;
+                wordLength = 0;
+            }
+            if (c == '!') exclamations++;
+        }
+
+        if (exclamations > 3) result |= FLAG_EXCLAMATIONS;
+        if (uppercase > length * 0.3) result |= FLAG_SHOUTING;
+        return result;
+    }
+
+    private void add(long hash, long ruleBit) {
+        int slot = (int) (hash ^ (hash >>> 32)) & mask;
+        while (keys[slot] != 0 && keys[slot] != hash) {
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = hash;
+        ruleMasks[slot] |= ruleBit;
+    }
+
+    private long lookup(long hash) {
+        int slot = (int) (hash ^ (hash >>> 32)) & mask;
+        while (keys[slot] != 0) {
+            if (keys[slot] == hash) return ruleMasks[slot];
+            slot = (slot + 1) & mask;
+        }
+        return 0;
+    }
+
+    private static long hash(String word) {
+        long hash = FNV_OFFSET;
+        for (int i = 0; i < word.length(); i++) {
+            hash = (hash ^ word.charAt(i)) * FNV_PRIME;
+        }
+        return hash;
+    }
+}
@@ -0,0 +1,109 @@
+package com.socialmediasafety.rating.analysis;
+
+/**
+ * Guesses the language of a post from its character trigrams, so that only
+ * the rule packs for languages actually seen need to be loaded.
+ *
+ * Each language profile (src/main/tables/language_profiles.txt) lists its
+ * most frequent word trigrams ("_th", "the", "he_", with '_' marking a word
+ * boundary) together with a 4-bit weight, the quantized log frequency of the
+ * trigram relative to the rarest one in the profile. At build time all
+ * profiles are merged into one open-addressed table keyed by trigram, holding
+ * the weights of every language packed into a single int, so scoring costs one
+ * table lookup per trigram and nothing is built at runtime.
+ *
+ * Profiles are accent-free and expect text from {@link TextCanonicalizer}.
+ * Text that is too short, or where the two best languages score too close to
+ * call, is reported as unknown. Instances are immutable and safe to share
+ * across threads.
+ */
+public class LanguageIdentifier {
+
+    public static final String ENGLISH = "en";
+
+    private static final String[] LANGUAGES = GeneratedTables.LANGUAGES;
+
+    // Fewer trigrams than this is too little text to tell languages apart
+    private static final int MIN_TRIGRAMS = 20;
+    // Long screen dumps are decided on their beginning
+    private static final int MAX_TRIGRAMS = 400;
+    // The winner must lead the runner-up by at least 1/MARGIN_DIVISOR point per trigram
+    private static final int MARGIN_DIVISOR = 8;
+
+    private static final int BITS_PER_WEIGHT = 4;
+    private static final int WEIGHT_MASK = (1 << BITS_PER_WEIGHT) - 1;
+    private static final int BOUNDARY = 0;
+    private static final int SYMBOLS = 27;
+
+    private final int[] keys = GeneratedTables.LANGUAGE_TABLE_KEYS;
+    private final int[] weights = GeneratedTables.LANGUAGE_TABLE_WEIGHTS;
+    private final int mask = GeneratedTables.LANGUAGE_TABLE_MASK;
+
+    /**
+     * Returns the language code of the text ("en", "es", ...) or null when the
+     * text is too short or too ambiguous to tell.
+     */
+    public String identify(CharSequence text) {
+        if (text == null) return null;
+
+        int[] scores = new int[LANGUAGES.length];
+        int trigrams = 0;
+        int length = text.length();
+        // Two previous symbols; the text starts as if after a word boundary
+        int first = -1;
+        int second = BOUNDARY;
+
+        for (int i = 0; i <= length && trigrams < MAX_TRIGRAMS; i++) {
+            int symbol = i < length ? symbol(text.charAt(i)) : BOUNDARY;
+            if (symbol == BOUNDARY && second == BOUNDARY) continue;
+
+            // Only trigrams within a word, including its boundaries, are profiled
+            if (first >= 0 && second != BOUNDARY) {
+                int packed = lookup(trigram(first, second, symbol));
+                for (int language = 0; packed != 0; language++) {
+                    scores[language] += packed & WEIGHT_MASK;
+                    packed >>>= BITS_PER_WEIGHT;
+                }
+                trigrams++;
+            }
+            first = second;
+            second = symbol;
+        }
+        if (trigrams < MIN_TRIGRAMS) return null;
+
+        int best = 0;
+        int runnerUp = -1;
+        for (int language = 1; language < scores.length; language++) {
+            if (scores[language] > scores[best]) {
+                runnerUp = best;
+                best = language;
+            } else if (runnerUp < 0 || scores[language] > scores[runnerUp]) {
+                runnerUp = language;
+            }
+        }
+        if ((scores[best] - scores[runnerUp]) * MARGIN_DIVISOR < trigrams) return null;
+        return LANGUAGES[best];
+    }
+
+    // ASCII letters map to 1..26, everything else is a word boundary
+    private static int symbol(char c) {
+        if (c >= 'a' && c <= 'z') return c - 'a' + 1;
+        if (c >= 'A' && c <= 'Z') return c - 'A' + 1;
+        return BOUNDARY;
+    }
+
+    private static int trigram(int first, int second, int third) {
+        return (first * SYMBOLS + second) * SYMBOLS + third;
+    }
+
+    // Keys are stored plus one so that 0 marks an empty slot; analysis-tables.gradle
+    // places them with the same probe sequence
+    private int lookup(int key) {
+        int slot = (key * 0x9E3779B1 >>> 16) & mask;
+        while (keys[slot] != 0) {
+            if (keys[slot] == key + 1) return weights[slot];
+            slot = (slot + 1) & mask;
+        }
+        return 0;
+    }
+}
@@ -0,0 +1,243 @@
+package com.socialmediasafety.rating.analysis;
+
+import java.util.Arrays;
+
+/**
+ * Bounded-memory index of MinHash signatures for posts seen in this session,
+ * used to spot copy-paste bot campaigns posting the same text with small edits.
+ *
+ * Signatures live in a fixed ring of slots and the oldest entry is evicted
+ * once the ring is full, so memory never grows. Candidates are found through
+ * banded lookup tables (LSH): two posts land in the same bucket of at least one
+ * band with high probability once their shingle sets are similar enough.
+ */
+public class NearDuplicateIndex {
+
+    /** Estimated Jaccard similarity at which two posts count as near-identical. */
+    public static final float MIN_SIMILARITY = 0.6f;
+
+    // Posts with fewer words produce unstable signatures
+    private static final int MIN_WORDS = 5;
+    private static final int SHINGLE_LENGTH = 4;
+
+    private static final int HASHES = 16;
+    private static final int ROWS_PER_BAND = 2;
+    private static final int BANDS = HASHES / ROWS_PER_BAND;
+    private static final int BUCKETS_PER_BAND = 1024;
+    private static final int MIN_MATCHING_HASHES = (int) Math.ceil(HASHES * MIN_SIMILARITY);
+
+    private static final long[] SEEDS = new long[HASHES];
+
+    static {
+        long seed = 0x2545F4914F6CDD1DL;
+        for (int i = 0; i < HASHES; i++) {
+            seed = mix(seed + 0x9E3779B97F4A7C15L);
+            SEEDS[i] = seed;
+        }
+    }
+
+    private final int capacity;
+    private final long windowMillis;
+
+    private final int[] signatures;
+    private final long[] contentHashes;
+    private final int[] authorHashes;
+    private final long[] timestamps;
+    private final boolean[] occupied;
+
+    // Per-band chained hash tables over slot indices (-1 terminates a chain)
+    private final int[] bucketHeads;
+    private final int[] nextInBucket;
+
+    // Marks slots already inspected during the current query
+    private final int[] visitedEpoch;
+    private int epoch;
+
+    private final int[] signature = new int[HASHES];
+    private long contentHash;
+    private int nextSlot;
+
+    public NearDuplicateIndex(int capacity, long windowMillis) {
+        this.capacity = capacity;
+        this.windowMillis = windowMillis;
+        this.signatures = new int[capacity * HASHES];
+        this.contentHashes = new long[capacity];
+        this.authorHashes = new int[capacity];
+        this.timestamps = new long[capacity];
+        this.occupied = new boolean[capacity];
+        this.bucketHeads = new int[BANDS * BUCKETS_PER_BAND];
+        this.nextInBucket = new int[BANDS * capacity];
+        this.visitedEpoch = new int[capacity];
+        Arrays.fill(bucketHeads, -1);
+    }
+
+    /**
+     * Records the post and returns how many distinct near-identical posts were
+     * seen within the time window. A post whose normalized text matches one
+     * indexed for the same author only refreshes that entry, so re-rendering
+     * the same post while scrolling is not counted as repetition; exact copies
+     * by other authors are counted. A null author is treated as one author.
+     */
+    public synchronized int recordAndCount(CharSequence text, String author, long nowMillis) {
+        if (!computeSignature(text)) {
+            return 0;
+        }
+        int authorHash = author != null ? author.hashCode() : 0;
+
+        if (++epoch == Integer.MAX_VALUE) {
+            Arrays.fill(visitedEpoch, 0);
+            epoch = 1;
+        }
+
+        int nearDuplicates = 0;
+        int exactSlot = -1;
+        for (int band = 0; band < BANDS; band++) {
+            int slot = bucketHeads[band * BUCKETS_PER_BAND + bucketOf(signature, 0, band)];
+            while (slot != -1) {
+                if (visitedEpoch[slot] != epoch) {
+                    visitedEpoch[slot] = epoch;
+                    if (nowMillis - timestamps[slot] <= windowMillis) {
+                        if (contentHashes[slot] == contentHash && authorHashes[slot] == authorHash) {
+                            exactSlot = slot;
+                        } else if (contentHashes[slot] == contentHash) {
+                            nearDuplicates++;
+                        } else if (matchingHashes(slot) >= MIN_MATCHING_HASHES) {
+                            nearDuplicates++;
+                        }
+                    }
+                }
+                slot = nextInBucket[band * capacity + slot];
+            }
+        }
+
+        if (exactSlot != -1) {
+            timestamps[exactSlot] = nowMillis;
+        } else {
+            insert(authorHash, nowMillis);
+        }
+        return nearDuplicates;
+    }
+
+    /** Number of signatures currently held. */
+    public synchronized int size() {
+        int size = 0;
+        for (boolean slotUsed : occupied) {
+            if (slotUsed) size++;
+        }
+        return size;
+    }
+
+    private int matchingHashes(int slot) {
+        int base = slot * HASHES;
+        int matching = 0;
+        for (int i = 0; i < HASHES; i++) {
+            if (signatures[base + i] == signature[i]) matching++;
+        }
+        return matching;
+    }
+
+    private void insert(int authorHash, long nowMillis) {
+        int slot = nextSlot;
+        nextSlot = (nextSlot + 1) % capacity;
+
+        if (occupied[slot]) {
+            unlink(slot);
+        }
+
+        System.arraycopy(signature, 0, signatures, slot * HASHES, HASHES);
+        contentHashes[slot] = contentHash;
+        authorHashes[slot] = authorHash;
+        timestamps[slot] = nowMillis;
+        occupied[slot] = true;
+        for (int band = 0; band < BANDS; band++) {
+            int head = band * BUCKETS_PER_BAND + bucketOf(signatures, slot * HASHES, band);
+            nextInBucket[band * capacity + slot] = bucketHeads[head];
+            bucketHeads[head] = slot;
+        }
+    }
+
+    private void unlink(int slot) {
+        for (int band = 0; band < BANDS; band++) {
+            int head = band * BUCKETS_PER_BAND + bucketOf(signatures, slot * HASHES, band);
+            int previous = -1;
+            int current = bucketHeads[head];
+            while (current != -1 && current != slot) {
+                previous = current;
+                current = nextInBucket[band * capacity + current];
+            }
+            if (current == -1) continue;
+
+            int next = nextInBucket[band * capacity + slot];
+            if (previous == -1) {
+                bucketHeads[head] = next;
+            } else {
+                nextInBucket[band * capacity + previous] = next;
+            }
+        }
+        occupied[slot] = false;
+    }
+
+    private static int bucketOf(int[] source, int offset, int band) {
+        int hash = 17;
+        for (int row = 0; row < ROWS_PER_BAND; row++) {
+            hash = hash * 31 + source[offset + band * ROWS_PER_BAND + row];
+        }
+        return (hash * 0x9E3779B1 >>> 22) & (BUCKETS_PER_BAND - 1);
+    }
+
+    /**
+     * Fills {@link #signature} with the MinHash of the character 4-gram shingles
+     * of the lowercased text, with punctuation and whitespace runs collapsed,
+     * and {@link #contentHash} with a hash of that normalized text. Returns
+     * false for texts too short to fingerprint.
+     */
+    private boolean computeSignature(CharSequence text) {
+        if (text == null) return false;
+        Arrays.fill(signature, Integer.MAX_VALUE);
+        contentHash = 0xcbf29ce484222325L;
+
+        int words = 0;
+        long window = 0;
+        int windowLength = 0;
+        boolean pendingSeparator = false;
+        int length = text.length();
+        for (int i = 0; i < length; i++) {
+            char c = text.charAt(i);
+            if (!Character.isLetterOrDigit(c)) {
+                // Collapse separator runs and drop leading/trailing ones
+                pendingSeparator = words > 0;
+                continue;
+            }
+            if (pendingSeparator || words == 0) words++;
+
+            // Rolling window of the last four characters packed into one long
+            if (pendingSeparator) {
+                window = (window << 16) | ' ';
+                windowLength++;
+                addShingle(window, windowLength);
+                pendingSeparator = false;
+            }
+            window = (window << 16) | Character.toLowerCase(c);
+            windowLength++;
+            addShingle(window, windowLength);
+        }
+        return words >= MIN_WORDS && windowLength >= SHINGLE_LENGTH;
+    }
+
+    private void addShingle(long window, int windowLength) {
+        contentHash = (contentHash ^ (window & 0xFFFF)) * 0x100000001b3L;
+        if (windowLength < SHINGLE_LENGTH) return;
+
+        for (int h = 0; h < HASHES; h++) {
+            int value = (int) (mix(window ^ SEEDS[h]) >>> 33);
+            if (value < signature[h]) signature[h] = value;
+        }
+    }
+
+    private static long mix(long hash) {
+        // Finalizer from SplitMix64, used as a family of independent hash functions
+        hash = (hash ^ (hash >>> 30)) * 0xbf58476d1ce4e5b9L;
+        hash = (hash ^ (hash >>> 27)) * 0x94d049bb133111ebL;
+        return hash ^ (hash >>> 31);
+    }
+}
@@ -1,99 +1,222 @@
 package com.socialmediasafety.rating.analysis;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import com.socialmediasafety.rating.Platform;
 
 
+/**
+ * Result of analyzing one piece of text.
+ *
+ * Kept compact so scoring produces no garbage beyond the result itself: the
+ * factors found are a bitset of {@link RiskFactor} ordinals with one int
+ * argument each, category scores live in a small int array, and the
+ * human-readable descriptions are only rendered by {@link #getRiskFactors()}
+ * when the details are shown. {@link #reset()} clears an instance so callers
+ * can reuse one result from post to post.
+ */
 public class RiskAnalysis {
-    private int riskScore;
-    private int financialRisk;
-    private int phishingRisk;
-    private int spamRisk;
-    private int urlRisk;
 
-    private double totalRiskScore;
-    private RiskLevel riskLevel;
-    private List<String> riskFactors;
-    private Platform platform;
+    public static final int CATEGORY_FINANCIAL = 0;
+    public static final int CATEGORY_PHISHING = 1;
+    public static final int CATEGORY_SPAM = 2;
+    public static final int CATEGORY_URL = 3;
+    public static final int CATEGORY_CLASSIFIER = 4;
+    public static final int CATEGORY_COUNT = 5;
 
-    public RiskAnalysis() {
-        this.riskFactors = new ArrayList<>();
-        this.riskLevel = RiskLevel.SAFE;
-    }
+    // Category scores are on a 0-100 scale; their total over this is the overall score
+    private static final double CATEGORY_SCALE = 100.0;
+    // Overall scores from which a text is high or medium risk
+    private static final double HIGH_THRESHOLD = 0.7;
+    private static final double MEDIUM_THRESHOLD = 0.4;
+
+    private final int[] categoryScores = new int[CATEGORY_COUNT];
+    private final int[] factorValues = new int[RiskFactor.VALUES.length];
+    private long factors;
 
-    public RiskAnalysis(int riskScore, RiskLevel riskLevel, List<String> riskFactors, Platform platform) {
-        this.riskScore = riskScore;
-        this.riskLevel = riskLevel;
-        this.riskFactors = riskFactors != null ? riskFactors : new ArrayList<>();
-        this.platform = platform;
+    private int riskScore;
+    private double totalRiskScore;
+    private RiskLevel riskLevel = RiskLevel.SAFE;
+    private Platform platform;
+    // Part of the text or of the checks was skipped to stay within the budget
+    private boolean truncated;
+
+    /** Clears the result so the instance can be reused for another analysis. */
+    public void reset() {
+        Arrays.fill(categoryScores, 0);
+        for (long bits = factors; bits != 0; bits &= bits - 1) {
+            factorValues[Long.numberOfTrailingZeros(bits)] = 0;
+        }
+        factors = 0;
+        riskScore = 0;
+        totalRiskScore = 0;
+        riskLevel = RiskLevel.SAFE;
+        platform = null;
+        truncated = false;
     }
 
     // Getters
     public int getRiskScore() { return riskScore; }
     public RiskLevel getRiskLevel() { return riskLevel; }
-    public List<String> getRiskFactors() { return riskFactors; }
     public Platform getPlatform() { return platform; }
     public double getTotalRiskScore() { return totalRiskScore; }
+    public int getCategoryScore(int category) { return categoryScores[category]; }
+    public boolean isTruncated() { return truncated; }
 
     // Setters
     public void setRiskScore(int riskScore) { this.riskScore = riskScore; }
     public void setRiskLevel(RiskLevel riskLevel) { this.riskLevel = riskLevel; }
-    public void setRiskFactors(List<String> riskFactors) { this.riskFactors = riskFactors; }
     public void setPlatform(Platform platform) { this.platform = platform; }
+    public void setTruncated(boolean truncated) { this.truncated = truncated; }
 
-    public void setFinancialRisk(int value) { this.financialRisk = value; }
-    public void setPhishingRisk(int value) { this.phishingRisk = value; }
-    public void setSpamRisk(int value) { this.spamRisk = value; }
-    public void setUrlRisk(int value) { this.urlRisk = value; }
+    public void setFinancialRisk(int value) { categoryScores[CATEGORY_FINANCIAL] = value; }
+    public void setPhishingRisk(int value) { categoryScores[CATEGORY_PHISHING] = value; }
+    public void setSpamRisk(int value) { categoryScores[CATEGORY_SPAM] = value; }
+    public void setUrlRisk(int value) { categoryScores[CATEGORY_URL] = value; }
+    public void setClassifierRisk(int value) { categoryScores[CATEGORY_CLASSIFIER] = value; }
 
     public void calculateOverallRisk() {
-        int total = financialRisk + phishingRisk + spamRisk + urlRisk;
+        int total = categoryTotal();
         this.riskScore = total;
-        this.totalRiskScore = total / 4.0;
+        this.totalRiskScore = total / CATEGORY_SCALE;
 
-        if (totalRiskScore >= 0.7) {
+        if (totalRiskScore >= HIGH_THRESHOLD) {
             this.riskLevel = RiskLevel.HIGH;
-        } else if (totalRiskScore >= 0.4) {
+        } else if (totalRiskScore >= MEDIUM_THRESHOLD) {
             this.riskLevel = RiskLevel.MEDIUM;
         } else {
             this.riskLevel = RiskLevel.SAFE;
         }
     }
 
-    public void addRisk(String reason, double weight) {
-        this.riskFactors.add(reason);
+    /**
+     * True once the category scores alone make the text high risk, by the same
+     * score and threshold as {@link #calculateOverallRisk()}. Scores only ever
+     * add up, so checks still to run cannot change the level.
+     */
+    public boolean isDecided() {
+        return categoryTotal() / CATEGORY_SCALE >= HIGH_THRESHOLD;
+    }
+
+    private int categoryTotal() {
+        int total = 0;
+        for (int score : categoryScores) {
+            total += score;
+        }
+        return total;
+    }
+
+    public void addRisk(RiskFactor factor, double weight) {
+        addRisk(factor, 0, weight);
+    }
+
+    public void addRisk(RiskFactor factor, int value, double weight) {
+        addFactor(factor, value);
+        this.totalRiskScore += weight;
+        this.riskScore = (int)(totalRiskScore * 100);
+    }
+
+    /** Records a factor without changing the score. */
+    public void addFactor(RiskFactor factor, int value) {
+        factors |= 1L << factor.ordinal();
+        factorValues[factor.ordinal()] = value;
+    }
+
+    /** Records every factor found by another analysis and adds the weight once. */
+    public void addRisk(RiskAnalysis other, double weight) {
+        for (long bits = other.factors; bits != 0; bits &= bits - 1) {
+            int ordinal = Long.numberOfTrailingZeros(bits);
+            factors |= 1L << ordinal;
+            factorValues[ordinal] = other.factorValues[ordinal];
+        }
         this.totalRiskScore += weight;
         this.riskScore = (int)(totalRiskScore * 100);
     }
 
+    public boolean hasFactor(RiskFactor factor) { return (factors & (1L << factor.ordinal())) != 0; }
+    public int getFactorValue(RiskFactor factor) { return factorValues[factor.ordinal()]; }
+
+    /** Bitset of the ordinals of the factors found. */
+    public long getFactorBits() { return factors; }
+
+    /**
+     * Renders the descriptions of the factors found. Allocates, so call it only
+     * when the details are shown or stored.
+     */
+    public List<String> getRiskFactors() {
+        List<String> descriptions = new ArrayList<>(Long.bitCount(factors));
+        for (long bits = factors; bits != 0; bits &= bits - 1) {
+            int ordinal = Long.numberOfTrailingZeros(bits);
+            descriptions.add(RiskFactor.VALUES[ordinal].describe(factorValues[ordinal]));
+        }
+        return descriptions;
+    }
+
+    /** Writes the result in the form {@link #readFrom} expects, to hand it to another process. */
+    public void writeTo(DataOutput out) throws IOException {
+        out.writeInt(riskScore);
+        out.writeDouble(totalRiskScore);
+        out.writeByte(riskLevel.ordinal());
+        out.writeByte(platform != null ? platform.ordinal() : -1);
+        out.writeBoolean(truncated);
+        for (int score : categoryScores) {
+            out.writeInt(score);
+        }
+        out.writeLong(factors);
+        for (long bits = factors; bits != 0; bits &= bits - 1) {
+            out.writeInt(factorValues[Long.numberOfTrailingZeros(bits)]);
+        }
+    }
+
+    /** Replaces this result with one written by {@link #writeTo}. */
+    public void readFrom(DataInput in) throws IOException {
+        reset();
+        riskScore = in.readInt();
+        totalRiskScore = in.readDouble();
+        riskLevel = RiskLevel.values()[in.readByte()];
+        int platformOrdinal = in.readByte();
+        platform = platformOrdinal >= 0 ? Platform.values()[platformOrdinal] : null;
+        truncated = in.readBoolean();
+        for (int i = 0; i < categoryScores.length; i++) {
+            categoryScores[i] = in.readInt();
+        }
+        factors = in.readLong();
+        for (long bits = factors; bits != 0; bits &= bits - 1) {
+            factorValues[Long.numberOfTrailingZeros(bits)] = in.readInt();
+        }
+    }
+
     public void addTwitterSpecificRisks(String text) {
         if (text.contains("giveaway") || text.contains("elon")) {
-            addRisk("Potential Twitter crypto scam", 0.7);
+            addRisk(RiskFactor.TWITTER_CRYPTO_SCAM, 0.7);
         }
     }
 
     public void addRedditSpecificRisks(String text) {
         if (text.contains("modmail scam")) {
-            addRisk("Reddit modmail scam pattern", 0.6);
+            addRisk(RiskFactor.REDDIT_MODMAIL_SCAM, 0.6);
         }
     }
 
     public void addFacebookSpecificRisks(String text) {
         if (text.contains("account suspended")) {
-            addRisk("Facebook suspension scam", 0.6);
+            addRisk(RiskFactor.FACEBOOK_SUSPENSION_SCAM, 0.6);
         }
     }
 
     public void addDiscordSpecificRisks(String text) {
         if (text.contains("NFT drop") || text.contains("airdrop")) {
-            addRisk("Discord crypto/NFT scam", 0.8);
+            addRisk(RiskFactor.DISCORD_CRYPTO_SCAM, 0.8);
         }
     }
 
     public void addInstagramSpecificRisks(String text) {
         if (text.contains("sugar daddy") || text.contains("dm to earn")) {
-            addRisk("Instagram scam indicators", 0.5);
+            addRisk(RiskFactor.INSTAGRAM_SCAM, 0.5);
         }
     }
 }
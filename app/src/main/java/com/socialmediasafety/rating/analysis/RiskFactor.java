@@ -0,0 +1,72 @@
+package com.socialmediasafety.rating.analysis;
+
+/**
+ * Reasons an analysis can report. A {@link RiskAnalysis} stores only the
+ * ordinals of the factors found plus one int argument each; the description
+ * is rendered from the template when the details are actually shown. "{n}"
+ * stands for the argument and "{brand}" for the impersonated brand, whose
+ * {@link DomainSpoofDetector} index the argument is then. Factors
+ * are listed in declaration order, so keep related ones together.
+ */
+public enum RiskFactor {
+    // Platform-specific rules
+    TWITTER_CRYPTO_SCAM("Potential Twitter crypto scam"),
+    REDDIT_MODMAIL_SCAM("Reddit modmail scam pattern"),
+    FACEBOOK_SUSPENSION_SCAM("Facebook suspension scam"),
+    DISCORD_CRYPTO_SCAM("Discord crypto/NFT scam"),
+    INSTAGRAM_SCAM("Instagram scam indicators"),
+
+    // Per-post checks
+    CRYPTO_SCAM("Crypto scam indicators"),
+    BITCOIN_DOUBLING("Bitcoin doubling scam"),
+    CLICK_BAIT("Click-bait scam"),
+    VERIFICATION_PHISHING("Account verification phishing"),
+    SUSPENSION_PHISHING("Account suspension phishing"),
+    URGENCY("Urgency manipulation"),
+    FAKE_GIVEAWAY("Fake giveaway"),
+    COPY_PASTE_CAMPAIGN("Copy-paste campaign ({n} near-identical posts)"),
+
+    // Phrase list analyzer
+    FINANCIAL_PHRASES("Financial scam indicators ({n} matches)"),
+    PHISHING_PHRASES("Phishing indicators ({n} matches)"),
+    URGENCY_PHRASES("Urgency manipulation ({n} matches)"),
+    SPAM_PHRASES("Spam indicators ({n} matches)"),
+    BOT_PHRASES("Bot-like behavior ({n} matches)"),
+    MALICIOUS_PHRASES("Malicious content indicators ({n} matches)"),
+    TWITTER_ENGAGEMENT_BAIT("Twitter engagement bait ({n} matches)"),
+    REDDIT_KARMA_FARMING("Reddit karma farming ({n} matches)"),
+    DISCORD_SCAM_PHRASES("Discord scam patterns ({n} matches)"),
+    EXCESSIVE_UPPERCASE("Excessive uppercase text"),
+    SHORT_TEXT_WITH_LINKS("Short text with links"),
+    EXCESSIVE_PUNCTUATION("Excessive punctuation"),
+    SHORTENED_URLS("Contains shortened URLs"),
+    MULTIPLE_URLS("Multiple URLs ({n} links)"),
+    SHORT_LINK_DESTINATION("Shortened link leads to a suspicious site"),
+    LISTED_DOMAIN("Links to a reported malicious domain ({n} domains)"),
+
+    // Domain spoofing and classifier, shared by both analyzers
+    LOOKALIKE_DOMAIN("Look-alike domain spoofing ({brand})"),
+    BRAND_IMPERSONATION("Brand name on unofficial domain ({brand})"),
+    CLASSIFIER_MATCH("Scam language model match ({n}%)"),
+
+    // Conversation and author tracking
+    ESCALATING_CONVERSATION("Escalating conversation ({n} risky messages)"),
+    RISKY_AUTHOR("Author posted risky content before ({n} posts)");
+
+    // values() copies the array on every call
+    static final RiskFactor[] VALUES = values();
+
+    private final String template;
+
+    RiskFactor(String template) {
+        this.template = template;
+    }
+
+    /** Renders the description for the given argument. */
+    public String describe(int value) {
+        String text = template;
+        if (text.indexOf('{') < 0) return text;
+        return text.replace("{n}", String.valueOf(value))
+                .replace("{brand}", String.valueOf(DomainSpoofDetector.getBrandName(value)));
+    }
+}
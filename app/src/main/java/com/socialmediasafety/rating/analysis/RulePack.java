@@ -0,0 +1,132 @@
+package com.socialmediasafety.rating.analysis;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * Phrase rules for one language other than English, which is built into
+ * ContentAnalyzer.
+ *
+ * A pack is a text file with one rule per line:
+ * <pre>
+ * financial dinero,ganar (?i)\b(ganar|gana)\b.*\bdinero\b
+ * </pre>
+ * that is the rule's category, its anchor words separated by commas, and the
+ * regex, which runs only when one of the anchors occurs in the text (see
+ * {@link KeywordPrefilter}). Blank lines and lines starting with '#' are
+ * ignored. Packs are matched against canonical text, so their rules should be
+ * written without accents.
+ *
+ * Instances are immutable after parsing and safe to share across threads;
+ * each thread matches with its own reused set of matchers.
+ */
+public class RulePack {
+
+    public static final int FINANCIAL = 0;
+    public static final int PHISHING = 1;
+    public static final int SPAM = 2;
+
+    private static final String[] CATEGORY_NAMES = {"financial", "phishing", "spam"};
+
+    // Only rule bits; the prefilter's signal flags are already used by the built-in rules
+    private static final long RULE_MASK = (1L << KeywordPrefilter.MAX_RULES) - 1;
+
+    private final String language;
+    private final Pattern[] patterns;
+    private final int[] categories;
+    private final KeywordPrefilter prefilter;
+    private final ThreadLocal<Matcher[]> matchers = new ThreadLocal<Matcher[]>() {
+        @Override
+        protected Matcher[] initialValue() {
+            Matcher[] threadMatchers = new Matcher[patterns.length];
+            for (int i = 0; i < patterns.length; i++) {
+                threadMatchers[i] = patterns[i].matcher("");
+            }
+            return threadMatchers;
+        }
+    };
+
+    private RulePack(String language, Pattern[] patterns, int[] categories, String[][] anchors) {
+        this.language = language;
+        this.patterns = patterns;
+        this.categories = categories;
+        this.prefilter = new KeywordPrefilter(anchors);
+    }
+
+    /**
+     * Parses and compiles a pack. Throws IOException naming the line of the
+     * first malformed rule.
+     */
+    public static RulePack parse(String language, InputStream in) throws IOException {
+        List<Pattern> patterns = new ArrayList<>();
+        List<Integer> categories = new ArrayList<>();
+        List<String[]> anchors = new ArrayList<>();
+
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        String line;
+        int lineNumber = 0;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            line = line.trim();
+            if (line.isEmpty() || line.startsWith("#")) continue;
+
+            String[] fields = line.split("\\s+", 3);
+            int category = fields.length == 3 ? categoryOf(fields[0]) : -1;
+            if (category < 0) {
+                throw new IOException(language + " rule pack, line " + lineNumber + ": malformed rule");
+            }
+            if (patterns.size() == KeywordPrefilter.MAX_RULES) {
+                throw new IOException(language + " rule pack has more than " + KeywordPrefilter.MAX_RULES + " rules");
+            }
+            try {
+                patterns.add(Pattern.compile(fields[2]));
+            } catch (PatternSyntaxException e) {
+                throw new IOException(language + " rule pack, line " + lineNumber + ": " + e.getDescription());
+            }
+            categories.add(category);
+            anchors.add(fields[1].split(","));
+        }
+
+        int[] categoryArray = new int[categories.size()];
+        for (int i = 0; i < categoryArray.length; i++) {
+            categoryArray[i] = categories.get(i);
+        }
+        return new RulePack(language, patterns.toArray(new Pattern[0]), categoryArray,
+                anchors.toArray(new String[0][]));
+    }
+
+    private static int categoryOf(String name) {
+        for (int i = 0; i < CATEGORY_NAMES.length; i++) {
+            if (CATEGORY_NAMES[i].equals(name)) return i;
+        }
+        return -1;
+    }
+
+    /** Returns the bitset of rules whose anchors occur in the text; 0 if none can match. */
+    public long scan(CharSequence text) {
+        return prefilter.scan(text) & RULE_MASK;
+    }
+
+    /** Counts the candidate rules of the given category that match the text. */
+    public int countMatches(String text, long candidates, int category) {
+        Matcher[] threadMatchers = matchers.get();
+        int matches = 0;
+        for (int i = 0; i < threadMatchers.length; i++) {
+            if (categories[i] == category && (candidates & (1L << i)) != 0 && threadMatchers[i].reset(text).find()) {
+                matches++;
+            }
+        }
+        return matches;
+    }
+
+    public String getLanguage() { return language; }
+    public int getRuleCount() { return patterns.length; }
+}
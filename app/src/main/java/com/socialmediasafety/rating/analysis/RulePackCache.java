@@ -0,0 +1,63 @@
+package com.socialmediasafety.rating.analysis;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Loads rule packs on first use and keeps the most recently used ones, so a
+ * feed in several languages only pays for the packs it actually needs.
+ *
+ * Packs are parsed and compiled the first time their language is seen and
+ * evicted least recently used once more than the configured number are held.
+ * A language without a pack, or whose pack fails to load, is remembered and
+ * not tried again. Safe to call from any thread.
+ */
+public class RulePackCache {
+
+    /** Opens the pack file for a language. */
+    public interface Source {
+        InputStream open(String language) throws IOException;
+    }
+
+    private final Source source;
+    private final Map<String, RulePack> packs;
+    private final Set<String> unavailable = new HashSet<>();
+    private int loadCount;
+    private int evictionCount;
+
+    public RulePackCache(Source source, final int capacity) {
+        this.source = source;
+        this.packs = new LinkedHashMap<String, RulePack>(capacity + 1, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, RulePack> eldest) {
+                if (size() <= capacity) return false;
+                evictionCount++;
+                return true;
+            }
+        };
+    }
+
+    /** Returns the pack for the language, loading it if needed, or null if there is none. */
+    public synchronized RulePack get(String language) {
+        RulePack pack = packs.get(language);
+        if (pack != null || unavailable.contains(language)) return pack;
+
+        try (InputStream in = source.open(language)) {
+            pack = RulePack.parse(language, in);
+        } catch (IOException e) {
+            unavailable.add(language);
+            return null;
+        }
+        packs.put(language, pack);
+        loadCount++;
+        return pack;
+    }
+
+    public synchronized int getLoadCount() { return loadCount; }
+    public synchronized int getEvictionCount() { return evictionCount; }
+    public synchronized int size() { return packs.size(); }
+}
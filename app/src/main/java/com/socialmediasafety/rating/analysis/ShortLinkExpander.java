@@ -0,0 +1,300 @@
+package com.socialmediasafety.rating.analysis;
+
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Follows the redirects of shortened links in the background, so the rules
+ * can score where a bit.ly or t.co link actually goes.
+ *
+ * At most a fixed number of expansions run at once and each host is asked at
+ * most once per interval; a link that cannot start right away is skipped and
+ * tried again the next time it shows up. Several requests for the same link
+ * while it is being expanded share one lookup, and results are cached for a
+ * while. Hops go through a {@link Resolver}, so the network can be swapped for
+ * a stub. Safe to call from any thread; listeners run on the expander's
+ * threads.
+ */
+public class ShortLinkExpander {
+
+    /** Resolves one hop of a redirect chain. */
+    public interface Resolver {
+        /** Returns where the URL redirects to, or null if it does not redirect. */
+        String resolve(String url) throws IOException;
+    }
+
+    /** Told about each link once its destination is known. */
+    public interface Listener {
+        void onExpanded(String shortUrl, String destination);
+    }
+
+    /** Resolves hops with HEAD requests that do not follow redirects themselves. */
+    public static class HttpResolver implements Resolver {
+
+        private final int timeoutMillis;
+
+        public HttpResolver(int timeoutMillis) {
+            this.timeoutMillis = timeoutMillis;
+        }
+
+        @Override
+        public String resolve(String url) throws IOException {
+            HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
+            try {
+                connection.setInstanceFollowRedirects(false);
+                connection.setRequestMethod("HEAD");
+                connection.setConnectTimeout(timeoutMillis);
+                connection.setReadTimeout(timeoutMillis);
+                int code = connection.getResponseCode();
+                String location = connection.getHeaderField("Location");
+                if (code < 300 || code >= 400 || location == null) return null;
+                // Location may be relative to the requested URL
+                return new URL(new URL(url), location).toString();
+            } finally {
+                connection.disconnect();
+            }
+        }
+    }
+
+    // Link shorteners worth expanding; other links already show their destination
+    private static final Set<String> SHORTENER_HOSTS = new HashSet<>(Arrays.asList(
+            "bit.ly", "tinyurl.com", "t.co", "goo.gl", "ow.ly", "short.link", "is.gd", "buff.ly", "cutt.ly"));
+
+    private static final int MAX_REDIRECTS = 5;
+    // Expansions waiting for a free thread; more than this are skipped
+    private static final int QUEUE_CAPACITY = 16;
+
+    private final Resolver resolver;
+    private final long hostIntervalMillis;
+    private final long ttlMillis;
+    private final long deadlineMillis;
+    private final ThreadPoolExecutor executor;
+
+    private final Map<String, CacheEntry> cache;
+    private final Map<String, List<Listener>> inFlight = new HashMap<>();
+    private final Map<String, Long> hostNextAllowed = new HashMap<>();
+
+    private int requests;
+    private int lookups;
+    private int cacheHits;
+    private int coalesced;
+    private int rateLimited;
+    private int rejected;
+    private int failures;
+
+    private static final class CacheEntry {
+        final String destination;
+        final long expiresAt;
+
+        CacheEntry(String destination, long expiresAt) {
+            this.destination = destination;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    /**
+     * @param maxConcurrent      expansions running at once
+     * @param hostIntervalMillis minimum time between two expansions on the same host
+     * @param cacheCapacity      destinations remembered at once
+     * @param ttlMillis          how long a destination is remembered
+     * @param deadlineMillis     time budget for a whole redirect chain
+     */
+    public ShortLinkExpander(Resolver resolver, int maxConcurrent, long hostIntervalMillis,
+                             final int cacheCapacity, long ttlMillis, long deadlineMillis) {
+        this.resolver = resolver;
+        this.hostIntervalMillis = hostIntervalMillis;
+        this.ttlMillis = ttlMillis;
+        this.deadlineMillis = deadlineMillis;
+        this.cache = new LinkedHashMap<String, CacheEntry>(cacheCapacity + 1, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CacheEntry> eldest) {
+                return size() > cacheCapacity;
+            }
+        };
+        this.executor = new ThreadPoolExecutor(maxConcurrent, maxConcurrent, 30, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<Runnable>(QUEUE_CAPACITY), runnable -> {
+                    Thread thread = new Thread(runnable, "link-expander");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        executor.allowCoreThreadTimeOut(true);
+    }
+
+    /** True if the URL points at a known link shortener. */
+    public static boolean isShortLink(String url) {
+        String host = hostOf(url);
+        return host != null && SHORTENER_HOSTS.contains(host);
+    }
+
+    /** Returns the cached destination of the link, or null if it is not known yet. */
+    public synchronized String getCached(String url) {
+        lookups++;
+        CacheEntry entry = cache.get(url);
+        if (entry == null) return null;
+        if (entry.expiresAt <= now()) {
+            cache.remove(url);
+            return null;
+        }
+        cacheHits++;
+        return entry.destination;
+    }
+
+    /**
+     * Expands the link in the background and tells the listener where it
+     * leads. A cached link is reported right away on the calling thread; a
+     * link that is rate limited or finds the queue full is dropped silently.
+     */
+    public void expand(String url, Listener listener) {
+        String destination;
+        synchronized (this) {
+            destination = getCached(url);
+            if (destination == null) {
+                if (!schedule(url, listener)) return;
+            }
+        }
+        if (destination != null) {
+            listener.onExpanded(url, destination);
+        }
+    }
+
+    /**
+     * Drops expired destinations, and hosts whose interval has passed, and
+     * returns how many destinations were dropped. Meant for idle maintenance.
+     */
+    public synchronized int pruneExpired() {
+        long now = now();
+        int removed = 0;
+        Iterator<CacheEntry> entries = cache.values().iterator();
+        while (entries.hasNext()) {
+            if (entries.next().expiresAt <= now) {
+                entries.remove();
+                removed++;
+            }
+        }
+        // Otherwise every host ever expanded stays in the map
+        Iterator<Long> hosts = hostNextAllowed.values().iterator();
+        while (hosts.hasNext()) {
+            if (hosts.next() <= now) {
+                hosts.remove();
+            }
+        }
+        return removed;
+    }
+
+    /** Stops the expander; expansions still running are interrupted. */
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /** Expansions queued or running. */
+    public synchronized int getQueueDepth() {
+        return executor.getQueue().size() + inFlight.size();
+    }
+
+    public synchronized double getCacheHitRate() {
+        return lookups == 0 ? 0 : (double) cacheHits / lookups;
+    }
+
+    public synchronized String report() {
+        return String.format(Locale.US,
+                "requests=%d cached=%d coalesced=%d rateLimited=%d rejected=%d failed=%d size=%d",
+                requests, cacheHits, coalesced, rateLimited, rejected, failures, cache.size());
+    }
+
+    // Caller holds the lock; returns false if the expansion did not start
+    private boolean schedule(final String url, Listener listener) {
+        List<Listener> waiting = inFlight.get(url);
+        if (waiting != null) {
+            waiting.add(listener);
+            coalesced++;
+            return false;
+        }
+
+        String host = hostOf(url);
+        if (host == null) return false;
+        long now = now();
+        Long nextAllowed = hostNextAllowed.get(host);
+        if (nextAllowed != null && now < nextAllowed) {
+            rateLimited++;
+            return false;
+        }
+
+        waiting = new ArrayList<>();
+        waiting.add(listener);
+        inFlight.put(url, waiting);
+        try {
+            executor.execute(() -> finish(url, follow(url)));
+        } catch (RejectedExecutionException e) {
+            inFlight.remove(url);
+            rejected++;
+            return false;
+        }
+        hostNextAllowed.put(host, now + hostIntervalMillis);
+        requests++;
+        return true;
+    }
+
+    // Returns the end of the redirect chain, or null if it could not be followed
+    private String follow(String url) {
+        long deadline = now() + deadlineMillis;
+        String current = url;
+        try {
+            for (int hop = 0; hop < MAX_REDIRECTS && now() < deadline; hop++) {
+                String next = resolver.resolve(current);
+                if (next == null) return current;
+                current = next;
+            }
+            // Still redirecting: report the last hop reached
+            return current;
+        } catch (IOException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    private void finish(String url, String destination) {
+        List<Listener> waiting;
+        synchronized (this) {
+            waiting = inFlight.remove(url);
+            if (destination == null) {
+                failures++;
+                return;
+            }
+            cache.put(url, new CacheEntry(destination, now() + ttlMillis));
+        }
+        if (waiting == null) return;
+        for (Listener listener : waiting) {
+            listener.onExpanded(url, destination);
+        }
+    }
+
+    /** Lowercased host of an http(s) URL, or null if it has none. */
+    static String hostOf(String url) {
+        int start = url.indexOf("://");
+        if (start < 0) return null;
+        start += 3;
+        int end = start;
+        while (end < url.length() && "/?#:".indexOf(url.charAt(end)) < 0) {
+            end++;
+        }
+        return end > start ? url.substring(start, end).toLowerCase(Locale.ROOT) : null;
+    }
+
+    private static long now() {
+        return System.nanoTime() / 1000000;
+    }
+}
@@ -0,0 +1,347 @@
+package com.socialmediasafety.rating.analysis;
+
+import java.util.Arrays;
+
+/**
+ * Undoes the usual tricks used to slip scam phrases past keyword rules, so
+ * that "fr33 n1tr0", "b i t c o i n", "ｆｒｅｅ" and "bit​coin" all reach
+ * the phrase matcher in their plain form.
+ *
+ * In a single pass over the text it:
+ * <ul>
+ *   <li>folds fullwidth, mathematical, circled and squared letters and
+ *       accented Latin letters to ASCII (the NFKC-style part)</li>
+ *   <li>drops zero-width, bidi-control, variation-selector and other
+ *       invisible characters, so they no longer split words</li>
+ *   <li>turns emoji and symbol separators into spaces and collapses
+ *       whitespace runs</li>
+ *   <li>maps leetspeak digits and symbols, and Cyrillic/Greek look-alikes,
+ *       inside words that are mostly Latin letters</li>
+ *   <li>joins runs of three or more single letters split by spaces or
+ *       separator punctuation</li>
+ * </ul>
+ * Case is preserved so shouting can still be detected. Every output character
+ * remembers the offset of the source character it came from.
+ *
+ * The result is exposed as a CharSequence view over reused buffers, so
+ * canonicalizing allocates nothing once the buffers have grown to fit. An
+ * instance is therefore not thread-safe and its contents are only valid until
+ * the next call; use one instance per thread.
+ */
+public class TextCanonicalizer implements CharSequence {
+
+    private static final char DROP = '\uFFFF';
+    private static final char SPACE = '\uFFFE';
+
+    // Accented Latin letters (Latin-1 Supplement through Latin Extended-B) to their
+    // base letter, decomposed at build time by analysis-tables.gradle
+    private static final int LATIN_START = GeneratedTables.LATIN_FOLD_START;
+    private static final char[] LATIN_FOLD = GeneratedTables.LATIN_FOLD.toCharArray();
+    private static final int LATIN_END = LATIN_START + LATIN_FOLD.length;
+
+    // Look-alike letters folded only inside words that already contain Latin letters
+    private static final String LOOKALIKE_PAIRS =
+            // Cyrillic
+            "аaвbеeѕsіiјjкkмmнhоoрpсcтtуyхxһhԁdԛqԝwёeїiүy" +
+            "АAВBЕEЅSІIЈJКKМMНHОOРPСCТTУYХXҮY" +
+            // Greek
+            "αaβbεeηnικkνvοoρpτtυuχxωwΑAΒBΕEΖZΗHΙIΚKΜMΝNΟOΡPΤTΥYΧX";
+    private static final char[] LOOKALIKE_KEYS;
+    private static final char[] LOOKALIKE_VALUES;
+
+    // Separator punctuation that may sit between the letters of a spaced-out word
+    private static final String SOFT_SEPARATORS = ".-_*·•|/\\~+";
+
+    private static final int MIN_SPACED_RUN = 3;
+    private static final int MAX_SPACED_GAP = 3;
+
+    static {
+        int pairCount = LOOKALIKE_PAIRS.length() / 2;
+        long[] packed = new long[pairCount];
+        for (int i = 0; i < pairCount; i++) {
+            packed[i] = ((long) LOOKALIKE_PAIRS.charAt(i * 2) << 16) | LOOKALIKE_PAIRS.charAt(i * 2 + 1);
+        }
+        Arrays.sort(packed);
+        LOOKALIKE_KEYS = new char[pairCount];
+        LOOKALIKE_VALUES = new char[pairCount];
+        for (int i = 0; i < pairCount; i++) {
+            LOOKALIKE_KEYS[i] = (char) (packed[i] >>> 16);
+            LOOKALIKE_VALUES[i] = (char) packed[i];
+        }
+    }
+
+    private char[] out = new char[256];
+    private int[] origin = new int[256];
+    private int length;
+    private int sourceLength;
+    private boolean changed;
+
+    // Current word (letters, digits and leet symbols) in the output
+    private int tokenStart;
+    private int tokenLatinLetters;
+    private int tokenDigits;
+    private boolean tokenMappable;
+    // Current run of single-letter words
+    private int runStart;
+    private int runEnd;
+    private int runCount;
+
+    /**
+     * Canonicalizes source into this instance and returns it. The returned
+     * view is overwritten by the next call.
+     */
+    public TextCanonicalizer canonicalize(CharSequence source) {
+        sourceLength = source.length();
+        ensureCapacity(sourceLength + 1);
+        length = 0;
+        changed = false;
+        tokenStart = -1;
+        runCount = 0;
+        boolean pendingSpace = false;
+        int pendingSpaceOrigin = 0;
+
+        for (int i = 0; i < sourceLength; ) {
+            char raw = source.charAt(i);
+            int codePoint = Character.isHighSurrogate(raw) ? Character.codePointAt(source, i) : raw;
+            int charCount = Character.charCount(codePoint);
+            char c = raw > ' ' && raw < 0x80 ? raw : fold(codePoint);
+
+            if (c == DROP) {
+                // Invisible characters must not split a word
+                changed = true;
+            } else if (c == SPACE) {
+                endToken();
+                // Anything but a single space between words is a change
+                if (codePoint != ' ' || pendingSpace || length == 0) changed = true;
+                if (!pendingSpace) {
+                    pendingSpace = true;
+                    pendingSpaceOrigin = i;
+                }
+            } else {
+                if (pendingSpace) {
+                    if (length > 0) emit(' ', pendingSpaceOrigin);
+                    pendingSpace = false;
+                }
+                if (c != 0 && c != codePoint) changed = true;
+
+                if (isWordChar(c)) {
+                    emitWordChar(c, i);
+                } else if (c == 0 && Character.isLetterOrDigit(codePoint)) {
+                    // Letters outside the BMP are kept as they are
+                    emitWordChar(source.charAt(i), i);
+                    emit(source.charAt(i + 1), i);
+                } else {
+                    endToken();
+                    emit(c, i);
+                }
+            }
+            i += charCount;
+        }
+        endToken();
+        finishRun();
+        if (pendingSpace) changed = true;
+        return this;
+    }
+
+    /** Whether canonicalizing changed anything beyond the source text. */
+    public boolean isChanged() {
+        return changed;
+    }
+
+    /** Offset in the source text of the character at index in the canonical text. */
+    public int getOriginalOffset(int index) {
+        return index >= length ? sourceLength : origin[index];
+    }
+
+    @Override
+    public int length() {
+        return length;
+    }
+
+    @Override
+    public char charAt(int index) {
+        if (index >= length) throw new IndexOutOfBoundsException("index " + index + ", length " + length);
+        return out[index];
+    }
+
+    @Override
+    public CharSequence subSequence(int start, int end) {
+        return new String(out, start, end - start);
+    }
+
+    @Override
+    public String toString() {
+        return new String(out, 0, length);
+    }
+
+    /**
+     * Context-free folding of one code point. Returns DROP for invisible
+     * characters, SPACE for whitespace and symbols, 0 for letters outside the
+     * BMP that are kept as-is, and otherwise the folded character.
+     */
+    private static char fold(int cp) {
+        if (cp < 0x80) {
+            return cp <= ' ' ? (cp == ' ' || Character.isWhitespace(cp) ? SPACE : DROP) : (char) cp;
+        }
+        if (cp >= LATIN_START && cp < LATIN_END) return LATIN_FOLD[cp - LATIN_START];
+        if (cp == 0x00AD || cp == 0x034F || cp == 0x180E || cp == 0xFEFF) return DROP;
+        if (cp >= 0x0300 && cp <= 0x036F) return DROP;                  // combining diacritics
+        if (cp >= 0x200B && cp <= 0x200F) return DROP;                  // zero-width and direction marks
+        if (cp >= 0x202A && cp <= 0x202E) return DROP;                  // bidi embedding controls
+        if (cp >= 0x2060 && cp <= 0x2064) return DROP;                  // word joiner, invisible operators
+        if (cp >= 0xFE00 && cp <= 0xFE0F) return DROP;                  // variation selectors
+        if (cp >= 0xE0000 && cp <= 0xE01EF) return DROP;                // tags and supplementary selectors
+        if (cp >= 0xFF01 && cp <= 0xFF5E) return (char) (cp - 0xFEE0);  // fullwidth ASCII
+        if (cp >= 0x2460 && cp <= 0x2468) return (char) ('1' + cp - 0x2460);  // circled 1-9
+        if (cp >= 0x249C && cp <= 0x24B5) return (char) ('a' + cp - 0x249C);  // parenthesized a-z
+        if (cp >= 0x24B6 && cp <= 0x24CF) return (char) ('A' + cp - 0x24B6);  // circled A-Z
+        if (cp >= 0x24D0 && cp <= 0x24E9) return (char) ('a' + cp - 0x24D0);  // circled a-z
+        if (cp >= 0x1D400 && cp <= 0x1D6A3) {
+            // Mathematical alphanumerics: 13 styles of A-Z followed by a-z
+            int letter = (cp - 0x1D400) % 52;
+            return (char) (letter < 26 ? 'A' + letter : 'a' + letter - 26);
+        }
+        if (cp >= 0x1D7CE && cp <= 0x1D7FF) return (char) ('0' + (cp - 0x1D7CE) % 10);
+        if (cp >= 0x1F130 && cp <= 0x1F189) {
+            // Squared, negative circled and negative squared A-Z
+            int letter = (cp - 0x1F130) % 32;
+            return letter < 26 ? (char) ('A' + letter) : SPACE;
+        }
+        if (Character.isWhitespace(cp) || Character.isSpaceChar(cp)) return SPACE;
+        if (cp > 0xFFFF) return Character.isLetterOrDigit(cp) ? 0 : SPACE;  // emoji and other symbols
+
+        int type = Character.getType(cp);
+        if (type == Character.OTHER_SYMBOL || type == Character.MODIFIER_SYMBOL) return SPACE;
+        if (type == Character.FORMAT || type == Character.CONTROL) return DROP;
+        return (char) cp;
+    }
+
+    private static boolean isWordChar(char c) {
+        if (c < 0x80) {
+            return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9')
+                    || c == '@' || c == '$' || c == '\'';
+        }
+        return Character.isLetterOrDigit(c);
+    }
+
+    private void emit(char c, int sourceOffset) {
+        if (length == out.length) ensureCapacity(length * 2);
+        out[length] = c;
+        origin[length] = sourceOffset;
+        length++;
+    }
+
+    private void emitWordChar(char c, int sourceOffset) {
+        if (tokenStart < 0) {
+            tokenStart = length;
+            tokenLatinLetters = 0;
+            tokenDigits = 0;
+            tokenMappable = false;
+        }
+        if ((c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z')) {
+            tokenLatinLetters++;
+        } else if (c >= '0' && c <= '9') {
+            tokenDigits++;
+            tokenMappable = true;
+        } else if (c == '@' || c == '$' || c >= 0x0370) {
+            tokenMappable = true;
+        }
+        emit(c, sourceOffset);
+    }
+
+    /** Applies the word-level mappings to the word just completed and tracks spaced-out letters. */
+    private void endToken() {
+        if (tokenStart < 0) return;
+        int start = tokenStart;
+        tokenStart = -1;
+        int latinLetters = tokenLatinLetters;
+        int digits = tokenDigits;
+
+        if (latinLetters > 0 && tokenMappable) {
+            // Mostly-letter words get leetspeak and look-alike letters mapped back
+            boolean mapDigits = latinLetters >= 2 && latinLetters >= digits;
+            for (int k = start; k < length; k++) {
+                char c = out[k];
+                char mapped = c;
+                if (c >= '0' && c <= '9') {
+                    if (mapDigits) mapped = leet(c);
+                } else if ((c == '@' || c == '$') && k > start) {
+                    mapped = c == '@' ? 'a' : 's';
+                } else if (c >= 0x0370) {
+                    int index = Arrays.binarySearch(LOOKALIKE_KEYS, c);
+                    if (index >= 0) mapped = LOOKALIKE_VALUES[index];
+                }
+                if (mapped != c) {
+                    out[k] = mapped;
+                    changed = true;
+                }
+            }
+        }
+
+        boolean singleLetter = length - start == 1 && Character.isLetter(out[start]);
+        if (singleLetter && runCount > 0 && isSeparatorGap(runEnd, start)) {
+            runCount++;
+            runEnd = length;
+        } else {
+            int removed = finishRun();
+            if (singleLetter) {
+                runStart = start - removed;
+                runEnd = length;
+                runCount = 1;
+            }
+        }
+    }
+
+    private boolean isSeparatorGap(int from, int to) {
+        if (to - from > MAX_SPACED_GAP) return false;
+        for (int k = from; k < to; k++) {
+            if (out[k] != ' ' && SOFT_SEPARATORS.indexOf(out[k]) < 0) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Joins the pending run of single letters if it is long enough, shifting
+     * anything emitted after it. Returns the number of characters removed.
+     */
+    private int finishRun() {
+        int count = runCount;
+        runCount = 0;
+        if (count < MIN_SPACED_RUN) return 0;
+
+        int write = runStart;
+        for (int read = runStart; read < runEnd; read++) {
+            if (Character.isLetter(out[read])) {
+                out[write] = out[read];
+                origin[write] = origin[read];
+                write++;
+            }
+        }
+        int removed = runEnd - write;
+        System.arraycopy(out, runEnd, out, write, length - runEnd);
+        System.arraycopy(origin, runEnd, origin, write, length - runEnd);
+        length -= removed;
+        changed = true;
+        return removed;
+    }
+
+    private static char leet(char digit) {
+        switch (digit) {
+            case '0': return 'o';
+            case '1': return 'i';
+            case '3': return 'e';
+            case '4': return 'a';
+            case '5': return 's';
+            case '7': return 't';
+            case '8': return 'b';
+            default: return digit;
+        }
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity <= out.length) return;
+        int newLength = Math.max(out.length * 2, capacity);
+        out = Arrays.copyOf(out, newLength);
+        origin = Arrays.copyOf(origin, newLength);
+    }
+}
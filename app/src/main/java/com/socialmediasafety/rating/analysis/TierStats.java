@@ -0,0 +1,98 @@
+package com.socialmediasafety.rating.analysis;
+
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Counters for the tiered analysis pipeline: how many posts reached each tier,
+ * how long posts took depending on where they stopped, and the estimated time
+ * saved by clearing posts at the prefilter instead of running every tier.
+ */
+public class TierStats {
+
+    public static final int TIER_PREFILTER = 0;
+    public static final int TIER_RULES = 1;
+    public static final int TIER_URLS = 2;
+    public static final int TIER_CLASSIFIER = 3;
+    public static final int TIER_COUNT = 4;
+
+    private static final int CLEARED_POSTS = TIER_COUNT;
+    private static final int CLEARED_NANOS = TIER_COUNT + 1;
+    private static final int FLAGGED_POSTS = TIER_COUNT + 2;
+    private static final int FLAGGED_NANOS = TIER_COUNT + 3;
+    private static final int DECIDED_POSTS = TIER_COUNT + 4;
+    private static final int SAMPLED_POSTS = TIER_COUNT + 5;
+    private static final int OVER_BUDGET_POSTS = TIER_COUNT + 6;
+
+    private final AtomicLongArray counters = new AtomicLongArray(TIER_COUNT + 7);
+
+    /** Records that a post entered the given tier. */
+    public void recordTier(int tier) {
+        counters.incrementAndGet(tier);
+    }
+
+    /** Records a post cleared by the prefilter. */
+    public void recordCleared(long nanos) {
+        counters.incrementAndGet(CLEARED_POSTS);
+        counters.addAndGet(CLEARED_NANOS, nanos);
+    }
+
+    /** Records a post that went past the prefilter. */
+    public void recordFlagged(long nanos) {
+        counters.incrementAndGet(FLAGGED_POSTS);
+        counters.addAndGet(FLAGGED_NANOS, nanos);
+    }
+
+    /** Records a post whose remaining tiers were skipped because its level was already decided. */
+    public void recordDecided() {
+        counters.incrementAndGet(DECIDED_POSTS);
+    }
+
+    /** Records a post too long to analyze in full. */
+    public void recordSampled() {
+        counters.incrementAndGet(SAMPLED_POSTS);
+    }
+
+    /** Records a post whose remaining tiers were skipped because it ran out of time. */
+    public void recordOverBudget() {
+        counters.incrementAndGet(OVER_BUDGET_POSTS);
+    }
+
+    public long getDecidedCount() { return counters.get(DECIDED_POSTS); }
+    public long getSampledCount() { return counters.get(SAMPLED_POSTS); }
+    public long getOverBudgetCount() { return counters.get(OVER_BUDGET_POSTS); }
+
+    public long getPostCount() {
+        return counters.get(CLEARED_POSTS) + counters.get(FLAGGED_POSTS);
+    }
+
+    /** Fraction of all posts that entered the tier. */
+    public double getHitRate(int tier) {
+        long posts = getPostCount();
+        return posts == 0 ? 0 : (double) counters.get(tier) / posts;
+    }
+
+    /**
+     * Estimated time saved, in nanoseconds, assuming posts cleared at the
+     * prefilter would otherwise have cost as much as the average flagged post.
+     */
+    public long getEstimatedNanosSaved() {
+        long flagged = counters.get(FLAGGED_POSTS);
+        long cleared = counters.get(CLEARED_POSTS);
+        if (flagged == 0 || cleared == 0) return 0;
+        long averageFlagged = counters.get(FLAGGED_NANOS) / flagged;
+        long averageCleared = counters.get(CLEARED_NANOS) / cleared;
+        return Math.max(0, averageFlagged - averageCleared) * cleared;
+    }
+
+    public String report() {
+        return String.format(Locale.US,
+                "posts=%d prefilter=%.0f%% rules=%.0f%% urls=%.0f%% classifier=%.0f%% saved=%.1fms"
+                        + " decided=%d sampled=%d overBudget=%d",
+                getPostCount(),
+                getHitRate(TIER_PREFILTER) * 100, getHitRate(TIER_RULES) * 100,
+                getHitRate(TIER_URLS) * 100, getHitRate(TIER_CLASSIFIER) * 100,
+                getEstimatedNanosSaved() / 1e6,
+                getDecidedCount(), getSampledCount(), getOverBudgetCount());
+    }
+}
@@ -0,0 +1,91 @@
+package com.socialmediasafety.rating;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.socialmediasafety.rating.analysis.RiskAnalysis;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Test;
+
+/**
+ * Scores the same posts from many threads at once and compares every result
+ * with a single-threaded baseline. Results cut short by the time budget depend
+ * on scheduling rather than on shared state, so they are not compared.
+ */
+public class ConcurrentAnalysisTest {
+
+    private static final String[] POSTS = {
+            "GUARANTEED PROFITS! Make $5000 a day with Bitcoin! NO RISK! Click here now!",
+            "URGENT: Your account has been suspended! Click here to verify your password immediately!",
+            "Fr33 n1tr0 giveaway at https://dlscord-gift.com/claim and https://bit.ly/x and https://t.co/y",
+            "Su cuenta ha sido suspendida, verifique sus datos de pago en el siguiente enlace urgente",
+            "Just had a great coffee this morning. Hope everyone has a wonderful day!",
+            "Follow for follow, retweet to win a free gift, dm me for details"
+    };
+    private static final int ITERATIONS = 500;
+
+    @Test
+    public void concurrentResultsMatchSingleThreaded() throws InterruptedException {
+        final ContentAnalyzer contentAnalyzer = new ContentAnalyzer();
+        final RiskAnalyzer riskAnalyzer = new RiskAnalyzer();
+        final String[] expected = new String[POSTS.length * 2];
+        // Cold first runs can overrun the time budget, so the baseline is the second pass
+        for (int i = 0; i < POSTS.length * 2; i++) {
+            contentAnalyzer.analyzeContent(POSTS[i % POSTS.length], Platform.DISCORD);
+            riskAnalyzer.analyzeContent(POSTS[i % POSTS.length], Platform.DISCORD);
+        }
+        for (int i = 0; i < POSTS.length; i++) {
+            expected[i * 2] = describe(contentAnalyzer.analyzeContent(POSTS[i], Platform.DISCORD));
+            expected[i * 2 + 1] = describe(riskAnalyzer.analyzeContent(POSTS[i], Platform.DISCORD));
+        }
+
+        int threadCount = Math.max(4, Runtime.getRuntime().availableProcessors() * 2);
+        final CountDownLatch start = new CountDownLatch(1);
+        final AtomicInteger mismatches = new AtomicInteger();
+        final AtomicInteger compared = new AtomicInteger();
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < threadCount; t++) {
+            final int offset = t;
+            Thread thread = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int n = 0; n < ITERATIONS; n++) {
+                    // Each thread walks the posts in a different order
+                    int i = (n + offset) % POSTS.length;
+                    compare(expected[i * 2], contentAnalyzer.analyzeContent(POSTS[i], Platform.DISCORD),
+                            compared, mismatches);
+                    compare(expected[i * 2 + 1], riskAnalyzer.analyzeContent(POSTS[i], Platform.DISCORD),
+                            compared, mismatches);
+                }
+            }, "analysis-test-" + t);
+            threads.add(thread);
+            thread.start();
+        }
+
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(0, mismatches.get());
+        assertTrue(compared.get() > 0);
+    }
+
+    private static void compare(String expected, RiskAnalysis analysis, AtomicInteger compared,
+                                AtomicInteger mismatches) {
+        if (analysis.isTruncated()) return;
+        compared.incrementAndGet();
+        if (!expected.equals(describe(analysis))) {
+            mismatches.incrementAndGet();
+        }
+    }
+
+    private static String describe(RiskAnalysis analysis) {
+        return analysis.getRiskScore() + " " + analysis.getRiskLevel() + " " + analysis.getRiskFactors();
+    }
+}
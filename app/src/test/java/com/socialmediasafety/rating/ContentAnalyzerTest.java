@@ -0,0 +1,53 @@
+package com.socialmediasafety.rating;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.socialmediasafety.rating.analysis.RiskAnalysis;
+import com.socialmediasafety.rating.analysis.RiskLevel;
+import com.socialmediasafety.rating.analysis.TierStats;
+import org.junit.Test;
+
+public class ContentAnalyzerTest {
+
+    @Test
+    public void postWithoutRuleHitsReachesUrlTier() {
+        ContentAnalyzer analyzer = new ContentAnalyzer();
+        RiskAnalysis analysis = analyzer.analyzeContent(
+                "Photos from our trip to the lake are up https://example.com/album", Platform.OTHER,
+                new RiskAnalysis(), ContentAnalyzer.DEPTH_STANDARD);
+
+        TierStats stats = analyzer.getTierStats();
+        assertEquals(0, stats.getDecidedCount());
+        assertEquals(1.0, stats.getHitRate(TierStats.TIER_URLS), 0);
+        assertTrue(analysis.getRiskLevel() != RiskLevel.HIGH);
+    }
+
+    @Test
+    public void singleKeywordPostReachesUrlTier() {
+        ContentAnalyzer analyzer = new ContentAnalyzer();
+        RiskAnalysis analysis = analyzer.analyzeContent(
+                "Click here for the details https://example.com/offer", Platform.OTHER,
+                new RiskAnalysis(), ContentAnalyzer.DEPTH_STANDARD);
+
+        TierStats stats = analyzer.getTierStats();
+        assertEquals(0, stats.getDecidedCount());
+        assertEquals(1.0, stats.getHitRate(TierStats.TIER_URLS), 0);
+        assertTrue(analysis.getCategoryScore(RiskAnalysis.CATEGORY_PHISHING) > 0);
+        assertTrue(analysis.getRiskLevel() != RiskLevel.HIGH);
+    }
+
+    @Test
+    public void postHighOnRulesAloneSkipsUrlTier() {
+        ContentAnalyzer analyzer = new ContentAnalyzer();
+        RiskAnalysis analysis = analyzer.analyzeContent(
+                "Congratulations, you won a prize! Click here to verify your account password, "
+                        + "urgent action needed: https://example.com/claim",
+                Platform.OTHER, new RiskAnalysis(), ContentAnalyzer.DEPTH_STANDARD);
+
+        TierStats stats = analyzer.getTierStats();
+        assertEquals(1, stats.getDecidedCount());
+        assertEquals(0.0, stats.getHitRate(TierStats.TIER_URLS), 0);
+        assertEquals(RiskLevel.HIGH, analysis.getRiskLevel());
+    }
+}
@@ -0,0 +1,33 @@
+package com.socialmediasafety.rating;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.socialmediasafety.rating.analysis.RiskAnalysis;
+import com.socialmediasafety.rating.analysis.RiskFactor;
+import org.junit.Test;
+
+public class RiskAnalyzerTest {
+
+    private final RiskAnalyzer analyzer = new RiskAnalyzer();
+
+    @Test
+    public void matchesPhrasesThroughObfuscation() {
+        RiskAnalysis analysis = analyzer.analyzeContent("Get your fr33 n1tr0 before it is gone", Platform.DISCORD);
+        assertTrue(analysis.hasFactor(RiskFactor.DISCORD_SCAM_PHRASES));
+
+        analysis = analyzer.analyzeContent("Please ver\u200Bify your acc\u200Bount today", Platform.OTHER);
+        assertTrue(analysis.hasFactor(RiskFactor.PHISHING_PHRASES));
+
+        analysis = analyzer.analyzeContent("Great b1tc0in explainer from the library", Platform.OTHER);
+        assertTrue(analysis.hasFactor(RiskFactor.FINANCIAL_PHRASES));
+    }
+
+    @Test
+    public void leavesPlainTextAlone() {
+        RiskAnalysis analysis = analyzer.analyzeContent("Had a lovely walk by the river with 2 friends", Platform.OTHER);
+        assertFalse(analysis.hasFactor(RiskFactor.FINANCIAL_PHRASES));
+        assertFalse(analysis.hasFactor(RiskFactor.PHISHING_PHRASES));
+        assertFalse(analysis.hasFactor(RiskFactor.SPAM_PHRASES));
+    }
+}
@@ -0,0 +1,36 @@
+package com.socialmediasafety.rating.analysis;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+public class AuthorReputationTest {
+
+    private static final long HALF_LIFE_MS = 60 * 60 * 1000;
+
+    private final AuthorReputation reputation = new AuthorReputation(16, HALF_LIFE_MS);
+
+    @Test
+    public void countsARiskyPostShownAgainOnce() {
+        reputation.record("scammer", 42, RiskLevel.MEDIUM, 1000);
+        reputation.record("scammer", 42, RiskLevel.MEDIUM, 2000);
+        assertEquals(1, reputation.getRiskyPosts("scammer"));
+        // Half a high-risk post is not enough to be suspect
+        assertEquals(AuthorReputation.STANDING_NEUTRAL, reputation.lookup("scammer", 2000));
+
+        reputation.record("scammer", 43, RiskLevel.MEDIUM, 3000);
+        assertEquals(2, reputation.getRiskyPosts("scammer"));
+    }
+
+    @Test
+    public void trustsOnlyDistinctCleanPosts() {
+        for (int i = 0; i < 5; i++) {
+            reputation.record("friend", 7, RiskLevel.SAFE, 1000 + i);
+        }
+        assertEquals(AuthorReputation.STANDING_NEUTRAL, reputation.lookup("friend", 2000));
+
+        reputation.record("friend", 8, RiskLevel.SAFE, 3000);
+        reputation.record("friend", 9, RiskLevel.SAFE, 4000);
+        assertEquals(AuthorReputation.STANDING_TRUSTED, reputation.lookup("friend", 5000));
+    }
+}
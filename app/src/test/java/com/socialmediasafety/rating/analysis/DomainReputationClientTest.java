@@ -0,0 +1,80 @@
+package com.socialmediasafety.rating.analysis;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Test;
+
+public class DomainReputationClientTest {
+
+    private final AtomicInteger queries = new AtomicInteger();
+    private final AtomicInteger queriedDomains = new AtomicInteger();
+    private final AtomicBoolean failing = new AtomicBoolean();
+
+    /** Stand-in reputation service that lists every domain containing "phish". */
+    private StubServer startService() throws Exception {
+        return new StubServer((path, body) -> {
+            queries.incrementAndGet();
+            if (failing.get()) return "503 Service Unavailable";
+            StringBuilder listed = new StringBuilder();
+            for (String domain : body.split("\n")) {
+                if (domain.isEmpty()) continue;
+                queriedDomains.incrementAndGet();
+                if (domain.contains("phish")) listed.append(domain).append('\n');
+            }
+            return "200 OK\r\n\r\n" + listed;
+        });
+    }
+
+    /** Domains from several lookups go out in one batch without duplicates, and verdicts are cached. */
+    @Test
+    public void batchesLookupsAndCachesVerdicts() throws Exception {
+        try (StubServer server = startService()) {
+            final CountDownLatch listed = new CountDownLatch(1);
+            DomainReputationClient client = new DomainReputationClient(
+                    new DomainReputationClient.HttpTransport(server.getBaseUrl() + "/lookup", 2000),
+                    100, 64, 60000, 60000, 60000, domain -> listed.countDown());
+            try {
+                client.lookup("https://phish.example/login");
+                client.lookup("https://good.example/");
+                client.lookup("https://phish.example/other-page");
+                // Verdicts are cached before the listener hears about listed domains
+                assertTrue(listed.await(5, TimeUnit.SECONDS));
+                assertEquals(1, queries.get());
+                assertEquals(2, queriedDomains.get());
+                assertEquals(DomainReputationClient.VERDICT_LISTED, client.lookup("https://phish.example/"));
+                assertEquals(DomainReputationClient.VERDICT_CLEAN, client.lookup("https://good.example/x"));
+            } finally {
+                client.shutdown();
+            }
+        }
+    }
+
+    /** Repeated failures open the circuit breaker, which then stops sending queries. */
+    @Test
+    public void breakerOpensAfterRepeatedFailures() throws Exception {
+        failing.set(true);
+        try (StubServer server = startService()) {
+            DomainReputationClient client = new DomainReputationClient(
+                    new DomainReputationClient.HttpTransport(server.getBaseUrl() + "/lookup", 2000),
+                    100, 64, 60000, 60000, 60000, domain -> { });
+            try {
+                for (int i = 0; i < 3; i++) {
+                    client.lookup("https://new" + i + ".example/");
+                    Thread.sleep(400);
+                }
+                int queriesWhenOpen = queries.get();
+                client.lookup("https://later.example/");
+                Thread.sleep(400);
+                assertTrue(client.isOpen());
+                assertEquals(queriesWhenOpen, queries.get());
+            } finally {
+                client.shutdown();
+            }
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package com.socialmediasafety.rating.analysis;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class DomainSpoofDetectorTest {
+
+    private final DomainSpoofDetector detector = new DomainSpoofDetector();
+
+    @Test
+    public void flagsLookalikesAndImpersonation() {
+        assertEquals(1, detector.scan("Free gift at https://dlscord-gift.com/claim"));
+        assertEquals(1, detector.getHomoglyphCount());
+        assertEquals("discord", detector.getHomoglyphBrand());
+
+        assertEquals(1, detector.scan("Log in at раураl.com to confirm"));
+        assertEquals("paypal", detector.getHomoglyphBrand());
+
+        assertEquals(1, detector.scan("claim it at discord-gift.com"));
+        assertEquals(1, detector.getImpersonationCount());
+        assertEquals("discord", detector.getImpersonationBrand());
+
+        assertEquals(1, detector.scan("verify at http://paypal.com.account-check.xyz/login"));
+        assertEquals("paypal", detector.getImpersonationBrand());
+    }
+
+    @Test
+    public void leavesOfficialAndUnrelatedHostsAlone() {
+        assertEquals(0, detector.scan("Ordered from amazon.de and amazon.co.uk, searched google.co.uk"));
+        assertEquals(0, detector.scan("Join us on https://discord.gg/abc or discord.com/invite/abc"));
+        assertEquals(0, detector.scan("Docs are at https://discord.js.org/docs"));
+        assertEquals(0, detector.scan("Got Discord.Nitro yesterday, thanks!"));
+        assertEquals(0, detector.scan("nitro-boosters.com sells car parts"));
+        assertEquals(0, detector.scan("apple-pie-recipes.com"));
+    }
+
+    @Test
+    public void eachFactorNamesItsOwnBrand() {
+        RiskAnalysis analysis = new RiskAnalysis();
+        int risk = detector.score("https://dlscord-gift.com/claim and paypal-verify.com", analysis);
+
+        assertEquals(60, risk);
+        assertTrue(analysis.hasFactor(RiskFactor.LOOKALIKE_DOMAIN));
+        assertTrue(analysis.hasFactor(RiskFactor.BRAND_IMPERSONATION));
+        assertTrue(analysis.getRiskFactors().contains("Look-alike domain spoofing (discord)"));
+        assertTrue(analysis.getRiskFactors().contains("Brand name on unofficial domain (paypal)"));
+    }
+
+    @Test
+    public void cleanTextAddsNoFactor() {
+        RiskAnalysis analysis = new RiskAnalysis();
+        assertEquals(0, detector.score("see you at example.com tomorrow", analysis));
+        assertFalse(analysis.hasFactor(RiskFactor.LOOKALIKE_DOMAIN));
+        assertFalse(analysis.hasFactor(RiskFactor.BRAND_IMPERSONATION));
+    }
+}
@@ -0,0 +1,178 @@
+package com.socialmediasafety.rating.analysis;
+
+import java.io.BufferedReader;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * JVM-side trainer and evaluator for {@link HashedNgramClassifier} models.
+ * Lives with the unit tests so it never ships in the app; run it from the
+ * unit test classpath.
+ *
+ * The corpus is a UTF-8 text file with one labelled post per line:
+ * {@code <label>\t<text>}, where the label is 1/scam or 0/clean. Blank lines
+ * and lines starting with '#' are skipped. A trained model goes in the app's
+ * assets as models/scam_classifier.bin; without one the classifier stage
+ * stays off.
+ *
+ * Usage:
+ * <pre>
+ *   java HashedNgramTrainer train corpus.tsv model.bin [epochs]
+ *   java HashedNgramTrainer eval model.bin corpus.tsv
+ * </pre>
+ */
+public class HashedNgramTrainer {
+
+    private static final float LEARNING_RATE = 0.5f;
+    private static final float L2 = 1e-6f;
+    private static final float THRESHOLD = 0.5f;
+
+    /** A labelled post from the corpus. */
+    public static class Example {
+        final int label;
+        final String text;
+
+        public Example(int label, String text) {
+            this.label = label;
+            this.text = text;
+        }
+    }
+
+    /** Confusion counts and scoring speed for one evaluation run. */
+    public static class Evaluation {
+        int truePositives;
+        int falsePositives;
+        int trueNegatives;
+        int falseNegatives;
+        long totalNanos;
+
+        public double precision() {
+            int predicted = truePositives + falsePositives;
+            return predicted == 0 ? 0 : (double) truePositives / predicted;
+        }
+
+        public double recall() {
+            int actual = truePositives + falseNegatives;
+            return actual == 0 ? 0 : (double) truePositives / actual;
+        }
+
+        public double accuracy() {
+            int total = truePositives + falsePositives + trueNegatives + falseNegatives;
+            return total == 0 ? 0 : (double) (truePositives + trueNegatives) / total;
+        }
+
+        public double microsPerPost() {
+            int total = truePositives + falsePositives + trueNegatives + falseNegatives;
+            return total == 0 ? 0 : totalNanos / 1000.0 / total;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.US,
+                    "precision=%.3f recall=%.3f accuracy=%.3f tp=%d fp=%d tn=%d fn=%d %.1fus/post",
+                    precision(), recall(), accuracy(),
+                    truePositives, falsePositives, trueNegatives, falseNegatives, microsPerPost());
+        }
+    }
+
+    public static List<Example> readCorpus(InputStream input) throws IOException {
+        List<Example> examples = new ArrayList<>();
+        BufferedReader reader = new BufferedReader(new InputStreamReader(input, Charset.forName("UTF-8")));
+        String line;
+        int lineNumber = 0;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            if (line.trim().isEmpty() || line.startsWith("#")) continue;
+
+            int tab = line.indexOf('\t');
+            if (tab < 0) {
+                throw new IOException("Line " + lineNumber + ": expected <label>\\t<text>");
+            }
+            examples.add(new Example(parseLabel(line.substring(0, tab).trim(), lineNumber),
+                    line.substring(tab + 1)));
+        }
+        return examples;
+    }
+
+    public static HashedNgramClassifier train(List<Example> examples, int hashBits, int epochs, long seed) {
+        HashedNgramClassifier classifier = new HashedNgramClassifier(hashBits);
+        int[] features = new int[HashedNgramClassifier.MAX_FEATURES];
+        List<Example> order = new ArrayList<>(examples);
+        Random random = new Random(seed);
+
+        for (int epoch = 0; epoch < epochs; epoch++) {
+            Collections.shuffle(order, random);
+            // Decay the step size so later epochs fine-tune instead of oscillating
+            float learningRate = LEARNING_RATE / (1 + epoch);
+            for (Example example : order) {
+                int count = classifier.extractFeatures(example.text, features);
+                classifier.train(features, count, example.label, learningRate, L2);
+            }
+        }
+        return classifier;
+    }
+
+    public static Evaluation evaluate(HashedNgramClassifier classifier, List<Example> examples) {
+        Evaluation evaluation = new Evaluation();
+        for (Example example : examples) {
+            long start = System.nanoTime();
+            boolean predictedScam = classifier.score(example.text) >= THRESHOLD;
+            evaluation.totalNanos += System.nanoTime() - start;
+
+            if (example.label == 1) {
+                if (predictedScam) evaluation.truePositives++; else evaluation.falseNegatives++;
+            } else {
+                if (predictedScam) evaluation.falsePositives++; else evaluation.trueNegatives++;
+            }
+        }
+        return evaluation;
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length >= 3 && "train".equals(args[0])) {
+            List<Example> corpus = readCorpusFile(args[1]);
+            int epochs = args.length > 3 ? Integer.parseInt(args[3]) : 10;
+            HashedNgramClassifier classifier =
+                    train(corpus, HashedNgramClassifier.DEFAULT_HASH_BITS, epochs, 42L);
+            try (OutputStream out = new FileOutputStream(args[2])) {
+                classifier.save(out);
+            }
+            System.out.println("Trained on " + corpus.size() + " posts: " + evaluate(classifier, corpus));
+        } else if (args.length >= 3 && "eval".equals(args[0])) {
+            HashedNgramClassifier classifier;
+            try (InputStream in = new FileInputStream(args[1])) {
+                classifier = HashedNgramClassifier.load(in);
+            }
+            List<Example> corpus = readCorpusFile(args[2]);
+            // Score everything once so the timing reflects JIT-compiled code
+            evaluate(classifier, corpus);
+            System.out.println(evaluate(classifier, corpus));
+        } else {
+            System.err.println("Usage: HashedNgramTrainer train <corpus.tsv> <model.bin> [epochs]");
+            System.err.println("       HashedNgramTrainer eval <model.bin> <corpus.tsv>");
+            System.exit(2);
+        }
+    }
+
+    private static List<Example> readCorpusFile(String path) throws IOException {
+        try (InputStream in = new FileInputStream(path)) {
+            return readCorpus(in);
+        }
+    }
+
+    private static int parseLabel(String label, int lineNumber) throws IOException {
+        if ("1".equals(label) || "scam".equalsIgnoreCase(label)) return 1;
+        if ("0".equals(label) || "clean".equalsIgnoreCase(label)) return 0;
+        throw new IOException("Line " + lineNumber + ": unknown label '" + label + "'");
+    }
+}
@@ -0,0 +1,52 @@
+package com.socialmediasafety.rating.analysis;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import org.junit.Test;
+
+public class HashedNgramTrainerTest {
+
+    private static final String CORPUS = "# label\ttext\n"
+            + "scam\tSend 0.1 BTC and get 0.2 back, limited spots, act fast\n"
+            + "scam\tYour account is locked, verify your password at this link now\n"
+            + "scam\tClaim your free nitro gift before it expires, login with your token\n"
+            + "scam\tGuaranteed daily returns on crypto, dm me to invest today\n"
+            + "clean\tJust had a great coffee this morning, hope you all have a good day\n"
+            + "clean\tDoes anyone know a good tutorial for sourdough bread?\n"
+            + "clean\tThe match last night was amazing, what a final goal\n"
+            + "\n"
+            + "clean\tPhotos from our hike are up, the view from the top was worth it\n";
+
+    @Test
+    public void learnsTheCorpus() throws Exception {
+        List<HashedNgramTrainer.Example> corpus = HashedNgramTrainer.readCorpus(
+                new ByteArrayInputStream(CORPUS.getBytes(StandardCharsets.UTF_8)));
+        assertEquals(8, corpus.size());
+
+        HashedNgramClassifier classifier = HashedNgramTrainer.train(corpus,
+                HashedNgramClassifier.DEFAULT_HASH_BITS, 20, 42L);
+        assertEquals(1.0, HashedNgramTrainer.evaluate(classifier, corpus).accuracy(), 0);
+    }
+
+    @Test
+    public void savedModelScoresLikeTheTrainedOne() throws Exception {
+        List<HashedNgramTrainer.Example> corpus = HashedNgramTrainer.readCorpus(
+                new ByteArrayInputStream(CORPUS.getBytes(StandardCharsets.UTF_8)));
+        HashedNgramClassifier trained = HashedNgramTrainer.train(corpus,
+                HashedNgramClassifier.DEFAULT_HASH_BITS, 20, 42L);
+
+        ByteArrayOutputStream model = new ByteArrayOutputStream();
+        trained.save(model);
+        HashedNgramClassifier loaded = HashedNgramClassifier.load(new ByteArrayInputStream(model.toByteArray()));
+
+        String post = "verify your account password now or it gets locked";
+        // Weights are quantized to 8 bits on save
+        assertEquals(trained.score(post), loaded.score(post), 0.05);
+        assertTrue(loaded.score(post) > 0.5f);
+    }
+}
@@ -0,0 +1,37 @@
+package com.socialmediasafety.rating.analysis;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+public class NearDuplicateIndexTest {
+
+    private static final String CAMPAIGN = "Huge giveaway today, claim your free tokens at the link in my bio";
+    private static final long WINDOW_MS = 10 * 60 * 1000;
+
+    private final NearDuplicateIndex index = new NearDuplicateIndex(64, WINDOW_MS);
+
+    @Test
+    public void countsExactCopiesFromOtherAuthors() {
+        assertEquals(0, index.recordAndCount(CAMPAIGN, "bot1", 1000));
+        assertEquals(1, index.recordAndCount(CAMPAIGN, "bot2", 2000));
+        assertEquals(2, index.recordAndCount(CAMPAIGN, "bot3", 3000));
+        assertEquals(3, index.size());
+    }
+
+    @Test
+    public void ignoresTheSamePostShownAgain() {
+        assertEquals(0, index.recordAndCount(CAMPAIGN, "bot1", 1000));
+        assertEquals(0, index.recordAndCount(CAMPAIGN, "bot1", 2000));
+        assertEquals(0, index.recordAndCount(CAMPAIGN, "bot1", 3000));
+        assertEquals(1, index.size());
+    }
+
+    @Test
+    public void countsSmallEditsAndForgetsOldPosts() {
+        index.recordAndCount(CAMPAIGN, "bot1", 1000);
+        assertEquals(1, index.recordAndCount(
+                "Huge giveaway today, claim your free tokens at the link in our bio", "bot1", 2000));
+        assertEquals(0, index.recordAndCount(CAMPAIGN, "bot2", 2000 + WINDOW_MS + 1));
+    }
+}
@@ -0,0 +1,51 @@
+package com.socialmediasafety.rating.analysis;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class RiskAnalysisTest {
+
+    @Test
+    public void levelsFollowTheCategoryTotal() {
+        assertEquals(RiskLevel.SAFE, levelFor(39));
+        assertEquals(RiskLevel.MEDIUM, levelFor(40));
+        assertEquals(RiskLevel.MEDIUM, levelFor(69));
+        assertEquals(RiskLevel.HIGH, levelFor(70));
+    }
+
+    @Test
+    public void scoresAddUpAcrossCategories() {
+        RiskAnalysis analysis = new RiskAnalysis();
+        analysis.setFinancialRisk(25);
+        analysis.setPhishingRisk(20);
+        analysis.calculateOverallRisk();
+        assertEquals(45, analysis.getRiskScore());
+        assertEquals(0.45, analysis.getTotalRiskScore(), 1e-9);
+        assertEquals(RiskLevel.MEDIUM, analysis.getRiskLevel());
+        assertFalse(analysis.isDecided());
+
+        analysis.setUrlRisk(25);
+        analysis.calculateOverallRisk();
+        assertEquals(RiskLevel.HIGH, analysis.getRiskLevel());
+        assertTrue(analysis.isDecided());
+    }
+
+    @Test
+    public void decidedOnlyOnceHigh() {
+        RiskAnalysis analysis = new RiskAnalysis();
+        analysis.setSpamRisk(69);
+        assertFalse(analysis.isDecided());
+        analysis.setSpamRisk(70);
+        assertTrue(analysis.isDecided());
+    }
+
+    private static RiskLevel levelFor(int total) {
+        RiskAnalysis analysis = new RiskAnalysis();
+        analysis.setPhishingRisk(total);
+        analysis.calculateOverallRisk();
+        return analysis.getRiskLevel();
+    }
+}
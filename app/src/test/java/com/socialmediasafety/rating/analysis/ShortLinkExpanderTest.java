@@ -0,0 +1,57 @@
+package com.socialmediasafety.rating.analysis;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.Test;
+
+public class ShortLinkExpanderTest {
+
+    /**
+     * Expands a short link against a stub server that redirects twice. Two
+     * requests for the same link share one lookup, the result is cached, and
+     * another link on the same host is rate limited.
+     */
+    @Test
+    public void expandsThroughRedirectsOncePerLink() throws Exception {
+        final AtomicInteger shortHits = new AtomicInteger();
+        try (StubServer server = new StubServer((path, body) -> {
+            if (path.equals("/short")) {
+                shortHits.incrementAndGet();
+                // Slow first hop, so the second request arrives while it is in flight
+                Thread.sleep(200);
+                return "301 Moved Permanently\r\nLocation: /mid";
+            } else if (path.equals("/mid")) {
+                return "302 Found\r\nLocation: /landing";
+            }
+            return "200 OK";
+        })) {
+            String base = server.getBaseUrl();
+            ShortLinkExpander expander = new ShortLinkExpander(new ShortLinkExpander.HttpResolver(2000),
+                    2, 60000, 16, 60000, 5000);
+            final CountDownLatch done = new CountDownLatch(2);
+            final AtomicReference<String> destination = new AtomicReference<>();
+            ShortLinkExpander.Listener listener = (shortUrl, expanded) -> {
+                destination.set(expanded);
+                done.countDown();
+            };
+            expander.expand(base + "/short", listener);
+            expander.expand(base + "/short", listener);
+            expander.expand(base + "/other", listener);
+            try {
+                assertTrue(done.await(5, TimeUnit.SECONDS));
+                assertEquals(1, shortHits.get());
+                assertEquals(base + "/landing", destination.get());
+                assertEquals(base + "/landing", expander.getCached(base + "/short"));
+                assertNull(expander.getCached(base + "/other"));
+            } finally {
+                expander.shutdown();
+            }
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package com.socialmediasafety.rating.analysis;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+
+/** Serves one HTTP request per connection on a loopback port until closed. */
+final class StubServer implements AutoCloseable {
+
+    /** Returns the status line, optionally followed by headers, a blank line and a body. */
+    interface Handler {
+        String respond(String path, String body) throws InterruptedException;
+    }
+
+    private final ServerSocket socket;
+
+    StubServer(final Handler handler) throws IOException {
+        socket = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+        new Thread(() -> {
+            while (!socket.isClosed()) {
+                try (Socket connection = socket.accept()) {
+                    serve(connection, handler);
+                } catch (IOException | InterruptedException e) {
+                    return;
+                }
+            }
+        }, "test-stub-server").start();
+    }
+
+    String getBaseUrl() {
+        return "http://127.0.0.1:" + socket.getLocalPort();
+    }
+
+    @Override
+    public void close() throws IOException {
+        socket.close();
+    }
+
+    private static void serve(Socket connection, Handler handler) throws IOException, InterruptedException {
+        BufferedReader in = new BufferedReader(new InputStreamReader(connection.getInputStream(), "UTF-8"));
+        String request = in.readLine();
+        if (request == null) return;
+        int contentLength = 0;
+        for (String header = in.readLine(); header != null && !header.isEmpty(); header = in.readLine()) {
+            if (header.toLowerCase().startsWith("content-length:")) {
+                contentLength = Integer.parseInt(header.substring(15).trim());
+            }
+        }
+        char[] body = new char[contentLength];
+        int read = 0;
+        while (read < contentLength) {
+            int n = in.read(body, read, contentLength - read);
+            if (n < 0) break;
+            read += n;
+        }
+
+        String response = handler.respond(request.split(" ")[1], new String(body, 0, read));
+        int split = response.indexOf("\r\n\r\n");
+        String head = split < 0 ? response : response.substring(0, split);
+        byte[] content = (split < 0 ? "" : response.substring(split + 4)).getBytes("UTF-8");
+        OutputStream out = connection.getOutputStream();
+        out.write(("HTTP/1.1 " + head + "\r\nContent-Length: " + content.length
+                + "\r\nConnection: close\r\n\r\n").getBytes("UTF-8"));
+        out.write(content);
+        out.flush();
+    }
+}